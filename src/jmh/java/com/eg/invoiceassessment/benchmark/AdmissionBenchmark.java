@@ -0,0 +1,84 @@
+package com.eg.invoiceassessment.benchmark;
+
+import com.eg.invoiceassessment.metrics.InvoiceMetrics;
+import com.eg.invoiceassessment.ratelimit.AdmissionFilter;
+import com.eg.invoiceassessment.ratelimit.AdmissionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost the admission filter adds to one request: {@code limited} passes the in-flight cap and takes a token
+ * from one of {@code clients} buckets, {@code unlimited} is an endpoint without limits. Run with {@code -t 4} to
+ * see it under contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdmissionBenchmark {
+
+    private static final String PAYMENTS = "/api/v1/invoices/{id}/payments";
+
+    @Param({"1", "10000"})
+    public int clients;
+
+    private AdmissionFilter filter;
+    private MockHttpServletResponse response;
+    private final FilterChain chain = (request, response) -> {
+    };
+
+    @State(Scope.Thread)
+    public static class Requests {
+        MockHttpServletRequest[] limited;
+        MockHttpServletRequest unlimited;
+        int next;
+
+        @Setup
+        public void setup(AdmissionBenchmark benchmark) {
+            limited = new MockHttpServletRequest[benchmark.clients];
+            for (int i = 0; i < limited.length; i++) {
+                limited[i] = request("POST", "10.0." + (i >> 8) + "." + (i & 0xff));
+            }
+            unlimited = request("GET", "10.0.0.0");
+        }
+
+        MockHttpServletRequest nextLimited() {
+            next = next + 1 == limited.length ? 0 : next + 1;
+            return limited[next];
+        }
+    }
+
+    @Setup
+    public void setup() {
+        AdmissionProperties properties = new AdmissionProperties(true, 100_000, Duration.ofMinutes(10),
+                Map.of("pay-invoice", new AdmissionProperties.Endpoint("POST", PAYMENTS, 1e9, 1_000_000, 1_000)));
+        filter = new AdmissionFilter(properties, new InvoiceMetrics(new SimpleMeterRegistry()),
+                (request, response, handler, ex) -> null);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public void limited(Requests requests) throws Exception {
+        filter.doFilter(requests.nextLimited(), response, chain);
+    }
+
+    @Benchmark
+    public void unlimited(Requests requests) throws Exception {
+        filter.doFilter(requests.unlimited, response, chain);
+    }
+
+    private static MockHttpServletRequest request(String method, String address) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/v1/invoices/1/payments");
+        request.setRemoteAddr(address);
+        return request;
+    }
+}
@@ -0,0 +1,84 @@
+package com.eg.invoiceassessment.benchmark;
+
+import com.eg.invoiceassessment.InvoiceAssessmentApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Boots the application without a web server against H2 (in memory unless a profile says otherwise) and
+ * seeds it with SQL, which is much faster than going through JPA for millions of rows.
+ */
+final class BenchmarkContext {
+
+    private static final long SEED_CHUNK = 100_000;
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of("--spring.datasource.hikari.maximum-pool-size=32"));
+        args.addAll(Arrays.asList(extraArgs));
+        return run(WebApplicationType.NONE, args);
+    }
+
+    /**
+     * Boots the full web application on a random port with the application's own pool and thread settings.
+     * Admission control is off, since all the load comes from a single client.
+     */
+    static ConfigurableApplicationContext startWeb(String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of("--server.port=0", "--invoice.admission.enabled=false"));
+        args.addAll(Arrays.asList(extraArgs));
+        return run(WebApplicationType.SERVLET, args);
+    }
+
+    private static ConfigurableApplicationContext run(WebApplicationType type, List<String> extraArgs) {
+        // devtools is on the runtime classpath; its restart classloader only gets in the way here
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        List<String> args = new ArrayList<>(List.of(
+                "--logging.level.root=WARN",
+                "--spring.jpa.show-sql=false"));
+        args.addAll(extraArgs);
+
+        SpringApplication application = new SpringApplication(InvoiceAssessmentApplication.class);
+        application.setWebApplicationType(type);
+        return application.run(args.toArray(String[]::new));
+    }
+
+    /**
+     * Replaces all data with {@code rows} PENDING invoices that are overdue; every fourth one is partially paid.
+     */
+    static void seedOverdueInvoices(ConfigurableApplicationContext context, long rows) {
+        seedPendingInvoices(context, rows, LocalDate.of(2020, 1, 1));
+    }
+
+    /**
+     * Replaces all data with {@code rows} PENDING invoices due evenly over the 365 days from
+     * {@code firstDueDate}; every fourth one is partially paid.
+     */
+    static void seedPendingInvoices(ConfigurableApplicationContext context, long rows, LocalDate firstDueDate) {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        jdbc.execute("truncate table overdue_partition_leases");
+        jdbc.execute("truncate table overdue_runs");
+        jdbc.execute("truncate table payments");
+        jdbc.execute("truncate table idempotency_keys");
+        jdbc.execute("truncate table invoice_events");
+        jdbc.execute("truncate table invoices");
+        // One transaction per chunk keeps the undo log small on a file-backed database
+        for (long first = 1; first <= rows; first += SEED_CHUNK) {
+            jdbc.update("""
+                    insert into invoices (id, amount, paid_amount, currency, due_date, status, created_at, updated_at, version)
+                    select x, 10000, case when mod(x, 4) = 0 then 2500 else 0 end, 'USD',
+                           dateadd('DAY', mod(x, 365), cast(? as date)), 'PENDING', now(), now(), 0
+                    from system_range(?, ?)""", firstDueDate, first, Math.min(rows, first + SEED_CHUNK - 1));
+        }
+        // Keep newly generated ids clear of the seeded ones, including a block the id pool may still hold
+        jdbc.execute("alter sequence invoices_seq restart with " + (rows + 1_000));
+    }
+}
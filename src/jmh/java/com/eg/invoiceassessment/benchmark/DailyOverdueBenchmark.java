@@ -0,0 +1,75 @@
+package com.eg.invoiceassessment.benchmark;
+
+import com.eg.invoiceassessment.dto.ProcessOverdueInvoiceRequest;
+import com.eg.invoiceassessment.service.IncrementalOverdueProcessor;
+import com.eg.invoiceassessment.service.OverdueInvoiceProcessor;
+import com.eg.invoiceassessment.service.OverdueProgressListener;
+import com.eg.invoiceassessment.service.OverdueTimingWheel;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one daily overdue run when {@code rows} PENDING invoices are due evenly over the next year, so each
+ * day about {@code rows / 365} of them become overdue. Every iteration moves the clock on by one day.
+ * {@code scan} is the run behind {@code POST /process-overdue}; {@code incremental} turns the due-date
+ * timing wheel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class DailyOverdueBenchmark {
+
+    // Follow-ups fall due after the benchmark ends, so every day closes the same number of seeded invoices
+    private static final ProcessOverdueInvoiceRequest REQUEST = new ProcessOverdueInvoiceRequest(1_000L, 400);
+
+    @Param({"1000000"})
+    public long rows;
+
+    @Param({"scan", "incremental"})
+    public String mode;
+
+    private ConfigurableApplicationContext context;
+    private OverdueInvoiceProcessor scanProcessor;
+    private IncrementalOverdueProcessor incrementalProcessor;
+    private LocalDate day;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.start("--invoice.overdue.incremental.enabled=" + mode.equals("incremental"),
+                "--invoice.overdue.policy.late-fee=" + REQUEST.lateFees(),
+                "--invoice.overdue.policy.follow-up-days=" + REQUEST.overduedays(),
+                // Only the explicit calls below may turn the wheel
+                "--invoice.overdue.incremental.check-interval=P1D");
+        scanProcessor = context.getBean(OverdueInvoiceProcessor.class);
+        incrementalProcessor = context.getBean(IncrementalOverdueProcessor.class);
+
+        day = LocalDate.now();
+        BenchmarkContext.seedPendingInvoices(context, rows, day);
+        context.getBean(OverdueTimingWheel.class).load();
+    }
+
+    @Setup(Level.Iteration)
+    public void nextDay() {
+        day = day.plusDays(1);
+    }
+
+    @Benchmark
+    public void processOneDay() {
+        if (mode.equals("incremental")) {
+            incrementalProcessor.processNewlyOverdue(day);
+        } else {
+            scanProcessor.process(REQUEST, day, OverdueProgressListener.NONE);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+}
@@ -0,0 +1,39 @@
+package com.eg.invoiceassessment.benchmark;
+
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.mapper.InvoiceMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of mapping one invoice entity to its API representation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvoiceMapperBenchmark {
+
+    private Invoice invoice;
+
+    @Setup
+    public void setup() {
+        invoice = new Invoice(10_000, "USD", LocalDate.now().plusDays(30));
+        invoice.setId(42L);
+        invoice.setPaidAmount(2_500);
+        invoice.setStatus(Invoice.Status.PENDING);
+        invoice.setCreatedAt(LocalDateTime.now());
+        invoice.setUpdatedAt(LocalDateTime.now());
+    }
+
+    @Benchmark
+    public InvoiceResponse toResponse() {
+        return InvoiceMapper.toResponse(invoice);
+    }
+}
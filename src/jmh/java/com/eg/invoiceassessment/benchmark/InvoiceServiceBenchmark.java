@@ -0,0 +1,69 @@
+package com.eg.invoiceassessment.benchmark;
+
+import com.eg.invoiceassessment.dto.InvoiceRequest;
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.dto.PaymentRequest;
+import com.eg.invoiceassessment.service.InvoiceService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@code createInvoice}, {@code payInvoice} and {@code getInvoiceById} through the service layer,
+ * including the transaction, against a table already holding {@code rows} invoices, with and without the
+ * second-level entity cache. Reads go to a hot set of {@value #HOT_INVOICES} invoices: more than the response
+ * cache holds by default, fewer than the entity cache does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class InvoiceServiceBenchmark {
+
+    private static final long HOT_INVOICES = 50_000;
+
+    @Param({"10000", "1000000"})
+    public long rows;
+
+    @Param({"false", "true"})
+    public boolean entityCache;
+
+    private ConfigurableApplicationContext context;
+    private InvoiceService invoiceService;
+    private final InvoiceRequest createRequest = new InvoiceRequest(10_000L, "USD", LocalDate.now().plusDays(30));
+    private final PaymentRequest paymentRequest = new PaymentRequest(1L);
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.start("--invoice.entity-cache.enabled=" + entityCache);
+        invoiceService = context.getBean(InvoiceService.class);
+        BenchmarkContext.seedOverdueInvoices(context, rows);
+    }
+
+    @Benchmark
+    public InvoiceResponse createInvoice() {
+        return invoiceService.createInvoice(createRequest);
+    }
+
+    // Seeded invoices have at least 75.00 outstanding, far more than the 0.01 payments made in one trial
+    @Benchmark
+    public InvoiceResponse payInvoice() {
+        long id = ThreadLocalRandom.current().nextLong(1, rows + 1);
+        return invoiceService.payInvoice(id, paymentRequest);
+    }
+
+    @Benchmark
+    public InvoiceResponse getInvoiceById() {
+        return invoiceService.getInvoiceById(ThreadLocalRandom.current().nextLong(1, Math.min(rows, HOT_INVOICES) + 1));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+}
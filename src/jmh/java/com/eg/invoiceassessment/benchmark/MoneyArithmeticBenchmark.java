@@ -0,0 +1,109 @@
+package com.eg.invoiceassessment.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-invoice cost of the payment and overdue arithmetic with the old boxed {@code Double} fields, with
+ * {@code BigDecimal}, and with the {@code long} minor units the entity now uses. Each operation applies one
+ * payment (balance check, add, settled check) and computes the overdue follow-up amount.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyArithmeticBenchmark {
+
+    private static final int SIZE = 100_000;
+
+    private final Double[] boxedAmounts = new Double[SIZE];
+    private final Double[] boxedPaid = new Double[SIZE];
+    private final Double[] boxedPayments = new Double[SIZE];
+    private final Double boxedLateFee = 10.0;
+
+    private final BigDecimal[] decimalAmounts = new BigDecimal[SIZE];
+    private final BigDecimal[] decimalPaid = new BigDecimal[SIZE];
+    private final BigDecimal[] decimalPayments = new BigDecimal[SIZE];
+    private final BigDecimal decimalLateFee = new BigDecimal("10.00");
+
+    private final long[] amounts = new long[SIZE];
+    private final long[] paid = new long[SIZE];
+    private final long[] payments = new long[SIZE];
+    private final long lateFee = 1_000;
+
+    @Setup(Level.Trial)
+    public void seed() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < SIZE; i++) {
+            long amount = random.nextLong(1_000, 1_000_000);
+            long alreadyPaid = random.nextBoolean() ? 0 : random.nextLong(amount);
+            long payment = random.nextLong(1, amount);
+
+            amounts[i] = amount;
+            paid[i] = alreadyPaid;
+            payments[i] = payment;
+
+            boxedAmounts[i] = amount / 100.0;
+            boxedPaid[i] = alreadyPaid / 100.0;
+            boxedPayments[i] = payment / 100.0;
+
+            decimalAmounts[i] = BigDecimal.valueOf(amount, 2);
+            decimalPaid[i] = BigDecimal.valueOf(alreadyPaid, 2);
+            decimalPayments[i] = BigDecimal.valueOf(payment, 2);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void boxedDouble(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            Double amount = boxedAmounts[i];
+            Double alreadyPaid = boxedPaid[i];
+            Double payment = boxedPayments[i];
+            if (payment <= amount - alreadyPaid) {
+                Double newPaid = alreadyPaid + payment;
+                bh.consume(newPaid >= amount);
+            }
+            Double followUp = amount - alreadyPaid + boxedLateFee;
+            bh.consume(alreadyPaid == 0.0 ? followUp : -followUp);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void bigDecimal(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            BigDecimal amount = decimalAmounts[i];
+            BigDecimal alreadyPaid = decimalPaid[i];
+            BigDecimal payment = decimalPayments[i];
+            if (payment.compareTo(amount.subtract(alreadyPaid)) <= 0) {
+                BigDecimal newPaid = alreadyPaid.add(payment);
+                bh.consume(newPaid.compareTo(amount) >= 0);
+            }
+            BigDecimal followUp = amount.subtract(alreadyPaid).add(decimalLateFee);
+            bh.consume(alreadyPaid.signum() == 0 ? followUp : followUp.negate());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void longMinorUnits(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            long amount = amounts[i];
+            long alreadyPaid = paid[i];
+            long payment = payments[i];
+            if (payment <= amount - alreadyPaid) {
+                long newPaid = alreadyPaid + payment;
+                bh.consume(newPaid >= amount);
+            }
+            long followUp = amount - alreadyPaid + lateFee;
+            bh.consume(alreadyPaid == 0 ? followUp : -followUp);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.eg.invoiceassessment.benchmark;
+
+import com.eg.invoiceassessment.entity.LateFeePolicy;
+import com.eg.invoiceassessment.service.OverdueProgressListener;
+import com.eg.invoiceassessment.service.PartitionedOverdueProcessor;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for one full partitioned overdue run over {@code rows} overdue invoices with 1..N workers.
+ * Throughput in rows per second is {@code rows / score}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class OverduePartitionScalingBenchmark {
+
+    @Param({"1000000"})
+    public long rows;
+
+    @Param({"1", "2", "4", "8"})
+    public int workers;
+
+    private ConfigurableApplicationContext context;
+    private PartitionedOverdueProcessor processor;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.start("--invoice.overdue.chunk-size=1000", "--invoice.overdue.partitions=64");
+        processor = context.getBean(PartitionedOverdueProcessor.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void seed() {
+        BenchmarkContext.seedOverdueInvoices(context, rows);
+    }
+
+    @Benchmark
+    public void processOverdue() {
+        processor.process(LateFeePolicy.flat(1000L), 14, LocalDate.now(), workers, OverdueProgressListener.NONE);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+}
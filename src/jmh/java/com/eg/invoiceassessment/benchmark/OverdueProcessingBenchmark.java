@@ -0,0 +1,48 @@
+package com.eg.invoiceassessment.benchmark;
+
+import com.eg.invoiceassessment.dto.ProcessOverdueInvoiceRequest;
+import com.eg.invoiceassessment.service.InvoiceService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for one synchronous {@code processOverdueInvoices} run over {@code rows} overdue invoices, using the
+ * default sequential chunk engine. Throughput in rows per second is {@code rows / score}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class OverdueProcessingBenchmark {
+
+    @Param({"10000", "1000000"})
+    public long rows;
+
+    private ConfigurableApplicationContext context;
+    private InvoiceService invoiceService;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.start();
+        invoiceService = context.getBean(InvoiceService.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void seed() {
+        BenchmarkContext.seedOverdueInvoices(context, rows);
+    }
+
+    @Benchmark
+    public void processOverdueInvoices() {
+        invoiceService.processOverdueInvoices(new ProcessOverdueInvoiceRequest(1_000L, 14));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+}
@@ -0,0 +1,88 @@
+package com.eg.invoiceassessment.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to apply a remittance of {@code payments} payments to random invoices among {@code rows} over HTTP:
+ * {@code single} posts them one by one to {@code /{id}/payments}, {@code batch} posts them as one body to
+ * {@code /payments/batch}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PaymentBatchBenchmark {
+
+    @Param({"1000000"})
+    public long rows;
+
+    @Param({"10000"})
+    public int payments;
+
+    @Param({"single", "batch"})
+    public String mode;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String base;
+    private long[] invoiceIds;
+    private String body;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.startWeb();
+        BenchmarkContext.seedOverdueInvoices(context, rows);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        base = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api/v1/invoices/";
+    }
+
+    // Seeded invoices have at least 75.00 outstanding, far more than the 0.01 payments made in one trial
+    @Setup(Level.Invocation)
+    public void nextRemittance() {
+        invoiceIds = ThreadLocalRandom.current().longs(payments, 1, rows + 1).toArray();
+        StringBuilder json = new StringBuilder(payments * 40).append('[');
+        for (int i = 0; i < payments; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"invoiceId\":").append(invoiceIds[i]).append(",\"amount\":1}");
+        }
+        body = json.append(']').toString();
+    }
+
+    @Benchmark
+    public void applyRemittance() throws IOException, InterruptedException {
+        if (mode.equals("batch")) {
+            post("payments/batch", body);
+            return;
+        }
+        for (long id : invoiceIds) {
+            post(id + "/payments", "{\"amount\":1}");
+        }
+    }
+
+    private void post(String path, String json) throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(base + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("POST " + path + " returned " + response.statusCode());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        client.close();
+        context.close();
+    }
+}
@@ -0,0 +1,68 @@
+package com.eg.invoiceassessment.benchmark;
+
+import com.eg.invoiceassessment.dto.ReceivablesSummary;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.metrics.InvoiceMetrics;
+import com.eg.invoiceassessment.summary.ReceivablesAggregates;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@code GET /summary} behind the controller, and of counting one new invoice into the totals. A summary
+ * sums one entry per currency and due date, so {@code dueDays} (distinct due dates of pending invoices, in each
+ * of three currencies) drives it, not the number of invoices.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceivablesSummaryBenchmark {
+
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP"};
+
+    @Param({"365", "3650"})
+    public int dueDays;
+
+    private ReceivablesAggregates aggregates;
+    private LocalDate today;
+    private List<Invoice> created;
+
+    @Setup
+    public void setup() {
+        // No database and no transaction: every delta is applied right away
+        aggregates = new ReceivablesAggregates(null, null, new InvoiceMetrics(new SimpleMeterRegistry()));
+        today = LocalDate.now();
+        List<Invoice> invoices = new ArrayList<>();
+        for (String currency : CURRENCIES) {
+            for (int day = 0; day < dueDays; day++) {
+                invoices.add(invoice(currency, today.plusDays(day - dueDays / 2)));
+            }
+        }
+        aggregates.createdAfterCommit(invoices);
+        created = List.of(invoice("USD", today.plusDays(30)));
+    }
+
+    @Benchmark
+    public ReceivablesSummary summarize() {
+        return aggregates.summarize(today);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void countCreatedInvoice() {
+        aggregates.createdAfterCommit(created);
+    }
+
+    private static Invoice invoice(String currency, LocalDate dueDate) {
+        Invoice invoice = new Invoice(10_000, currency, dueDate);
+        invoice.setStatus(Invoice.Status.PENDING);
+        return invoice;
+    }
+}
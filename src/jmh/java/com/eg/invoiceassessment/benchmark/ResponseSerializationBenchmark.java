@@ -0,0 +1,74 @@
+package com.eg.invoiceassessment.benchmark;
+
+import com.eg.invoiceassessment.dto.InvoicePage;
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.dto.ResponseDTO;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of a {@code ResponseDTO<InvoicePage>} body, using an {@code ObjectMapper} configured
+ * the way Spring Boot configures the application's one. {@code streaming} uses the application's hand-written
+ * serializers; {@code reflection} switches them off through mix-ins to get Jackson's default bean serializers.
+ * The body is written into a reused buffer, so run with {@code -prof gc} to see the allocation per operation
+ * of the serializers themselves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int items;
+
+    @Param({"reflection", "streaming"})
+    public String serializer;
+
+    private ObjectMapper objectMapper;
+    private ResponseDTO<InvoicePage> body;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setup() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if (serializer.equals("reflection")) {
+            builder.mixIn(InvoiceResponse.class, DefaultSerialization.class)
+                    .mixIn(InvoicePage.class, DefaultSerialization.class)
+                    .mixIn(ResponseDTO.class, DefaultSerialization.class);
+        }
+        objectMapper = builder.build();
+        List<InvoiceResponse> invoices = new ArrayList<>(items);
+        for (long id = 1; id <= items; id++) {
+            invoices.add(new InvoiceResponse(id, 10_000 + id, id % 4 == 0 ? 2_500 : 0, "USD",
+                    LocalDate.now().plusDays(id % 365), Invoice.Status.PENDING.name()));
+        }
+        body = new ResponseDTO<>();
+        body.setData(new InvoicePage(invoices, (long) items));
+        body.setMessage("SUCCESS");
+        out = new ByteArrayOutputStream(items * 128 + 64);
+    }
+
+    @Benchmark
+    public int serialize() throws IOException {
+        out.reset();
+        objectMapper.writeValue(out, body);
+        return out.size();
+    }
+
+    @JsonSerialize
+    private abstract static class DefaultSerialization {
+    }
+}
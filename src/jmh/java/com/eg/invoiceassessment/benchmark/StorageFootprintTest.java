@@ -0,0 +1,116 @@
+package com.eg.invoiceassessment.benchmark;
+
+import com.eg.invoiceassessment.dto.InvoiceFilter;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.repository.InvoiceRepository;
+import com.eg.invoiceassessment.service.InvoiceService;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Heap footprint of the {@code persistent} storage profile with a large file-backed H2 database.
+ * <p>
+ * Seeds {@code rows} invoices into a fresh database under {@code dir}, then reports the database file size and
+ * the heap in use after seeding, during a full export of every invoice and after an overdue ID-range scan.
+ * Arguments are {@code key=value} pairs: {@code rows} (10000000) and {@code dir} (target/footprint). Run it with
+ * a small {@code -Xmx} (the {@code footprint} execution uses 512 MB): finishing at all shows the heap stays
+ * bounded, because H2 keeps only its page cache in memory and spills large results to temporary files.
+ */
+public final class StorageFootprintTest {
+
+    private StorageFootprintTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = Arrays.stream(args)
+                .map(arg -> arg.split("=", 2))
+                .collect(Collectors.toMap(pair -> pair[0], pair -> pair[1]));
+        long rows = Long.parseLong(options.getOrDefault("rows", "10000000"));
+        Path dir = Path.of(options.getOrDefault("dir", "target/footprint")).toAbsolutePath();
+        FileSystemUtils.deleteRecursively(dir);
+
+        System.out.println(String.format("max heap %d MB, %,d rows", Runtime.getRuntime().maxMemory() >> 20, rows));
+        try (ConfigurableApplicationContext context = BenchmarkContext.start(
+                "--spring.profiles.active=persistent",
+                "--invoice.storage.path=" + dir.resolve("invoiceAssessment"))) {
+            long start = System.nanoTime();
+            BenchmarkContext.seedOverdueInvoices(context, rows);
+            context.getBean(JdbcTemplate.class).execute("checkpoint");
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.println(String.format("%-28s %10.1f s  (%,.0f rows/s)", "seed", seconds, rows / seconds));
+            System.out.println(String.format("%-28s %10d MB", "database file", directorySize(dir) >> 20));
+            System.out.println(String.format("%-28s %10d MB", "heap after seed (after GC)", usedHeapAfterGc() >> 20));
+
+            InvoiceService invoiceService = context.getBean(InvoiceService.class);
+            CountingOutputStream out = new CountingOutputStream();
+            resetPeakHeap();
+            start = System.nanoTime();
+            invoiceService.exportInvoices(new InvoiceFilter(null, null, null), out);
+            seconds = (System.nanoTime() - start) / 1e9;
+            System.out.println(String.format("%-28s %10.1f s  (%,d MB written)", "export all", seconds, out.count >> 20));
+            System.out.println(String.format("%-28s %10d MB", "peak heap during export", peakHeap() >> 20));
+
+            resetPeakHeap();
+            InvoiceRepository.IdRange range = context.getBean(InvoiceRepository.class)
+                    .findIdRange(LocalDate.now(), Invoice.Status.PENDING);
+            System.out.println(String.format("%-28s %10d MB  (ids %d..%d)", "peak heap during id range", peakHeap() >> 20,
+                    range.getMinId(), range.getMaxId()));
+            System.out.println(String.format("%-28s %10d MB", "heap at end (after GC)", usedHeapAfterGc() >> 20));
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return heapPools().mapToLong(pool -> pool.getUsage().getUsed()).sum();
+    }
+
+    private static void resetPeakHeap() {
+        System.gc();
+        heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    /**
+     * Sum of the per-pool peaks, so an upper bound on the peak of the whole heap.
+     */
+    private static long peakHeap() {
+        return heapPools().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+    }
+
+    private static Stream<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream().filter(pool -> pool.getType() == MemoryType.HEAP);
+    }
+
+    private static long directorySize(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.eg.invoiceassessment.benchmark;
+
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Closed-loop HTTP load test that compares platform-thread and virtual-thread request handling.
+ * <p>
+ * For each mode it boots the web application, seeds {@code rows} invoices and drives {@code concurrency}
+ * clients against {@code GET /api/v1/invoices/{id}} and {@code POST /api/v1/invoices/{id}/payments}, then
+ * prints throughput and latency percentiles. Arguments are {@code key=value} pairs:
+ * {@code concurrency} (400), {@code seconds} (20), {@code warmup} (5), {@code rows} (100000).
+ * Clients share the JVM and CPU with the server, so compare the modes with each other, not with production.
+ */
+public final class ThreadModeLoadTest {
+
+    private ThreadModeLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = Arrays.stream(args)
+                .map(arg -> arg.split("=", 2))
+                .collect(Collectors.toMap(pair -> pair[0], pair -> pair[1]));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "400"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("seconds", "20")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "5")));
+        long rows = Long.parseLong(options.getOrDefault("rows", "100000"));
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-9s %-5s %12s %10s %10s %10s %8s", "threads", "load", "req/s", "p50 ms", "p99 ms",
+                "max ms", "errors"));
+        for (String mode : List.of("platform", "virtual")) {
+            String[] appArgs = mode.equals("virtual")
+                    ? new String[]{"--spring.profiles.active=virtual"}
+                    : new String[0];
+            try (ConfigurableApplicationContext context = BenchmarkContext.startWeb(appArgs)) {
+                BenchmarkContext.seedOverdueInvoices(context, rows);
+                String base = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort()
+                        + "/api/v1/invoices/";
+
+                Function<Long, HttpRequest> get = id -> HttpRequest.newBuilder(URI.create(base + id)).GET().build();
+                Function<Long, HttpRequest> pay = id -> HttpRequest.newBuilder(URI.create(base + id + "/payments"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"amount\":1}"))
+                        .build();
+
+                for (Map.Entry<String, Function<Long, HttpRequest>> load : List.of(Map.entry("get", get), Map.entry("pay", pay))) {
+                    drive(load.getValue(), rows, concurrency, warmup);
+                    Result result = drive(load.getValue(), rows, concurrency, duration);
+                    report.add(String.format("%-9s %-5s %12.1f %10.2f %10.2f %10.2f %8d", mode, load.getKey(),
+                            result.throughput(), result.percentileMillis(0.50), result.percentileMillis(0.99),
+                            result.percentileMillis(1.0), result.errors()));
+                }
+            }
+        }
+        report.forEach(System.out::println);
+    }
+
+    private static Result drive(Function<Long, HttpRequest> request, long rows, int concurrency, Duration duration)
+            throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        try (HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Recorder>> futures = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(clients.submit(() -> {
+                    Recorder recorder = new Recorder();
+                    while (System.nanoTime() < deadline) {
+                        long id = ThreadLocalRandom.current().nextLong(1, rows + 1);
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request.apply(id), HttpResponse.BodyHandlers.discarding());
+                            recorder.record(System.nanoTime() - start, response.statusCode() >= 400);
+                        } catch (Exception e) {
+                            recorder.record(System.nanoTime() - start, true);
+                        }
+                    }
+                    return recorder;
+                }));
+            }
+
+            Recorder total = new Recorder();
+            for (Future<Recorder> future : futures) {
+                total.merge(future.get());
+            }
+            return total.result(duration);
+        }
+    }
+
+    private static final class Recorder {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        private void record(long nanos, boolean error) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            if (error) {
+                errors++;
+            }
+        }
+
+        private void merge(Recorder other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i], false);
+            }
+            errors += other.errors;
+        }
+
+        private Result result(Duration duration) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return new Result(sorted, count / (duration.toNanos() / 1e9), errors);
+        }
+    }
+
+    private record Result(long[] sortedLatencies, double throughput, long errors) {
+
+        double percentileMillis(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(sortedLatencies.length - 1, Math.ceil(percentile * sortedLatencies.length) - 1);
+            return sortedLatencies[Math.max(index, 0)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.eg.invoiceassessment.benchmark;
+
+import com.eg.invoiceassessment.dto.InvoicePage;
+import com.eg.invoiceassessment.dto.InvoiceRequest;
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.dto.ResponseDTO;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of the invoice payloads in each wire format the controller negotiates: JSON (the
+ * default), CBOR and Smile. Covers a single {@code GET /{id}} body, a 100-item list page as a client decodes
+ * it, and an {@code InvoiceRequest} as the server decodes it. Payload sizes are printed at setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectMapper objectMapper;
+    private JavaType invoiceBody;
+    private JavaType pageBody;
+
+    private ResponseDTO<InvoiceResponse> invoice;
+    private ResponseDTO<InvoicePage> page;
+    private InvoiceRequest request;
+
+    private byte[] encodedInvoice;
+    private byte[] encodedPage;
+    private byte[] encodedRequest;
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = switch (format) {
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        invoiceBody = objectMapper.getTypeFactory().constructParametricType(ResponseDTO.class, InvoiceResponse.class);
+        pageBody = objectMapper.getTypeFactory().constructParametricType(ResponseDTO.class, InvoicePage.class);
+
+        List<InvoiceResponse> invoices = new ArrayList<>(100);
+        for (long id = 1; id <= 100; id++) {
+            invoices.add(new InvoiceResponse(1_000_000 + id, 10_000 + id * 37, id % 4 == 0 ? 2_500 : 0, "USD",
+                    LocalDate.of(2025, 1, 1).plusDays(id % 365), Invoice.Status.PENDING.name()));
+        }
+        invoice = new ResponseDTO<>("SUCCESS", invoices.get(0));
+        page = new ResponseDTO<>("SUCCESS", new InvoicePage(invoices, 1_000_100L));
+        request = new InvoiceRequest(12_345L, "EUR", LocalDate.of(2025, 6, 30));
+
+        encodedInvoice = objectMapper.writeValueAsBytes(invoice);
+        encodedPage = objectMapper.writeValueAsBytes(page);
+        encodedRequest = objectMapper.writeValueAsBytes(request);
+        System.out.printf("%n%s payload bytes: invoice %d, page of 100 %d, request %d%n", format,
+                encodedInvoice.length, encodedPage.length, encodedRequest.length);
+    }
+
+    @Benchmark
+    public byte[] encodeInvoice() throws IOException {
+        return objectMapper.writeValueAsBytes(invoice);
+    }
+
+    @Benchmark
+    public Object decodeInvoice() throws IOException {
+        return objectMapper.readValue(encodedInvoice, invoiceBody);
+    }
+
+    @Benchmark
+    public byte[] encodePage() throws IOException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public Object decodePage() throws IOException {
+        return objectMapper.readValue(encodedPage, pageBody);
+    }
+
+    @Benchmark
+    public Object decodeRequest() throws IOException {
+        return objectMapper.readValue(encodedRequest, InvoiceRequest.class);
+    }
+}
@@ -0,0 +1,187 @@
+package com.eg.invoiceassessment.cache;
+
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.transaction.AfterCommit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of {@link InvoiceResponse} by invoice ID.
+ * <p>
+ * Writers invalidate entries after their transaction commits. A load that was running while any
+ * invalidation happened is returned to its caller but not stored, so a value read before a commit can never
+ * be cached after it. The database is queried outside of any cache lock.
+ * <p>
+ * Concurrent misses on the same ID share one load: the first caller runs it and the others wait for its result,
+ * whether they asked for that ID alone or as part of a batch. An invalidation also detaches the loads in flight
+ * for its IDs, so a caller arriving after a commit never joins a load that started before it.
+ * Hit, miss and eviction counts are published as {@code cache.*} meters tagged {@code cache=invoices}, and the
+ * misses served by another caller's load as {@code cache.coalesced}.
+ */
+@Component
+public class InvoiceCache {
+
+    private final Cache<Long, InvoiceResponse> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+    // A null result means the invoice does not exist
+    private final ConcurrentHashMap<Long, CompletableFuture<InvoiceResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public InvoiceCache(@Value("${invoice.cache.maximum-size:10000}") long maximumSize,
+                        @Value("${invoice.cache.expire-after-write:PT5M}") Duration expireAfterWrite,
+                        MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "invoices");
+        this.coalesced = Counter.builder("cache.coalesced")
+                .description("Cache misses answered by a load another caller had in flight")
+                .tag("cache", "invoices")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the invoice, or {@code null} if {@code loader} finds none.
+     */
+    public InvoiceResponse get(Long id, Function<Long, InvoiceResponse> loader) {
+        InvoiceResponse cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<InvoiceResponse> load = new CompletableFuture<>();
+        CompletableFuture<InvoiceResponse> running = inFlight.putIfAbsent(id, load);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+        try {
+            long seen = invalidations.get();
+            InvoiceResponse loaded = loader.apply(id);
+            store(id, loaded, seen);
+            load.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, load);
+        }
+    }
+
+    /**
+     * Returns the invoices found among {@code ids} by ID. The IDs that are neither cached nor being loaded by
+     * another caller are passed to {@code loader} in one call.
+     */
+    public Map<Long, InvoiceResponse> getAll(Collection<Long> ids,
+                                             Function<Collection<Long>, Map<Long, InvoiceResponse>> loader) {
+        Map<Long, InvoiceResponse> found = new HashMap<>();
+        Map<Long, CompletableFuture<InvoiceResponse>> loads = new HashMap<>();
+        Map<Long, CompletableFuture<InvoiceResponse>> joined = new HashMap<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            InvoiceResponse cached = cache.getIfPresent(id);
+            if (cached != null) {
+                found.put(id, cached);
+                continue;
+            }
+            CompletableFuture<InvoiceResponse> load = new CompletableFuture<>();
+            CompletableFuture<InvoiceResponse> running = inFlight.putIfAbsent(id, load);
+            if (running == null) {
+                loads.put(id, load);
+            } else {
+                joined.put(id, running);
+            }
+        }
+
+        // Our own loads complete before we wait for anyone else's, so two batches can never wait for each other
+        if (!loads.isEmpty()) {
+            try {
+                long seen = invalidations.get();
+                Map<Long, InvoiceResponse> loaded = loader.apply(loads.keySet());
+                loads.forEach((id, load) -> {
+                    InvoiceResponse invoice = loaded.get(id);
+                    store(id, invoice, seen);
+                    load.complete(invoice);
+                    if (invoice != null) {
+                        found.put(id, invoice);
+                    }
+                });
+            } catch (RuntimeException e) {
+                loads.values().forEach(load -> load.completeExceptionally(e));
+                throw e;
+            } finally {
+                loads.forEach(inFlight::remove);
+            }
+        }
+
+        coalesced.increment(joined.size());
+        joined.forEach((id, running) -> {
+            InvoiceResponse invoice = await(running);
+            if (invoice != null) {
+                found.put(id, invoice);
+            }
+        });
+        return found;
+    }
+
+    private void store(Long id, InvoiceResponse loaded, long seen) {
+        if (loaded == null) {
+            return;
+        }
+        // The check runs under the entry's lock, which invalidate() also takes, so it cannot interleave with one
+        cache.asMap().compute(id, (key, current) -> invalidations.get() == seen ? loaded : current);
+    }
+
+    private static InvoiceResponse await(CompletableFuture<InvoiceResponse> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stores a freshly written invoice once the current transaction commits.
+     */
+    public void putAfterCommit(InvoiceResponse invoice) {
+        AfterCommit.run(() -> cache.put(invoice.id(), invoice));
+    }
+
+    public void invalidateAfterCommit(Long id) {
+        invalidateAfterCommit(List.of(id));
+    }
+
+    /**
+     * Drops the given entries once the current transaction commits, or right away outside a transaction.
+     */
+    public void invalidateAfterCommit(Collection<Long> ids) {
+        AfterCommit.run(() -> {
+            invalidations.incrementAndGet();
+            ids.forEach(inFlight::remove);
+            cache.invalidateAll(ids);
+        });
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.eg.invoiceassessment.config;
+
+import com.eg.invoiceassessment.metrics.InvoiceMetrics;
+import com.eg.invoiceassessment.ratelimit.AdmissionFilter;
+import com.eg.invoiceassessment.ratelimit.AdmissionProperties;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+/**
+ * Registers the per-client rate limits and in-flight caps of {@code invoice.admission}, unless
+ * {@code invoice.admission.enabled} is {@code false}.
+ */
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class AdmissionConfig {
+
+    @Bean
+    public FilterRegistrationBean<AdmissionFilter> admissionFilter(
+            AdmissionProperties properties, InvoiceMetrics invoiceMetrics,
+            @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver) {
+        FilterRegistrationBean<AdmissionFilter> registration = new FilterRegistrationBean<>(
+                new AdmissionFilter(properties, invoiceMetrics, exceptionResolver));
+        registration.setOrder(AdmissionFilter.ORDER);
+        registration.setEnabled(properties.enabled());
+        return registration;
+    }
+}
@@ -0,0 +1,77 @@
+package com.eg.invoiceassessment.config;
+
+import com.eg.invoiceassessment.entity.Invoice;
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Hibernate second-level cache for {@link Invoice} entities, switched on by {@code invoice.entity-cache.enabled}.
+ * The region lives in a local Ehcache, reached through JCache, with {@code heap-entries} on the heap and, if
+ * {@code off-heap-size} is set, a larger off-heap tier below it. Entries expire {@code time-to-live} after they
+ * were written.
+ * <p>
+ * Entity loads by ID ({@code findById}, {@code getInvoiceById}) are served from the cache, and entity updates
+ * replace their entry when the transaction commits. Queries are not cached and always go to the database,
+ * locking reads included. The bulk {@code UPDATE}s of the overdue runs make Hibernate evict the whole region
+ * after they commit, so nothing can be read stale from it. Hit, miss and put counts are published as
+ * {@code hibernate.second.level.cache.*} meters tagged with the region.
+ */
+@Configuration
+@ConditionalOnProperty(name = "invoice.entity-cache.enabled", havingValue = "true")
+public class EntityCacheConfig {
+
+    @Bean
+    public CacheManager entityCacheManager(@Value("${invoice.entity-cache.heap-entries:100000}") long heapEntries,
+                                           @Value("${invoice.entity-cache.off-heap-size:0MB}") DataSize offHeapSize,
+                                           @Value("${invoice.entity-cache.time-to-live:PT30M}") Duration timeToLive) {
+        ResourcePoolsBuilder pools = ResourcePoolsBuilder.heap(heapEntries);
+        if (offHeapSize.toMegabytes() > 0) {
+            pools = pools.offheap(offHeapSize.toMegabytes(), MemoryUnit.MB);
+        }
+        CacheConfiguration<Object, Object> invoices = CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, pools)
+                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(timeToLive))
+                .build();
+
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(
+                EhcacheCachingProvider.class.getName(), getClass().getClassLoader());
+        // A URI of its own, so that application contexts in the same JVM never share the cache
+        return provider.getCacheManager(URI.create("urn:invoice-entity-cache:" + UUID.randomUUID()),
+                new DefaultConfiguration(Map.of(Invoice.CACHE_REGION, invoices), getClass().getClassLoader()));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheProperties(CacheManager entityCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            // Hibernate closes the manager when it shuts down
+            properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+            // Regions are only ever the ones configured above, never created with default (unbounded) settings
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            // Statistics would otherwise also log every session's metrics at INFO when it closes
+            properties.put(AvailableSettings.LOG_SESSION_METRICS, false);
+        };
+    }
+}
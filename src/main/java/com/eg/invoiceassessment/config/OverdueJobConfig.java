@@ -0,0 +1,32 @@
+package com.eg.invoiceassessment.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class OverdueJobConfig {
+
+    /**
+     * Bounded pool for background overdue runs. Submissions beyond {@code queue-capacity} are rejected
+     * instead of piling up. With {@code spring.threads.virtual.enabled} the workers are virtual threads, but
+     * the pool still caps how many runs execute at once.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor overdueJobExecutor(@Value("${invoice.overdue.jobs.pool-size:2}") int poolSize,
+                                                     @Value("${invoice.overdue.jobs.queue-capacity:10}") int queueCapacity,
+                                                     @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("overdue-job-", 1).factory());
+        }
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("overdue-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -1,12 +1,15 @@
 package com.eg.invoiceassessment.controller;
 
 import com.eg.invoiceassessment.dto.*;
+import com.eg.invoiceassessment.entity.Invoice;
 import com.eg.invoiceassessment.exception.ErrorResponse;
 import com.eg.invoiceassessment.exception.InvalidRequestPayloadException;
 import com.eg.invoiceassessment.exception.ResourceNotFoundException;
+import com.eg.invoiceassessment.idempotency.IdempotencyFilter;
 import com.eg.invoiceassessment.service.InvoiceService;
 import io.swagger.v3.oas.annotations.Operation;
-import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -14,11 +17,20 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1/invoices")
@@ -27,6 +39,17 @@ public class InvoiceController {
     private static final Logger logger = LoggerFactory.getLogger(InvoiceController.class);
     private final InvoiceService invoiceService;
     private static final String SUCCESS = "SUCCESS";
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Value("${invoice.pagination.default-size:100}")
+    private int defaultPageSize = 100;
+
+    @Value("${invoice.pagination.max-size:1000}")
+    private int maxPageSize = 1000;
+
+    @Value("${invoice.changes.max-wait:PT30S}")
+    private Duration maxChangesWait = Duration.ofSeconds(30);
+
     public InvoiceController(InvoiceService invoiceService) {
         this.invoiceService = invoiceService;
     }
@@ -56,11 +79,19 @@ public class InvoiceController {
 
     @Operation(
             summary = "Create a new Invoice",
-            description = "Creates a new invoice with amount and due date. Returns the created invoice ID.",
+            description = "Creates a new invoice with an amount in minor units (e.g. cents), an ISO 4217 currency (default USD) and a due date. Returns the created invoice ID.",
+            parameters = @Parameter(name = IdempotencyFilter.HEADER, in = ParameterIn.HEADER,
+                    description = "Makes the request safe to retry: repeats with the same key return the first response"),
             responses = {
                     @ApiResponse(responseCode = "201", description = "Invoice created successfully",
                             content = @Content(schema = @Schema(implementation = ResponseDTO.class))),
                     @ApiResponse(responseCode = "400", description = "Invalid input payload",
+                            content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+                    @ApiResponse(responseCode = "409", description = "A request with the same Idempotency-Key is in progress",
+                            content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+                    @ApiResponse(responseCode = "422", description = "Idempotency-Key reused for a different request",
+                            content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+                    @ApiResponse(responseCode = "429", description = "Rate or concurrency limit exceeded; see Retry-After",
                             content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
             }
     )
@@ -70,6 +101,10 @@ public class InvoiceController {
             logger.warn("Bad request: Amount or Due Date is null");
             throw new InvalidRequestPayloadException("Bad request: Amount or Due Date is null");
         }
+        if (!request.hasValidCurrency()) {
+            logger.warn("Bad request: unknown currency {}", request.currency());
+            throw new InvalidRequestPayloadException("Bad request: unknown currency " + request.currency());
+        }
         InvoiceResponse createdInvoice = invoiceService.createInvoice(request);
         logger.info("Invoice created with ID: {}", createdInvoice.id());
 
@@ -81,44 +116,176 @@ public class InvoiceController {
     }
 
 
-    // Get all invoices
     @Operation(
-            summary = "Get all invoices",
-            description = "Returns a list of all invoices. Throws ResourceNotFoundException if none are found.",
+            summary = "Create invoices in bulk",
+            description = "Accepts a JSON array or an NDJSON stream of invoices. Valid rows are inserted in chunks; "
+                    + "returns the created invoice IDs and the rows that were rejected.",
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "At least one invoice created",
+                            content = @Content(schema = @Schema(implementation = ResponseDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "No row could be created",
+                            content = @Content(schema = @Schema(implementation = ResponseDTO.class)))
+            }
+    )
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    public ResponseEntity<ResponseDTO<InvoiceBatchResult>> createInvoices(InputStream body) {
+        InvoiceBatchResult result = invoiceService.createInvoices(body);
+        logger.info("Invoice batch created {} invoices, rejected {} rows", result.createdIds().size(), result.errors().size());
+
+        final ResponseDTO<InvoiceBatchResult> resp = new ResponseDTO<>();
+        resp.setData(result);
+        if (result.createdIds().isEmpty()) {
+            logger.warn("Bad request: no invoice in the batch could be created");
+            resp.setMessage("No invoices created");
+            return ResponseEntity.badRequest().body(resp);
+        }
+        resp.setMessage(SUCCESS);
+        return new ResponseEntity<>(resp, HttpStatus.CREATED);
+    }
+
+
+    // Get invoices, one keyset page at a time
+    @Operation(
+            summary = "Get invoices",
+            description = "Returns one page of invoices ordered by ID. Pass the returned nextCursor as cursor to fetch the next page. "
+                    + "Throws ResourceNotFoundException if the first page is empty.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Invoices retrieved successfully",
-                            content = @Content(array = @ArraySchema(schema = @Schema(implementation = ResponseDTO.class)))),
+                            content = @Content(schema = @Schema(implementation = ResponseDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid paging or filter parameters",
+                            content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
                     @ApiResponse(responseCode = "404", description = "No invoices found",
                             content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
             }
     )
     @GetMapping
-    public ResponseEntity<ResponseDTO<List<InvoiceResponse>>> getAllInvoices() {
-        List<InvoiceResponse> invoices = invoiceService.getAllInvoices();
-        if (invoices.isEmpty()) {
+    public ResponseEntity<ResponseDTO<InvoicePage>> getAllInvoices(@RequestParam(required = false) Long cursor,
+                                                                   @RequestParam(required = false) Integer size,
+                                                                   @RequestParam(required = false) String status,
+                                                                   @RequestParam(required = false) LocalDate dueFrom,
+                                                                   @RequestParam(required = false) LocalDate dueTo) {
+        int pageSize = size == null ? defaultPageSize : size;
+        if (pageSize <= 0 || (cursor != null && cursor < 0)) {
+            logger.warn("Invalid paging parameters: cursor = {}, size = {}", cursor, size);
+            throw new InvalidRequestPayloadException("Invalid paging parameters");
+        }
+        InvoicePage page = invoiceService.getInvoices(cursor, Math.min(pageSize, maxPageSize), toFilter(status, dueFrom, dueTo));
+        if (cursor == null && page.items().isEmpty()) {
             logger.warn("No invoices found.");
 
             throw new ResourceNotFoundException("No Invoices found");
         }
 
-        final ResponseDTO<List<InvoiceResponse>> resp = new ResponseDTO<>();
-        resp.setData(invoices);
+        final ResponseDTO<InvoicePage> resp = new ResponseDTO<>();
+        resp.setData(page);
         resp.setMessage(SUCCESS);
         return ResponseEntity.ok(resp);
     }
 
 
+    // Get several invoices by ID in one request
+    @Operation(
+            summary = "Get invoices by ID",
+            description = "Returns the invoices with the given comma-separated IDs in request order, at most the maximum page size. "
+                    + "Unknown IDs are left out; nextCursor is always null.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Invoices retrieved successfully",
+                            content = @Content(schema = @Schema(implementation = ResponseDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid or too many IDs",
+                            content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+                    @ApiResponse(responseCode = "404", description = "None of the invoices found",
+                            content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+            }
+    )
+    @GetMapping(params = "ids")
+    public ResponseEntity<ResponseDTO<InvoicePage>> getInvoicesByIds(@RequestParam String ids) {
+        List<Long> invoiceIds = parseIds(ids);
+        List<InvoiceResponse> invoices = invoiceService.getInvoicesByIds(invoiceIds);
+        if (invoices.isEmpty()) {
+            logger.warn("None of the {} requested invoices found.", invoiceIds.size());
+            throw new ResourceNotFoundException("No Invoices found");
+        }
+
+        final ResponseDTO<InvoicePage> resp = new ResponseDTO<>();
+        resp.setData(new InvoicePage(invoices, null));
+        resp.setMessage(SUCCESS);
+        return ResponseEntity.ok(resp);
+    }
+
+    private List<Long> parseIds(String ids) {
+        List<Long> invoiceIds = new ArrayList<>();
+        for (String id : ids.split(",")) {
+            try {
+                invoiceIds.add(Long.parseLong(id.strip()));
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid invoice ID: {}", id);
+                throw new InvalidRequestPayloadException("Invalid invoice ID: " + id);
+            }
+            if (invoiceIds.size() > maxPageSize) {
+                logger.warn("Too many invoice IDs requested");
+                throw new InvalidRequestPayloadException("At most " + maxPageSize + " IDs per request");
+            }
+        }
+        return invoiceIds;
+    }
+
+
+    // Export all matching invoices as NDJSON
+    @Operation(
+            summary = "Export invoices",
+            description = "Streams every matching invoice as newline-delimited JSON. Memory use stays flat regardless of row count.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Export streamed successfully",
+                            content = @Content(mediaType = NDJSON, schema = @Schema(implementation = InvoiceResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid filter parameters",
+                            content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+            }
+    )
+    @GetMapping(value = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportInvoices(@RequestParam(required = false) String status,
+                                                                @RequestParam(required = false) LocalDate dueFrom,
+                                                                @RequestParam(required = false) LocalDate dueTo) {
+        InvoiceFilter filter = toFilter(status, dueFrom, dueTo);
+        StreamingResponseBody body = out -> invoiceService.exportInvoices(filter, out);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+
+    private InvoiceFilter toFilter(String status, LocalDate dueFrom, LocalDate dueTo) {
+        Invoice.Status invoiceStatus = null;
+        if (status != null) {
+            try {
+                invoiceStatus = Invoice.Status.valueOf(status.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                logger.warn("Invalid status filter: {}", status);
+                throw new InvalidRequestPayloadException("Invalid status: " + status);
+            }
+        }
+        if (dueFrom != null && dueTo != null && dueFrom.isAfter(dueTo)) {
+            logger.warn("Invalid due date range: {} - {}", dueFrom, dueTo);
+            throw new InvalidRequestPayloadException("dueFrom must not be after dueTo");
+        }
+        return new InvoiceFilter(invoiceStatus, dueFrom, dueTo);
+    }
 
 
     @Operation(
             summary = "Process payment for an invoice",
             description = "Processes a payment for the given invoice ID and returns the updated invoice.",
+            parameters = @Parameter(name = IdempotencyFilter.HEADER, in = ParameterIn.HEADER,
+                    description = "Makes the request safe to retry: repeats with the same key return the first response"),
             responses = {
                     @ApiResponse(responseCode = "200", description = "Payment processed successfully",
                             content = @Content(schema = @Schema(implementation = ResponseDTO.class))),
-                    @ApiResponse(responseCode = "400", description = "Invalid payment amount",
+                    @ApiResponse(responseCode = "400", description = "Invalid payment amount, or the invoice is no longer pending",
                             content = @Content),
                     @ApiResponse(responseCode = "404", description = "Invoice not found",
+                            content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+                    @ApiResponse(responseCode = "409", description = "A request with the same Idempotency-Key is in progress",
+                            content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+                    @ApiResponse(responseCode = "422", description = "Idempotency-Key reused for a different request",
+                            content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+                    @ApiResponse(responseCode = "429", description = "Rate or concurrency limit exceeded; see Retry-After",
                             content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
             }
     )
@@ -140,31 +307,169 @@ public class InvoiceController {
     }
 
 
+    @Operation(
+            summary = "Apply payments in bulk",
+            description = "Accepts a JSON array or an NDJSON stream of {invoiceId, amount} rows, e.g. from a remittance file. "
+                    + "Payments are grouped by invoice and applied in chunks under the same rules as single payments; "
+                    + "returns the outcome of every row in request order.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "At least one payment applied",
+                            content = @Content(schema = @Schema(implementation = ResponseDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "Malformed or oversized body, or no payment could be applied",
+                            content = @Content(schema = @Schema(implementation = ResponseDTO.class)))
+            }
+    )
+    @PostMapping(value = "/payments/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    public ResponseEntity<ResponseDTO<PaymentBatchResult>> applyPayments(InputStream body) {
+        PaymentBatchResult result = invoiceService.applyPayments(body);
+        logger.info("Payment batch applied {} payments, rejected {}", result.applied(), result.rejected());
+
+        final ResponseDTO<PaymentBatchResult> resp = new ResponseDTO<>();
+        resp.setData(result);
+        if (result.applied() == 0) {
+            logger.warn("Bad request: no payment in the batch could be applied");
+            resp.setMessage("No payments applied");
+            return ResponseEntity.badRequest().body(resp);
+        }
+        resp.setMessage(SUCCESS);
+        return ResponseEntity.ok(resp);
+    }
+
+
+    @Operation(
+            summary = "Get payments of an invoice",
+            description = "Returns one page of the invoice's payments, oldest first. Pass the returned nextCursor as cursor to fetch the next page.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Payments retrieved successfully",
+                            content = @Content(schema = @Schema(implementation = ResponseDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid paging parameters",
+                            content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+                    @ApiResponse(responseCode = "404", description = "Invoice not found",
+                            content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+            }
+    )
+    @GetMapping("/{id}/payments")
+    public ResponseEntity<ResponseDTO<PaymentPage>> getPayments(@PathVariable Long id,
+                                                                @RequestParam(required = false) Long cursor,
+                                                                @RequestParam(required = false) Integer size) {
+        int pageSize = size == null ? defaultPageSize : size;
+        if (pageSize <= 0 || (cursor != null && cursor < 0)) {
+            logger.warn("Invalid paging parameters: cursor = {}, size = {}", cursor, size);
+            throw new InvalidRequestPayloadException("Invalid paging parameters");
+        }
+
+        final ResponseDTO<PaymentPage> resp = new ResponseDTO<>();
+        resp.setData(invoiceService.getPayments(id, cursor, Math.min(pageSize, maxPageSize)));
+        resp.setMessage(SUCCESS);
+        return ResponseEntity.ok(resp);
+    }
+
+
+    // Incremental change feed, fed by the outbox
+    @Operation(
+            summary = "Get invoice changes",
+            description = "Returns invoice events (CREATED, PAYMENT_APPLIED, STATUS_CHANGED) after the given offset, oldest first. "
+                    + "With wait > 0 the call long-polls: it returns as soon as new events arrive, or with no events after wait seconds. "
+                    + "Pass the returned nextOffset as since to continue.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Changes retrieved successfully",
+                            content = @Content(schema = @Schema(implementation = ResponseDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid offset, size or wait",
+                            content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+            }
+    )
+    @GetMapping("/changes")
+    public CompletableFuture<ResponseEntity<ResponseDTO<InvoiceChangePage>>> getChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(required = false) Integer size,
+            @Parameter(description = "Seconds to wait for new events when there are none yet")
+            @RequestParam(defaultValue = "0") int wait) {
+        int pageSize = size == null ? defaultPageSize : size;
+        if (since < 0 || pageSize <= 0 || wait < 0 || wait > maxChangesWait.toSeconds()) {
+            logger.warn("Invalid change feed parameters: since = {}, size = {}, wait = {}", since, size, wait);
+            throw new InvalidRequestPayloadException("Invalid change feed parameters");
+        }
+
+        return invoiceService.getChanges(since, Math.min(pageSize, maxPageSize), Duration.ofSeconds(wait))
+                .thenApply(page -> {
+                    final ResponseDTO<InvoiceChangePage> resp = new ResponseDTO<>();
+                    resp.setData(page);
+                    resp.setMessage(SUCCESS);
+                    return ResponseEntity.ok(resp);
+                });
+    }
+
+
+    @Operation(
+            summary = "Get receivables summary",
+            description = "Returns outstanding, overdue and paid amounts per currency, with counts and amounts by status "
+                    + "and pending invoices by due-date bucket. Served from totals kept in memory, so it may lag writes "
+                    + "of other instances until the next consistency check.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Summary retrieved successfully",
+                            content = @Content(schema = @Schema(implementation = ResponseDTO.class))),
+                    @ApiResponse(responseCode = "503", description = "Totals are still being built at startup",
+                            content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+            }
+    )
+    @GetMapping("/summary")
+    public ResponseEntity<ResponseDTO<ReceivablesSummary>> getSummary() {
+        final ResponseDTO<ReceivablesSummary> resp = new ResponseDTO<>();
+        resp.setData(invoiceService.getSummary());
+        resp.setMessage(SUCCESS);
+        return ResponseEntity.ok(resp);
+    }
+
+
     // Process overdue invoices
     @Operation(
             summary = "Process overdue invoices",
-            description = "Applies late fees to overdue invoices based on the provided late fee and overdue days.",
+            description = "Starts a background job that applies late fees to overdue invoices based on the provided late fee and overdue days. "
+                    + "If a job for today's cutoff is already running, that job is returned instead.",
             responses = {
-                    @ApiResponse(responseCode = "200", description = "Overdue invoices processed successfully",
+                    @ApiResponse(responseCode = "202", description = "Overdue processing job accepted",
                             content = @Content(schema = @Schema(implementation = ResponseDTO.class))),
                     @ApiResponse(responseCode = "400", description = "Invalid request parameters",
+                            content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+                    @ApiResponse(responseCode = "503", description = "Job queue is full",
                             content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
             }
     )
     @PostMapping("/process-overdue")
-    public ResponseEntity<ResponseDTO<String>> processOverdueInvoices(@RequestBody ProcessOverdueInvoiceRequest request) {
-        final ResponseDTO<String> resp = new ResponseDTO<>();
+    public ResponseEntity<ResponseDTO<OverdueJobStatus>> processOverdueInvoices(@RequestBody ProcessOverdueInvoiceRequest request) {
+        final ResponseDTO<OverdueJobStatus> resp = new ResponseDTO<>();
 
         if (request.lateFees() == null || request.lateFees() <= 0 || request.overduedays() <= 0) {
             logger.warn("Invalid overdue request parameters: late fee = {}, overdue days = {}", request.lateFees(), request.overduedays());
             throw new InvalidRequestPayloadException("Invalid payload");
 
         }
-        invoiceService.processOverdueInvoices(request);
-        logger.info("Overdue invoices processed with late fee: {} and overdue days: {}", request.lateFees(), request.overduedays());
+        OverdueJobStatus job = invoiceService.submitOverdueJob(request);
+        logger.info("Overdue job {} accepted with late fee: {} and overdue days: {}", job.jobId(), request.lateFees(), request.overduedays());
 
-        resp.setData("Overdue invoices processed successfully");
+        resp.setData(job);
         resp.setMessage(SUCCESS);
-        return ResponseEntity.ok(resp); // 200 OK
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/invoices/process-overdue/jobs/" + job.jobId()))
+                .body(resp); // 202 Accepted
+    }
+
+
+    @Operation(
+            summary = "Get overdue processing job",
+            description = "Returns the progress or final outcome of an overdue processing job.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Job status fetched successfully",
+                            content = @Content(schema = @Schema(implementation = ResponseDTO.class))),
+                    @ApiResponse(responseCode = "404", description = "Job not found",
+                            content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+            }
+    )
+    @GetMapping("/process-overdue/jobs/{jobId}")
+    public ResponseEntity<ResponseDTO<OverdueJobStatus>> getOverdueJob(@PathVariable String jobId) {
+        final ResponseDTO<OverdueJobStatus> resp = new ResponseDTO<>();
+        resp.setData(invoiceService.getOverdueJob(jobId));
+        resp.setMessage(SUCCESS);
+        return ResponseEntity.ok(resp);
     }
 }
@@ -0,0 +1,7 @@
+package com.eg.invoiceassessment.dto;
+
+/**
+ * Why one row of a batch request was rejected. {@code row} is the zero-based position in the request.
+ */
+public record BatchRowError(long row, String message) {
+}
@@ -0,0 +1,6 @@
+package com.eg.invoiceassessment.dto;
+
+import java.util.List;
+
+public record InvoiceBatchResult(List<Long> createdIds, List<BatchRowError> errors) {
+}
@@ -0,0 +1,10 @@
+package com.eg.invoiceassessment.dto;
+
+import java.util.List;
+
+/**
+ * Events after the requested offset, oldest first. {@code nextOffset} is the {@code since} for the next call;
+ * it equals the requested offset when nothing new arrived before the wait ran out.
+ */
+public record InvoiceChangePage(List<InvoiceEventResponse> events, long nextOffset) {
+}
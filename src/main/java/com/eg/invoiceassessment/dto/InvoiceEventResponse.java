@@ -0,0 +1,20 @@
+package com.eg.invoiceassessment.dto;
+
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.entity.InvoiceEvent;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the change feed. {@code offset} increases with every event; pass the last one seen as
+ * {@code since} to continue. Amounts are in minor units of the invoice currency.
+ */
+public record InvoiceEventResponse(long offset, Long invoiceId, String type, String status, Long amount,
+                                   Long relatedInvoiceId, LocalDateTime occurredAt) {
+
+    // Used by the JPQL constructor expression in InvoiceEventRepository
+    public InvoiceEventResponse(long offset, Long invoiceId, InvoiceEvent.Type type, Invoice.Status status, Long amount,
+                                Long relatedInvoiceId, LocalDateTime occurredAt) {
+        this(offset, invoiceId, type.name(), status.name(), amount, relatedInvoiceId, occurredAt);
+    }
+}
@@ -0,0 +1,11 @@
+package com.eg.invoiceassessment.dto;
+
+import com.eg.invoiceassessment.entity.Invoice;
+
+import java.time.LocalDate;
+
+/**
+ * Optional filters for invoice listing and export. A {@code null} component means "no restriction".
+ */
+public record InvoiceFilter(Invoice.Status status, LocalDate dueFrom, LocalDate dueTo) {
+}
@@ -0,0 +1,14 @@
+package com.eg.invoiceassessment.dto;
+
+import com.eg.invoiceassessment.json.InvoicePageSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.List;
+
+/**
+ * One keyset page of invoices. {@code nextCursor} is the id to pass as {@code cursor} for the next page,
+ * or {@code null} when there are no more rows.
+ */
+@JsonSerialize(using = InvoicePageSerializer.class)
+public record InvoicePage(List<InvoiceResponse> items, Long nextCursor) {
+}
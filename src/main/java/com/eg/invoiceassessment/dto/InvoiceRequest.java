@@ -1,11 +1,25 @@
 package com.eg.invoiceassessment.dto;
 
-import com.eg.invoiceassessment.entity.Invoice;
-import lombok.Data;
-
 import java.time.LocalDate;
+import java.util.Currency;
+
 
+/**
+ * {@code amount} is in minor units of {@code currency} (e.g. cents). {@code currency} is an ISO 4217 code and
+ * defaults to {@code USD} when omitted.
+ */
+public record InvoiceRequest(Long amount, String currency, LocalDate dueDate) {
 
-public record InvoiceRequest(Double amount, LocalDate dueDate) {
+    public boolean hasValidCurrency() {
+        if (currency == null) {
+            return true;
+        }
+        try {
+            Currency.getInstance(currency.toUpperCase());
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
 }
 
@@ -1,8 +1,19 @@
 package com.eg.invoiceassessment.dto;
 
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.json.InvoiceResponseSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
 import java.time.LocalDate;
 
-public record InvoiceResponse(Long id, Double amount, Double paidAmount,
+// Amounts are in minor units of currency
+@JsonSerialize(using = InvoiceResponseSerializer.class)
+public record InvoiceResponse(Long id, long amount, long paidAmount, String currency,
                               LocalDate duedate, String status) {
+
+    // Used by the JPQL constructor expressions in InvoiceRepository
+    public InvoiceResponse(Long id, long amount, long paidAmount, String currency, LocalDate duedate, Invoice.Status status) {
+        this(id, amount, paidAmount, currency, duedate, status.name());
+    }
 }
 
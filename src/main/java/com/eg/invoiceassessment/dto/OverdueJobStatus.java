@@ -0,0 +1,8 @@
+package com.eg.invoiceassessment.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public record OverdueJobStatus(String jobId, LocalDate cutoffDate, String state, long rowsScanned, long rowsUpdated,
+                               double rowsPerSecond, LocalDateTime startedAt, LocalDateTime finishedAt, String error) {
+}
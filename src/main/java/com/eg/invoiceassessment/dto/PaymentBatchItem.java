@@ -0,0 +1,5 @@
+package com.eg.invoiceassessment.dto;
+
+// One row of a bulk payment request; amount is in minor units of the invoice currency
+public record PaymentBatchItem(Long invoiceId, Long amount) {
+}
@@ -0,0 +1,21 @@
+package com.eg.invoiceassessment.dto;
+
+/**
+ * What happened to one row of a bulk payment request. {@code row} is the zero-based position in the request;
+ * {@code status} and {@code paidAmount} are the invoice's right after an applied payment, otherwise null.
+ */
+public record PaymentBatchItemResult(long row, Long invoiceId, Outcome outcome, String status, Long paidAmount,
+                                     String message) {
+
+    public enum Outcome {
+        APPLIED, INVALID, NOT_FOUND, EXCEEDS_BALANCE, CLOSED, FAILED
+    }
+
+    public static PaymentBatchItemResult applied(long row, Long invoiceId, String status, long paidAmount) {
+        return new PaymentBatchItemResult(row, invoiceId, Outcome.APPLIED, status, paidAmount, null);
+    }
+
+    public static PaymentBatchItemResult rejected(long row, Long invoiceId, Outcome outcome, String message) {
+        return new PaymentBatchItemResult(row, invoiceId, outcome, null, null, message);
+    }
+}
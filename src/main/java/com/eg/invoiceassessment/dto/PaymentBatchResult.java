@@ -0,0 +1,9 @@
+package com.eg.invoiceassessment.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk payment request, one item per request row and in request order.
+ */
+public record PaymentBatchResult(int applied, int rejected, List<PaymentBatchItemResult> items) {
+}
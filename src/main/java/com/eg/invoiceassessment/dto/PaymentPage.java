@@ -0,0 +1,9 @@
+package com.eg.invoiceassessment.dto;
+
+import java.util.List;
+
+/**
+ * One keyset page of an invoice's payments, oldest first. {@code nextCursor} works as in {@link InvoicePage}.
+ */
+public record PaymentPage(List<PaymentResponse> items, Long nextCursor) {
+}
@@ -1,4 +1,5 @@
 package com.eg.invoiceassessment.dto;
 
-public record PaymentRequest(Double amount) {
+// amount is in minor units of the invoice currency
+public record PaymentRequest(Long amount) {
 }
@@ -0,0 +1,6 @@
+package com.eg.invoiceassessment.dto;
+
+import java.time.LocalDateTime;
+
+public record PaymentResponse(Long id, Long invoiceId, long amount, LocalDateTime paidAt) {
+}
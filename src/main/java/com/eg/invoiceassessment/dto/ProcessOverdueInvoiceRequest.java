@@ -1,4 +1,5 @@
 package com.eg.invoiceassessment.dto;
 
-public record ProcessOverdueInvoiceRequest(Double lateFees, int overduedays) {
+// lateFees is in minor units of each invoice's currency
+public record ProcessOverdueInvoiceRequest(Long lateFees, int overduedays) {
 }
@@ -0,0 +1,23 @@
+package com.eg.invoiceassessment.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receivables per currency as of {@code asOf}. Amounts are in minor units; {@code outstanding} and {@code overdue}
+ * cover PENDING invoices only, {@code paid} every payment received. {@code byDueDate} splits the PENDING invoices
+ * into aging buckets, from most overdue to furthest out.
+ */
+public record ReceivablesSummary(LocalDate asOf, List<CurrencySummary> currencies) {
+
+    public record CurrencySummary(String currency, long outstanding, long overdue, long paid,
+                                  Map<String, StatusTotals> byStatus, List<DueDateBucket> byDueDate) {
+    }
+
+    public record StatusTotals(long count, long amount, long paidAmount) {
+    }
+
+    public record DueDateBucket(String bucket, long count, long outstanding) {
+    }
+}
@@ -1,12 +1,13 @@
 package com.eg.invoiceassessment.dto;
 
+import com.eg.invoiceassessment.json.ResponseDTOSerializer;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import org.springframework.stereotype.Component;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 import java.io.Serializable;
 
 
-@Component
+@JsonSerialize(using = ResponseDTOSerializer.class)
 public class ResponseDTO<T> implements Serializable {
 
 	@JsonProperty(value = "message")
@@ -0,0 +1,44 @@
+package com.eg.invoiceassessment.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of a request sent with an {@code Idempotency-Key}. The row is inserted as {@code IN_FLIGHT} before
+ * the request runs, so only one instance executes a key, and holds the stored response once it completes.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "idempotency_keys")
+public class IdempotencyRecord {
+    @Id
+    @Column(length = 255)
+    private String idempotencyKey;
+
+    @Column(length = 64, nullable = false)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    private Integer responseStatus;
+
+    private String contentType;
+
+    @Column(length = 16384)
+    private String responseBody;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime expiresAt;
+
+    public enum Status {
+        IN_FLIGHT, COMPLETED
+    }
+}
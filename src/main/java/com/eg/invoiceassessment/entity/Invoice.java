@@ -7,6 +7,8 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -19,19 +21,32 @@ import java.util.Date;
 @AllArgsConstructor
 @EntityListeners(AuditListener.class)
 @Table(name = "invoices")
+// Only takes effect with invoice.entity-cache.enabled; see EntityCacheConfig
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Invoice.CACHE_REGION)
 public class Invoice {
+
+    public static final String CACHE_REGION = "invoice-entities";
+
+    // Sequence ids (allocated in blocks) let Hibernate batch inserts; IDENTITY disables JDBC batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invoice_seq")
+    @SequenceGenerator(name = "invoice_seq", sequenceName = "invoices_seq", allocationSize = 100)
     private Long id;
 
 
-    @NotNull(message = "Amount cannot be null")
+    public static final String DEFAULT_CURRENCY = "USD";
+
+    // Money is held in minor units of the invoice's currency (cents for USD), never as floating point
     @Positive(message = "Amount must be a positive value")
-    private Double amount;
+    private long amount;
 
-    @NotNull(message = "Paid amount cannot be null")
     @PositiveOrZero(message = "Paid amount must be zero or positive")
-    private Double paidAmount = 0.0;
+    private long paidAmount;
+
+    @NotNull(message = "Currency cannot be null")
+    @Column(length = 3)
+    private String currency;
 
     @NotNull(message = "Due date cannot be null")
     private LocalDate dueDate;
@@ -49,13 +64,18 @@ public class Invoice {
 
     private LocalDateTime paidOn;
 
+    // Guards entity-based writes; the bulk updates in InvoiceRepository bump it themselves
+    @Version
+    private Long version;
+
     public enum Status {
         PENDING, PAID, VOID
     }
 
 
-    public Invoice(Double amount, LocalDate dueDate) {
+    public Invoice(long amount, String currency, LocalDate dueDate) {
         this.amount=amount;
+        this.currency=currency == null ? DEFAULT_CURRENCY : currency.toUpperCase();
         this.dueDate=dueDate;
     }
 
@@ -0,0 +1,56 @@
+package com.eg.invoiceassessment.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox row for one invoice state change, read by the {@code /changes} feed in {@code feedOffset} order. Rows
+ * are inserted by {@code InvoiceEventRecorder} with a JDBC batch in the transaction that made the change and
+ * given their offset by {@code InvoiceEventPublisher} once that committed; this entity is only used to read them.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(name = "invoice_events")
+public class InvoiceEvent {
+
+    public enum Type {
+        // A new invoice; amount is the invoice amount, relatedInvoiceId the overdue invoice it follows up, if any
+        CREATED,
+        // A payment was applied; amount is the payment, status the invoice status afterwards
+        PAYMENT_APPLIED,
+        // The invoice was closed as PAID or VOID; relatedInvoiceId is the follow-up created for it, if any
+        STATUS_CHANGED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Null until the event is published
+    @Column(name = "feed_offset")
+    private Long feedOffset;
+
+    @Column(name = "invoice_id", nullable = false, updatable = false)
+    private Long invoiceId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 32)
+    private Type type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 16)
+    private Invoice.Status status;
+
+    @Column(updatable = false)
+    private Long amount;
+
+    @Column(name = "related_invoice_id", updatable = false)
+    private Long relatedInvoiceId;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,25 @@
+package com.eg.invoiceassessment.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+/**
+ * Late fee added to the follow-up of an overdue invoice: {@code flat} plus {@code basisPoints} hundredths of a
+ * percent of the outstanding amount (rounded half up), at most {@code cap} when {@code cap} is positive. All
+ * amounts are in minor units of the invoice's currency.
+ */
+@Embeddable
+public record LateFeePolicy(
+        @Column(name = "late_fees") long flat,
+        @Column(name = "late_fee_basis_points") int basisPoints,
+        @Column(name = "late_fee_cap") long cap) {
+
+    public static LateFeePolicy flat(long fee) {
+        return new LateFeePolicy(fee, 0, 0);
+    }
+
+    public long feeFor(long outstanding) {
+        long fee = Math.addExact(flat, (Math.multiplyExact(outstanding, (long) basisPoints) + 5_000) / 10_000);
+        return cap > 0 ? Math.min(fee, cap) : fee;
+    }
+}
@@ -0,0 +1,73 @@
+package com.eg.invoiceassessment.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One id range of a partitioned overdue run. Application instances claim a partition by taking its lease;
+ * an expired lease can be taken over, and processing resumes from {@code lastProcessedId}.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "overdue_partition_leases",
+        uniqueConstraints = @UniqueConstraint(name = "uk_overdue_partition",
+                columnNames = {"cutoff_date", "generation", "partition_no"}))
+public class OverduePartitionLease {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "overdue_lease_seq")
+    @SequenceGenerator(name = "overdue_lease_seq", sequenceName = "overdue_partition_leases_seq", allocationSize = 50)
+    private Long id;
+
+    private LocalDate cutoffDate;
+
+    private int generation;
+
+    private int partitionNo;
+
+    // Range is (lowId, highId]
+    private long lowId;
+
+    private long highId;
+
+    private long lastProcessedId;
+
+    @Embedded
+    private LateFeePolicy lateFeePolicy;
+
+    private int overdueDays;
+
+    private String owner;
+
+    private LocalDateTime leaseExpiresAt;
+
+    private long rowsScanned;
+
+    private long rowsUpdated;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    public enum Status {
+        AVAILABLE, CLAIMED, DONE
+    }
+
+    public OverduePartitionLease(LocalDate cutoffDate, int generation, int partitionNo, long lowId, long highId,
+                                 LateFeePolicy lateFeePolicy, int overdueDays) {
+        this.cutoffDate = cutoffDate;
+        this.generation = generation;
+        this.partitionNo = partitionNo;
+        this.lowId = lowId;
+        this.highId = highId;
+        this.lastProcessedId = lowId;
+        this.lateFeePolicy = lateFeePolicy;
+        this.overdueDays = overdueDays;
+        this.status = Status.AVAILABLE;
+    }
+}
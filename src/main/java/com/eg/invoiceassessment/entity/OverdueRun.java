@@ -0,0 +1,64 @@
+package com.eg.invoiceassessment.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Checkpoint of one overdue-processing run. It is updated in the same transaction as every chunk, so after a
+ * crash the run resumes from {@code lastProcessedId} without applying late fees twice.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "overdue_runs")
+public class OverdueRun {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "overdue_run_seq")
+    @SequenceGenerator(name = "overdue_run_seq", sequenceName = "overdue_runs_seq", allocationSize = 1)
+    private Long id;
+
+    private LocalDate cutoffDate;
+
+    @Embedded
+    private LateFeePolicy lateFeePolicy;
+
+    private int overdueDays;
+
+    private long lastProcessedId;
+
+    private long rowsScanned;
+
+    private long rowsPaid;
+
+    private long rowsVoided;
+
+    private long followUpsCreated;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime finishedAt;
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    public OverdueRun(LocalDate cutoffDate, LateFeePolicy lateFeePolicy, int overdueDays) {
+        this.cutoffDate = cutoffDate;
+        this.lateFeePolicy = lateFeePolicy;
+        this.overdueDays = overdueDays;
+        this.status = Status.RUNNING;
+        this.startedAt = LocalDateTime.now();
+        this.updatedAt = this.startedAt;
+    }
+}
@@ -0,0 +1,44 @@
+package com.eg.invoiceassessment.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One payment against an invoice. Rows are only ever inserted; {@code Invoice.paidAmount} is the running
+ * balance kept in step with them. {@code invoiceId} is a plain column without a foreign key, so writing a
+ * payment never locks the invoice row.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(name = "payments")
+public class Payment {
+
+    // PaymentBatchApplier allocates IDs from the same sequence and blocks; keep payments_seq's increment equal
+    public static final String ID_SEQUENCE = "payments_seq";
+    public static final int ID_ALLOCATION_SIZE = 100;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_seq")
+    @SequenceGenerator(name = "payment_seq", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(name = "invoice_id", nullable = false, updatable = false)
+    private Long invoiceId;
+
+    // Minor units of the invoice currency
+    @Column(nullable = false, updatable = false)
+    private long amount;
+
+    @Column(name = "paid_at", nullable = false, updatable = false)
+    private LocalDateTime paidAt;
+
+    public Payment(Long invoiceId, long amount, LocalDateTime paidAt) {
+        this.invoiceId = invoiceId;
+        this.amount = amount;
+        this.paidAt = paidAt;
+    }
+}
@@ -0,0 +1,30 @@
+package com.eg.invoiceassessment.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A named lock shared by all application instances. The rows are created by the migrations; holders take and
+ * renew a lock with conditional updates in {@code SchedulerLockRepository}.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "scheduler_locks")
+public class SchedulerLock {
+    @Id
+    private String name;
+
+    private String lockedBy;
+
+    private LocalDateTime lockedAt;
+
+    private LocalDateTime lockedUntil;
+}
@@ -0,0 +1,114 @@
+package com.eg.invoiceassessment.events;
+
+import com.eg.invoiceassessment.dto.InvoiceChangePage;
+import com.eg.invoiceassessment.dto.InvoiceEventResponse;
+import com.eg.invoiceassessment.repository.InvoiceEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Long-poll reads of the {@code invoice_events} outbox. A poll that finds nothing new parks without holding a
+ * request thread; every {@code invoice.changes.poll-interval} one query per distinct offset checks whether the
+ * parked polls can be answered. Only events that {@link InvoiceEventPublisher} has given an offset are served,
+ * which it does in commit order, so a transaction that commits late never has its events skipped.
+ */
+@Component
+public class InvoiceChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvoiceChangeFeed.class);
+
+    private final InvoiceEventRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    public InvoiceChangeFeed(InvoiceEventRepository repository, PlatformTransactionManager transactionManager,
+                             @Value("${invoice.changes.retention:P7D}") Duration retention) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = retention;
+    }
+
+    /**
+     * Events after {@code since}, at most {@code limit}. Completes at once when there are any; otherwise when
+     * the first ones are published or, with an empty page, after {@code wait}.
+     */
+    public CompletableFuture<InvoiceChangePage> poll(long since, int limit, Duration wait) {
+        List<InvoiceEventResponse> events = repository.findPublished(since, Limit.of(limit));
+        if (!events.isEmpty() || wait.isZero()) {
+            return CompletableFuture.completedFuture(page(since, events));
+        }
+        Waiter waiter = new Waiter(since, limit, System.nanoTime() + wait.toNanos(), new CompletableFuture<>());
+        waiters.add(waiter);
+        return waiter.result();
+    }
+
+    @Scheduled(fixedDelayString = "${invoice.changes.poll-interval:PT0.5S}")
+    public void wakeWaiters() {
+        long now = System.nanoTime();
+        Map<Long, Integer> limits = new HashMap<>();
+        for (Iterator<Waiter> it = waiters.iterator(); it.hasNext(); ) {
+            Waiter waiter = it.next();
+            if (waiter.result().isDone()) {
+                it.remove();
+            } else if (now - waiter.deadline() >= 0) {
+                waiter.result().complete(page(waiter.since(), List.of()));
+                it.remove();
+            } else {
+                limits.merge(waiter.since(), waiter.limit(), Math::max);
+            }
+        }
+        if (limits.isEmpty()) {
+            return;
+        }
+
+        // Most consumers wait at the same head offset, so this is usually a single indexed range read
+        Map<Long, List<InvoiceEventResponse>> events = new HashMap<>();
+        try {
+            limits.forEach((since, limit) -> events.put(since, repository.findPublished(since, Limit.of(limit))));
+        } catch (DataAccessException e) {
+            logger.warn("Could not read invoice changes; parked polls keep waiting: {}", e.getMessage());
+            return;
+        }
+        for (Iterator<Waiter> it = waiters.iterator(); it.hasNext(); ) {
+            Waiter waiter = it.next();
+            List<InvoiceEventResponse> found = events.getOrDefault(waiter.since(), List.of());
+            if (!found.isEmpty()) {
+                waiter.result().complete(page(waiter.since(), found.subList(0, Math.min(waiter.limit(), found.size()))));
+                it.remove();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${invoice.changes.purge-interval:PT10M}")
+    public void purgeExpired() {
+        Integer purged = transactionTemplate.execute(tx -> repository.deleteCreatedBefore(LocalDateTime.now().minus(retention)));
+        if (purged != null && purged > 0) {
+            logger.info("Purged {} invoice events older than {}", purged, retention);
+        }
+    }
+
+    private static InvoiceChangePage page(long since, List<InvoiceEventResponse> events) {
+        return new InvoiceChangePage(events, events.isEmpty() ? since : events.get(events.size() - 1).offset());
+    }
+
+    private record Waiter(long since, int limit, long deadline, CompletableFuture<InvoiceChangePage> result) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.eg.invoiceassessment.events;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Gives committed {@code invoice_events} rows their feed offset. Only rows whose transaction has committed are
+ * visible here, and every run takes the row lock on {@code invoice_event_head} first, so offsets follow commit
+ * order across all instances: an event that commits late gets an offset above everything already served,
+ * however long its transaction stayed open and whatever the clocks of the writing instances said.
+ */
+@Component
+public class InvoiceEventPublisher {
+
+    private static final String LOCK_HEAD = "select last_offset from invoice_event_head where id = 1 for update";
+    private static final String FIND_UNPUBLISHED = """
+            select id from invoice_events where feed_offset is null order by id fetch first ? rows only""";
+    private static final String ASSIGN = "update invoice_events set feed_offset = ? where id = ?";
+    private static final String MOVE_HEAD = "update invoice_event_head set last_offset = ? where id = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public InvoiceEventPublisher(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 @Value("${invoice.changes.publish-batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Publishes every event committed so far, {@code publish-batch-size} per transaction, and returns how many.
+     */
+    @Scheduled(fixedDelayString = "${invoice.changes.publish-interval:PT0.2S}")
+    public int publish() {
+        int published = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(tx -> publishBatch());
+            published += batch;
+        } while (batch == batchSize);
+        return published;
+    }
+
+    private int publishBatch() {
+        long lastOffset = jdbcTemplate.queryForObject(LOCK_HEAD, Long.class);
+        List<Long> ids = jdbcTemplate.queryForList(FIND_UNPUBLISHED, Long.class, batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(ASSIGN, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, lastOffset + i + 1);
+                ps.setLong(2, ids.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return ids.size();
+            }
+        });
+        jdbcTemplate.update(MOVE_HEAD, lastOffset + ids.size());
+        return ids.size();
+    }
+}
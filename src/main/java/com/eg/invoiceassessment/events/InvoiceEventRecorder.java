@@ -0,0 +1,92 @@
+package com.eg.invoiceassessment.events;
+
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.entity.InvoiceEvent;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Writes invoice state changes to the {@code invoice_events} outbox in the caller's transaction, so an event
+ * exists exactly when its change committed. Rows go out as one JDBC batch per call: the identity key would
+ * otherwise make Hibernate insert them one statement at a time. Feed offsets are assigned later, once the
+ * transaction has committed, by {@link InvoiceEventPublisher}.
+ */
+@Component
+public class InvoiceEventRecorder {
+
+    private static final String INSERT = """
+            insert into invoice_events (invoice_id, type, status, amount, related_invoice_id, created_at)
+            values (?, ?, ?, ?, ?, ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public InvoiceEventRecorder(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Change change) {
+        record(List.of(change));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(List<Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Change change = changes.get(i);
+                ps.setLong(1, change.invoiceId());
+                ps.setString(2, change.type().name());
+                ps.setString(3, change.status().name());
+                setNullableLong(ps, 4, change.amount());
+                setNullableLong(ps, 5, change.relatedInvoiceId());
+                ps.setObject(6, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return changes.size();
+            }
+        });
+    }
+
+    private static void setNullableLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, value);
+        }
+    }
+
+    /**
+     * One event to record; see {@link InvoiceEvent.Type} for what {@code amount} and {@code relatedInvoiceId} mean.
+     */
+    public record Change(Long invoiceId, InvoiceEvent.Type type, Invoice.Status status, Long amount,
+                         Long relatedInvoiceId) {
+
+        public static Change created(Invoice invoice, Long followUpOf) {
+            return new Change(invoice.getId(), InvoiceEvent.Type.CREATED, invoice.getStatus(), invoice.getAmount(), followUpOf);
+        }
+
+        public static Change paymentApplied(Long invoiceId, long amount, Invoice.Status status) {
+            return new Change(invoiceId, InvoiceEvent.Type.PAYMENT_APPLIED, status, amount, null);
+        }
+
+        public static Change statusChanged(Long invoiceId, Invoice.Status status, Long followUpId) {
+            return new Change(invoiceId, InvoiceEvent.Type.STATUS_CHANGED, status, null, followUpId);
+        }
+    }
+}
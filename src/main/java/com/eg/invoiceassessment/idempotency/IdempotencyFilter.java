@@ -0,0 +1,202 @@
+package com.eg.invoiceassessment.idempotency;
+
+import com.eg.invoiceassessment.exception.ErrorResponse;
+import com.eg.invoiceassessment.ratelimit.AdmissionFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Makes invoice creation and payments safe to retry. A request carrying an {@code Idempotency-Key} header runs
+ * at most once; repeats get the stored response, marked with {@code Idempotent-Replayed: true}, and never reach
+ * the controller. Server errors and {@code 429} rejections are not stored, so the client can retry them with the
+ * same key. Keys are scoped to the caller as identified by {@link AdmissionFilter#clientOf}, so another client
+ * that reuses or guesses a key runs its own request instead of being sent the first one's response.
+ */
+@Component
+@Order(IdempotencyFilter.ORDER)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final int ORDER = Ordered.LOWEST_PRECEDENCE - 100;
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyFilter.class);
+
+    private static final Pattern IDEMPOTENT_PATHS = Pattern.compile("/api/v1/invoices(/\\d+/payments)?/?");
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+
+    public IdempotencyFilter(IdempotencyStore store, ObjectMapper objectMapper) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || request.getHeader(HEADER) == null
+                || !IDEMPOTENT_PATHS.matcher(request.getRequestURI()).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(HEADER);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            writeError(request, response, HttpStatus.BAD_REQUEST, "Invalid " + HEADER + " header");
+            return;
+        }
+
+        byte[] body = request.getInputStream().readAllBytes();
+        IdempotencyStore.Claim claim = store.claim(scopedKey(AdmissionFilter.clientOf(request), key),
+                fingerprint(request, body));
+        switch (claim) {
+            case IdempotencyStore.Claim.Replay replay -> {
+                logger.info("Replaying stored response for {} {}", HEADER, key);
+                StoredResponse stored = replay.response();
+                response.setStatus(stored.status());
+                response.setContentType(stored.contentType());
+                response.setHeader("Idempotent-Replayed", "true");
+                response.getOutputStream().write(stored.body());
+            }
+            case IdempotencyStore.Claim.InProgress inProgress -> {
+                logger.warn("Request with {} {} is still in progress", HEADER, key);
+                writeError(request, response, HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress");
+            }
+            case IdempotencyStore.Claim.Mismatch mismatch -> {
+                logger.warn("{} {} reused for a different request", HEADER, key);
+                writeError(request, response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        HEADER + " was already used for a different request");
+            }
+            case IdempotencyStore.Claim.Execute execute -> execute(request, response, chain, body, execute);
+        }
+    }
+
+    private void execute(HttpServletRequest request, HttpServletResponse response, FilterChain chain, byte[] body,
+                         IdempotencyStore.Claim.Execute claim) throws ServletException, IOException {
+        ContentCachingResponseWrapper recorded = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(new CachedBodyRequest(request, body), recorded);
+        } catch (IOException | ServletException | RuntimeException e) {
+            store.release(claim);
+            throw e;
+        }
+
+        StoredResponse result = new StoredResponse(recorded.getStatus(), recorded.getContentType(),
+                recorded.getContentAsByteArray());
+        // The request has run and committed, so the client gets its response even if it cannot be stored
+        recorded.copyBodyToResponse();
+        // A shed request never ran, so the client must be able to retry it with the same key
+        if (result.status() >= 500 || result.status() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            store.release(claim);
+        } else {
+            store.complete(claim, result);
+        }
+    }
+
+    private void writeError(HttpServletRequest request, HttpServletResponse response, HttpStatus status, String message)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorResponse(message, status.value(), null, request.getRequestURI(), LocalDateTime.now()));
+    }
+
+    /**
+     * The key as stored: a digest of the client and its key, so it fits {@code idempotency_keys} whatever the
+     * length of either.
+     */
+    static String scopedKey(String client, String key) {
+        return HexFormat.of().formatHex(sha256().digest((client + "\n" + key).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String fingerprint(HttpServletRequest request, byte[] body) {
+        MessageDigest digest = sha256();
+        digest.update((request.getMethod() + " " + request.getRequestURI() + "\n").getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest(body));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Lets the controller read a body that was already consumed for the fingerprint.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.eg.invoiceassessment.idempotency;
+
+import com.eg.invoiceassessment.entity.IdempotencyRecord;
+import com.eg.invoiceassessment.repository.IdempotencyRecordRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tracks {@code Idempotency-Key}s in a bounded, TTL-evicting in-memory map backed by {@code idempotency_keys}.
+ * <p>
+ * A repeat of a completed key is answered from memory without touching the database. A repeat that arrives
+ * while the first request is still running on this instance waits for its result; one running on another
+ * instance is reported as in progress. A key is only executed after its {@code IN_FLIGHT} row is inserted.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    // Length of idempotency_keys.response_body
+    static final int MAX_STORED_BODY_LENGTH = 16384;
+
+    private final IdempotencyRecordRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Duration inFlightTimeout;
+    private final Cache<String, Entry> entries;
+
+    public IdempotencyStore(IdempotencyRecordRepository repository, PlatformTransactionManager transactionManager,
+                            @Value("${invoice.idempotency.ttl:PT24H}") Duration ttl,
+                            @Value("${invoice.idempotency.in-flight-timeout:PT30S}") Duration inFlightTimeout,
+                            @Value("${invoice.idempotency.maximum-size:100000}") long maximumSize) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.inFlightTimeout = inFlightTimeout;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Decides what to do with a request for {@code key}. Blocks for at most {@code in-flight-timeout} while an
+     * earlier request with the same key runs on this instance.
+     */
+    public Claim claim(String key, String requestHash) {
+        while (true) {
+            Entry mine = new Entry(requestHash);
+            Entry existing = entries.asMap().putIfAbsent(key, mine);
+            if (existing == null) {
+                return reserve(key, mine);
+            }
+            if (!existing.requestHash.equals(requestHash)) {
+                return new Claim.Mismatch();
+            }
+
+            try {
+                StoredResponse response = existing.result.get(inFlightTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                if (response != null) {
+                    return new Claim.Replay(response);
+                }
+                // The first request failed without a response worth keeping; compete for the key again
+            } catch (TimeoutException e) {
+                return new Claim.InProgress();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new Claim.InProgress();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Stores the response of the request that owned {@code key} and releases everyone waiting on it. Best
+     * effort: the request has already run, so a failure to store is logged rather than thrown. Repeats on this
+     * instance are still answered from memory; elsewhere the key stays in flight until {@code in-flight-timeout}.
+     * A body longer than the {@code response_body} column is only kept in memory; a replay from the database
+     * then has the status and content type but no body.
+     */
+    public void complete(Claim.Execute claim, StoredResponse response) {
+        try {
+            String body = response.bodyAsText();
+            if (body.length() > MAX_STORED_BODY_LENGTH) {
+                logger.warn("Response for idempotency key {} has {} characters; storing it without the body",
+                        claim.key(), body.length());
+                body = null;
+            }
+            String storedBody = body;
+            transactionTemplate.executeWithoutResult(tx -> repository.complete(claim.key(), response.status(),
+                    response.contentType(), storedBody, IdempotencyRecord.Status.COMPLETED));
+        } catch (RuntimeException e) {
+            logger.error("Could not store the response for idempotency key {}", claim.key(), e);
+        } finally {
+            claim.entry().result.complete(response);
+        }
+    }
+
+    /**
+     * Gives the key up so that a retry runs the request again. Used when it failed with a server error. Best
+     * effort like {@link #complete}: if the row cannot be deleted, other instances see the key in flight until
+     * {@code in-flight-timeout}.
+     */
+    public void release(Claim.Execute claim) {
+        try {
+            transactionTemplate.executeWithoutResult(tx -> repository.deleteIfCreatedAt(claim.key(), claim.createdAt()));
+        } catch (RuntimeException e) {
+            logger.error("Could not release idempotency key {}", claim.key(), e);
+        } finally {
+            entries.asMap().remove(claim.key(), claim.entry());
+            claim.entry().result.complete(null);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${invoice.idempotency.purge-interval:PT10M}")
+    public void purgeExpired() {
+        Integer purged = transactionTemplate.execute(tx -> repository.deleteExpired(LocalDateTime.now()));
+        if (purged != null && purged > 0) {
+            logger.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    private Claim reserve(String key, Entry mine) {
+        try {
+            Claim claim = reservePersistent(key, mine);
+            if (!(claim instanceof Claim.Execute)) {
+                if (claim instanceof Claim.Replay replay) {
+                    mine.result.complete(replay.response());
+                } else {
+                    entries.asMap().remove(key, mine);
+                    mine.result.complete(null);
+                }
+            }
+            return claim;
+        } catch (RuntimeException e) {
+            entries.asMap().remove(key, mine);
+            mine.result.complete(null);
+            throw e;
+        }
+    }
+
+    private Claim reservePersistent(String key, Entry mine) {
+        // Two attempts: the second one follows the removal of a stale row
+        for (int attempt = 0; attempt < 2; attempt++) {
+            // At the column's precision, so that release can find the row by it
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+            try {
+                transactionTemplate.executeWithoutResult(tx -> repository.insert(key, mine.requestHash,
+                        IdempotencyRecord.Status.IN_FLIGHT, now, now.plus(ttl)));
+                return new Claim.Execute(key, now, mine);
+            } catch (DataIntegrityViolationException e) {
+                IdempotencyRecord record = repository.findById(key).orElse(null);
+                if (record == null) {
+                    continue;
+                }
+                boolean expired = record.getExpiresAt().isBefore(now);
+                if (!expired && !record.getRequestHash().equals(mine.requestHash)) {
+                    return new Claim.Mismatch();
+                }
+                if (!expired && record.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                    return new Claim.Replay(StoredResponse.fromText(record.getResponseStatus(), record.getContentType(),
+                            record.getResponseBody()));
+                }
+                if (!expired && record.getCreatedAt().isAfter(now.minus(inFlightTimeout))) {
+                    return new Claim.InProgress();
+                }
+                // Expired, or left in flight by an instance that died; take it over
+                logger.info("Taking over stale idempotency key {}", key);
+                transactionTemplate.executeWithoutResult(tx -> repository.deleteIfCreatedAt(key, record.getCreatedAt()));
+            }
+        }
+        return new Claim.InProgress();
+    }
+
+    private static final class Entry {
+        private final String requestHash;
+        private final CompletableFuture<StoredResponse> result = new CompletableFuture<>();
+
+        private Entry(String requestHash) {
+            this.requestHash = requestHash;
+        }
+    }
+
+    public sealed interface Claim {
+
+        /**
+         * The caller owns the key and must run the request, then {@link #complete} or {@link #release} it.
+         */
+        record Execute(String key, LocalDateTime createdAt, Entry entry) implements Claim {
+        }
+
+        record Replay(StoredResponse response) implements Claim {
+        }
+
+        record InProgress() implements Claim {
+        }
+
+        /**
+         * The key was already used for a request with a different method, path or body.
+         */
+        record Mismatch() implements Claim {
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.eg.invoiceassessment.idempotency;
+
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Response replayed for a repeated {@code Idempotency-Key}.
+ */
+public record StoredResponse(int status, String contentType, byte[] body) {
+
+    /**
+     * The body as stored in the text {@code response_body} column: as is for JSON and text, Base64 for binary
+     * formats such as CBOR and Smile.
+     */
+    String bodyAsText() {
+        return isText(contentType) ? new String(body, StandardCharsets.UTF_8) : Base64.getEncoder().encodeToString(body);
+    }
+
+    /**
+     * The response read back from the row; a body that was too long to store comes back empty.
+     */
+    static StoredResponse fromText(int status, String contentType, String body) {
+        if (body == null) {
+            return new StoredResponse(status, contentType, new byte[0]);
+        }
+        return new StoredResponse(status, contentType,
+                isText(contentType) ? body.getBytes(StandardCharsets.UTF_8) : Base64.getDecoder().decode(body));
+    }
+
+    private static boolean isText(String contentType) {
+        if (contentType == null) {
+            return true;
+        }
+        MediaType type = MediaType.parseMediaType(contentType);
+        return type.getType().equals("text") || type.isCompatibleWith(MediaType.APPLICATION_JSON)
+                || "json".equals(type.getSubtypeSuffix());
+    }
+}
@@ -0,0 +1,56 @@
+package com.eg.invoiceassessment.json;
+
+import com.eg.invoiceassessment.dto.InvoicePage;
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes an {@link InvoicePage} with {@link InvoiceResponseSerializer} called directly for every item, skipping
+ * the per-element serializer lookup of the default collection serializer.
+ */
+public class InvoicePageSerializer extends StdSerializer<InvoicePage> {
+
+    private static final SerializableString ITEMS = new SerializedString("items");
+    private static final SerializableString NEXT_CURSOR = new SerializedString("nextCursor");
+
+    private final InvoiceResponseSerializer invoiceSerializer = new InvoiceResponseSerializer();
+
+    public InvoicePageSerializer() {
+        super(InvoicePage.class);
+    }
+
+    @Override
+    public void serialize(InvoicePage page, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(page);
+        gen.writeFieldName(ITEMS);
+        List<InvoiceResponse> items = page.items();
+        if (items == null) {
+            gen.writeNull();
+        } else {
+            gen.writeStartArray(items, items.size());
+            for (int i = 0; i < items.size(); i++) {
+                InvoiceResponse invoice = items.get(i);
+                if (invoice == null) {
+                    gen.writeNull();
+                } else {
+                    invoiceSerializer.serialize(invoice, gen, provider);
+                }
+            }
+            gen.writeEndArray();
+        }
+        gen.writeFieldName(NEXT_CURSOR);
+        if (page.nextCursor() == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(page.nextCursor().longValue());
+        }
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,83 @@
+package com.eg.invoiceassessment.json;
+
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Writes {@link InvoiceResponse} field by field instead of going through bean introspection. Field names are
+ * pre-encoded and the due date is formatted straight into a per-thread buffer, so an invoice is written without
+ * intermediate strings or boxing. The output is identical to the default serializer's.
+ */
+public class InvoiceResponseSerializer extends StdSerializer<InvoiceResponse> {
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString AMOUNT = new SerializedString("amount");
+    private static final SerializableString PAID_AMOUNT = new SerializedString("paidAmount");
+    private static final SerializableString CURRENCY = new SerializedString("currency");
+    private static final SerializableString DUE_DATE = new SerializedString("duedate");
+    private static final SerializableString STATUS = new SerializedString("status");
+
+    public InvoiceResponseSerializer() {
+        super(InvoiceResponse.class);
+    }
+
+    @Override
+    public void serialize(InvoiceResponse invoice, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(invoice);
+        gen.writeFieldName(ID);
+        if (invoice.id() == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(invoice.id().longValue());
+        }
+        gen.writeFieldName(AMOUNT);
+        gen.writeNumber(invoice.amount());
+        gen.writeFieldName(PAID_AMOUNT);
+        gen.writeNumber(invoice.paidAmount());
+        gen.writeFieldName(CURRENCY);
+        gen.writeString(invoice.currency());
+        gen.writeFieldName(DUE_DATE);
+        writeDate(invoice.duedate(), gen, provider);
+        gen.writeFieldName(STATUS);
+        gen.writeString(invoice.status());
+        gen.writeEndObject();
+    }
+
+    private static void writeDate(LocalDate date, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (date == null) {
+            gen.writeNull();
+        } else if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                || date.getYear() < 0 || date.getYear() > 9999) {
+            // Rare shapes: leave them to the registered LocalDate serializer
+            provider.findValueSerializer(LocalDate.class).serialize(date, gen, provider);
+        } else {
+            // A fresh buffer per date: with a virtual thread per request, a thread-local one would be allocated
+            // per request anyway, plus its map entry
+            char[] buffer = new char[10];
+            int year = date.getYear();
+            buffer[0] = digit(year / 1000);
+            buffer[1] = digit(year / 100 % 10);
+            buffer[2] = digit(year / 10 % 10);
+            buffer[3] = digit(year % 10);
+            buffer[4] = '-';
+            buffer[5] = digit(date.getMonthValue() / 10);
+            buffer[6] = digit(date.getMonthValue() % 10);
+            buffer[7] = '-';
+            buffer[8] = digit(date.getDayOfMonth() / 10);
+            buffer[9] = digit(date.getDayOfMonth() % 10);
+            gen.writeString(buffer, 0, buffer.length);
+        }
+    }
+
+    private static char digit(int value) {
+        return (char) ('0' + value);
+    }
+}
@@ -0,0 +1,39 @@
+package com.eg.invoiceassessment.json;
+
+import com.eg.invoiceassessment.dto.ResponseDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes the {@link ResponseDTO} envelope directly and hands {@code data} to the serializer registered for its
+ * runtime type, e.g. {@link InvoiceResponseSerializer} or {@link InvoicePageSerializer}.
+ */
+public class ResponseDTOSerializer extends StdSerializer<ResponseDTO<?>> {
+
+    private static final SerializableString MESSAGE = new SerializedString("message");
+    private static final SerializableString DATA = new SerializedString("data");
+
+    public ResponseDTOSerializer() {
+        super(ResponseDTO.class, false);
+    }
+
+    @Override
+    public void serialize(ResponseDTO<?> response, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(response);
+        gen.writeFieldName(MESSAGE);
+        gen.writeString(response.getMessage());
+        gen.writeFieldName(DATA);
+        Object data = response.getData();
+        if (data == null) {
+            gen.writeNull();
+        } else {
+            provider.findValueSerializer(data.getClass()).serialize(data, gen, provider);
+        }
+        gen.writeEndObject();
+    }
+}
@@ -12,7 +12,7 @@ public class AuditListener {
     @PrePersist
     public void prePersist(Object entity) {
         if (entity instanceof Invoice invoice) {
-            invoice.setPaidAmount(0.0);
+            invoice.setPaidAmount(0L);
             invoice.setStatus(Invoice.Status.PENDING);
             invoice.setCreatedAt(LocalDateTime.now());
             invoice.setUpdatedAt(LocalDateTime.now());
@@ -0,0 +1,134 @@
+package com.eg.invoiceassessment.metrics;
+
+import com.eg.invoiceassessment.service.OverdueProgressListener;
+import com.eg.invoiceassessment.transaction.AfterCommit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Business meters of the invoice service. Names and tags are part of the monitoring contract; dashboards and
+ * alerts depend on them, so change them only together with those.
+ * <ul>
+ *     <li>{@code invoice.service} (timer, tags {@code class}, {@code method}, {@code exception}) - every {@code InvoiceService} call</li>
+ *     <li>{@code invoice.payments} (counter, tag {@code outcome}: accepted, exceeds_balance, closed, not_found)</li>
+ *     <li>{@code invoice.overdue.rows} (counter) - invoices closed by overdue processing</li>
+ *     <li>{@code invoice.overdue.run} (timer, tags {@code mode}: sequential, partitioned, incremental; {@code outcome}: completed, failed)</li>
+ *     <li>{@code invoice.overdue.jobs.active} (gauge) - overdue jobs queued or running</li>
+ *     <li>{@code invoice.overdue.tracked} (gauge) - pending invoices held by the overdue timing wheel</li>
+ *     <li>{@code invoice.summary.corrections} (counter) - receivables totals found to differ from the database</li>
+ *     <li>{@code invoice.admission} (counter, tags {@code endpoint}; {@code outcome}: admitted, rate_limited, concurrency_limited)</li>
+ *     <li>{@code invoice.admission.in_flight} (gauge, tag {@code endpoint}) - admitted requests still running</li>
+ * </ul>
+ */
+@Component
+public class InvoiceMetrics {
+
+    public static final String SERVICE_TIMER = "invoice.service";
+
+    private final MeterRegistry registry;
+    private final Counter paymentsAccepted;
+    private final Counter paymentsExceedingBalance;
+    private final Counter paymentsToClosedInvoices;
+    private final Counter paymentsNotFound;
+    private final Counter overdueRows;
+    private final Counter summaryCorrections;
+
+    public InvoiceMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.paymentsAccepted = paymentCounter("accepted");
+        this.paymentsExceedingBalance = paymentCounter("exceeds_balance");
+        this.paymentsToClosedInvoices = paymentCounter("closed");
+        this.paymentsNotFound = paymentCounter("not_found");
+        this.overdueRows = Counter.builder("invoice.overdue.rows")
+                .description("Invoices closed by overdue processing")
+                .register(registry);
+        this.summaryCorrections = Counter.builder("invoice.summary.corrections")
+                .description("Receivables totals corrected by the consistency check")
+                .register(registry);
+    }
+
+    /**
+     * Counts {@code count} accepted payments once the current transaction commits, or right away outside a
+     * transaction, so that payments rolled back after they were applied are never counted.
+     */
+    public void paymentsAcceptedAfterCommit(int count) {
+        AfterCommit.run(() -> paymentsAccepted.increment(count));
+    }
+
+    public void paymentExceedingBalance() {
+        paymentsExceedingBalance.increment();
+    }
+
+    public void paymentToClosedInvoice() {
+        paymentsToClosedInvoices.increment();
+    }
+
+    public void paymentNotFound() {
+        paymentsNotFound.increment();
+    }
+
+    /**
+     * Wraps {@code delegate} so that every committed chunk is also counted.
+     */
+    public OverdueProgressListener countingOverdueRows(OverdueProgressListener delegate) {
+        return (rowsScanned, rowsUpdated) -> {
+            overdueRows.increment(rowsUpdated);
+            delegate.chunkCommitted(rowsScanned, rowsUpdated);
+        };
+    }
+
+    public Timer.Sample startOverdueRun() {
+        return Timer.start(registry);
+    }
+
+    public void stopOverdueRun(Timer.Sample sample, String mode, String outcome) {
+        sample.stop(Timer.builder("invoice.overdue.run")
+                .description("Duration of overdue processing runs")
+                .tag("mode", mode)
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+
+    public void gaugeActiveOverdueJobs(Map<?, ?> activeJobs) {
+        registry.gaugeMapSize("invoice.overdue.jobs.active", Tags.empty(), activeJobs);
+    }
+
+    public <T> void gaugeTrackedDueDates(T wheel, ToDoubleFunction<T> size) {
+        Gauge.builder("invoice.overdue.tracked", wheel, size)
+                .description("Pending invoices held by the overdue timing wheel")
+                .register(registry);
+    }
+
+    public void summaryCorrected(int entries) {
+        summaryCorrections.increment(entries);
+    }
+
+    public Counter admissionCounter(String endpoint, String outcome) {
+        return Counter.builder("invoice.admission")
+                .description("Requests to rate-limited endpoints by outcome")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    public <T> void gaugeAdmittedInFlight(String endpoint, T limiter, ToDoubleFunction<T> inFlight) {
+        Gauge.builder("invoice.admission.in_flight", limiter, inFlight)
+                .description("Admitted requests still running")
+                .tag("endpoint", endpoint)
+                .register(registry);
+    }
+
+    private Counter paymentCounter(String outcome) {
+        return Counter.builder("invoice.payments")
+                .description("Payment attempts by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
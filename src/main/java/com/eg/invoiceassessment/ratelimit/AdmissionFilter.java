@@ -0,0 +1,193 @@
+package com.eg.invoiceassessment.ratelimit;
+
+import com.eg.invoiceassessment.exception.TooManyRequestsException;
+import com.eg.invoiceassessment.idempotency.IdempotencyFilter;
+import com.eg.invoiceassessment.metrics.InvoiceMetrics;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.RequestPath;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admission control for the endpoints listed in {@link AdmissionProperties}. A request is first counted against
+ * the endpoint's cap on requests in flight and then takes a token from its client's bucket; if either is
+ * exhausted it is rejected with a {@link TooManyRequestsException}, answered by the application's exception
+ * handlers like any other error. This is a servlet filter ordered before the {@link IdempotencyFilter}, so a
+ * rejected request never claims its {@code Idempotency-Key} or takes a connection from the pool. Requests with
+ * another HTTP method cost a single map lookup. Client buckets are dropped after {@code idle-timeout} without
+ * requests, and the least recently used ones beyond {@code max-clients}.
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    public static final int ORDER = IdempotencyFilter.ORDER - 10;
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionFilter.class);
+
+    private static final Duration CONCURRENCY_RETRY_AFTER = Duration.ofSeconds(1);
+
+    // By HTTP method, most specific path pattern first
+    private final Map<String, List<EndpointLimiter>> limiters = new HashMap<>();
+    private final HandlerExceptionResolver exceptionResolver;
+
+    public AdmissionFilter(AdmissionProperties properties, InvoiceMetrics invoiceMetrics,
+                           HandlerExceptionResolver exceptionResolver) {
+        this.exceptionResolver = exceptionResolver;
+        if (properties.endpoints() == null) {
+            return;
+        }
+        properties.endpoints().forEach((name, endpoint) -> {
+            if (endpoint.method() == null || endpoint.path() == null || endpoint.rate() < 0
+                    || endpoint.maxConcurrent() < 0 || (endpoint.rate() > 0 && endpoint.burst() <= 0)) {
+                throw new IllegalArgumentException("Invalid invoice.admission.endpoints." + name + " settings");
+            }
+            limiters.computeIfAbsent(endpoint.method().toUpperCase(), method -> new ArrayList<>())
+                    .add(new EndpointLimiter(name, endpoint, properties, invoiceMetrics));
+        });
+        limiters.values().forEach(list -> list.sort((a, b) -> PathPattern.SPECIFICITY_COMPARATOR.compare(a.path, b.path)));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        EndpointLimiter limiter = limiterFor(request);
+        if (limiter == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        try {
+            limiter.admit(clientOf(request));
+        } catch (TooManyRequestsException e) {
+            exceptionResolver.resolveException(request, response, null, e);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnCompletion(limiter));
+            } else {
+                limiter.release();
+            }
+        }
+    }
+
+    private EndpointLimiter limiterFor(HttpServletRequest request) {
+        List<EndpointLimiter> candidates = limiters.get(request.getMethod());
+        if (candidates == null) {
+            return null;
+        }
+        PathContainer path = RequestPath.parse(request.getRequestURI(), request.getContextPath()).pathWithinApplication();
+        for (EndpointLimiter candidate : candidates) {
+            if (candidate.path.matches(path)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The caller a request is counted against: its authenticated principal, or else its IP address. Never a value
+     * the caller picks freely, such as an unchecked API key header, or it could take a fresh bucket per request.
+     */
+    public static String clientOf(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal != null ? "principal:" + principal.getName() : "address:" + request.getRemoteAddr();
+    }
+
+    private record ReleaseOnCompletion(EndpointLimiter limiter) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limiter.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    private static final class EndpointLimiter {
+
+        private final String name;
+        private final PathPattern path;
+        private final double rate;
+        private final int burst;
+        private final Cache<String, TokenBucket> buckets;
+        private final ConcurrencyLimiter concurrency;
+        private final Counter admitted;
+        private final Counter rateLimited;
+        private final Counter concurrencyLimited;
+
+        EndpointLimiter(String name, AdmissionProperties.Endpoint endpoint, AdmissionProperties properties,
+                        InvoiceMetrics invoiceMetrics) {
+            this.name = name;
+            this.path = PathPatternParser.defaultInstance.parse(endpoint.path());
+            this.rate = endpoint.rate();
+            this.burst = endpoint.burst();
+            this.buckets = rate == 0 ? null : Caffeine.newBuilder()
+                    .maximumSize(properties.maxClients())
+                    .expireAfterAccess(properties.idleTimeout())
+                    .build();
+            this.concurrency = endpoint.maxConcurrent() == 0 ? null : new ConcurrencyLimiter(endpoint.maxConcurrent());
+            this.admitted = invoiceMetrics.admissionCounter(name, "admitted");
+            this.rateLimited = invoiceMetrics.admissionCounter(name, "rate_limited");
+            this.concurrencyLimited = invoiceMetrics.admissionCounter(name, "concurrency_limited");
+            if (concurrency != null) {
+                invoiceMetrics.gaugeAdmittedInFlight(name, concurrency, ConcurrencyLimiter::inFlight);
+            }
+        }
+
+        void admit(String client) {
+            if (concurrency != null && !concurrency.tryAcquire()) {
+                concurrencyLimited.increment();
+                throw new TooManyRequestsException("Too many requests in progress, retry later", CONCURRENCY_RETRY_AFTER);
+            }
+            if (buckets != null) {
+                long now = System.nanoTime();
+                long wait = buckets.get(client, key -> new TokenBucket(rate, burst, now)).tryAcquire(now);
+                if (wait > 0) {
+                    release();
+                    rateLimited.increment();
+                    logger.debug("Rate limit of {} exceeded by {}", name, client);
+                    throw new TooManyRequestsException("Rate limit exceeded, retry later", Duration.ofNanos(wait));
+                }
+            }
+            admitted.increment();
+        }
+
+        void release() {
+            if (concurrency != null) {
+                concurrency.release();
+            }
+        }
+    }
+}
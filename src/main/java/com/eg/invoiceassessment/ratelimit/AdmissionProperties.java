@@ -0,0 +1,26 @@
+package com.eg.invoiceassessment.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Settings under {@code invoice.admission}. Clients are told apart as by {@link AdmissionFilter#clientOf}. Each entry of {@code endpoints} limits one endpoint, named by its HTTP method
+ * and a path pattern (e.g. {@code /api/v1/invoices/{id}/payments}); a request matching several patterns counts
+ * against the most specific one.
+ */
+@ConfigurationProperties("invoice.admission")
+public record AdmissionProperties(@DefaultValue("true") boolean enabled,
+                                  @DefaultValue("100000") long maxClients,
+                                  @DefaultValue("PT10M") Duration idleTimeout,
+                                  Map<String, Endpoint> endpoints) {
+
+    /**
+     * {@code rate} requests per second per client with bursts of up to {@code burst}, and at most
+     * {@code maxConcurrent} requests in flight over all clients. 0 turns the respective limit off.
+     */
+    public record Endpoint(String method, String path, double rate, int burst, int maxConcurrent) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.eg.invoiceassessment.ratelimit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admits at most {@code limit} holders at a time. Unlike a semaphore it never queues: a caller over the limit is
+ * turned away at once, so shed requests do not hold a thread while they wait.
+ */
+public final class ConcurrencyLimiter {
+
+    private final int limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public ConcurrencyLimiter(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        this.limit = limit;
+    }
+
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,42 @@
+package com.eg.invoiceassessment.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket holding up to {@code capacity} tokens that refills at {@code ratePerSecond}. Instead of a token
+ * count and a refill time, it keeps only the time at which it will be full again, so taking a token is a single
+ * compare-and-set: a request is admitted when moving that time one token's worth forward leaves it at most
+ * {@code capacity} tokens ahead of now. Times are {@link System#nanoTime()} values.
+ */
+public final class TokenBucket {
+
+    private final long nanosPerToken;
+    private final long capacityNanos;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(double ratePerSecond, int capacity, long nowNanos) {
+        if (ratePerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Rate and capacity must be positive");
+        }
+        this.nanosPerToken = Math.max(1, Math.round(1_000_000_000 / ratePerSecond));
+        this.capacityNanos = nanosPerToken * capacity;
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes a token if one is left. Returns 0 if it did, otherwise how many nanoseconds until one will be.
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = (current - nowNanos > 0 ? current : nowNanos) + nanosPerToken;
+            long ahead = next - nowNanos;
+            if (ahead > capacityNanos) {
+                return ahead - capacityNanos;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
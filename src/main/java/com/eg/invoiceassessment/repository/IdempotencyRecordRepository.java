@@ -0,0 +1,39 @@
+package com.eg.invoiceassessment.repository;
+
+import com.eg.invoiceassessment.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Plain insert rather than {@code save}, which would merge into an existing row with the same key.
+     * Fails with a {@code DataIntegrityViolationException} when the key is already taken.
+     */
+    @Modifying
+    @Query("""
+            insert into IdempotencyRecord (idempotencyKey, requestHash, status, createdAt, expiresAt)
+            values (:key, :requestHash, :status, :createdAt, :expiresAt)""")
+    void insert(String key, String requestHash, IdempotencyRecord.Status status,
+                LocalDateTime createdAt, LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("""
+            update IdempotencyRecord r
+            set r.status = :completed, r.responseStatus = :responseStatus, r.contentType = :contentType,
+                r.responseBody = :responseBody
+            where r.idempotencyKey = :key""")
+    int complete(String key, int responseStatus, String contentType, String responseBody,
+                 IdempotencyRecord.Status completed);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.idempotencyKey = :key and r.createdAt = :createdAt")
+    int deleteIfCreatedAt(String key, LocalDateTime createdAt);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(LocalDateTime now);
+}
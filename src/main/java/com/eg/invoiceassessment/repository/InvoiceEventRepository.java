@@ -0,0 +1,30 @@
+package com.eg.invoiceassessment.repository;
+
+import com.eg.invoiceassessment.dto.InvoiceEventResponse;
+import com.eg.invoiceassessment.entity.InvoiceEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/*
+ * Feed reads only see events that InvoiceEventPublisher has given an offset, which it does after they commit
+ * and in commit order, so a consumer can never skip past an event that commits later.
+ */
+public interface InvoiceEventRepository extends JpaRepository<InvoiceEvent, Long> {
+
+    @Query("""
+            select new com.eg.invoiceassessment.dto.InvoiceEventResponse(e.feedOffset, e.invoiceId, e.type, e.status,
+                e.amount, e.relatedInvoiceId, e.createdAt)
+            from InvoiceEvent e
+            where e.feedOffset > :afterOffset
+            order by e.feedOffset""")
+    List<InvoiceEventResponse> findPublished(long afterOffset, Limit limit);
+
+    @Modifying
+    @Query("delete from InvoiceEvent e where e.createdAt < :cutoff")
+    int deleteCreatedBefore(LocalDateTime cutoff);
+}
@@ -1,15 +1,170 @@
 package com.eg.invoiceassessment.repository;
 
 
+import com.eg.invoiceassessment.dto.InvoiceResponse;
 import com.eg.invoiceassessment.entity.Invoice;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 
 public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
 
-    List<Invoice> findByDueDateBeforeAndStatus(LocalDate date, Invoice.Status status);
+    /**
+     * Next chunk of overdue invoices after {@code afterId}, locked until the chunk transaction commits so a
+     * concurrent payment cannot change {@code paidAmount} between reading and closing the invoice.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            select i from Invoice i
+            where i.id > :afterId and i.id <= :maxId and i.dueDate < :cutoff and i.status = :status
+            order by i.id""")
+    List<Invoice> findOverdueChunk(Long afterId, Long maxId, LocalDate cutoff, Invoice.Status status, Limit limit);
+
+    /**
+     * The invoices with the given IDs, locked like {@link #findOverdueChunk}. Used by the incremental overdue
+     * run, which filters for overdue ones itself: with the status and due date in the query, H2 walks the
+     * (status, due_date) index instead of looking up the IDs.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i from Invoice i where i.id in :ids order by i.id")
+    List<Invoice> lockByIds(Collection<Long> ids);
+
+    @Query("select min(i.id) as minId, max(i.id) as maxId from Invoice i where i.dueDate < :cutoff and i.status = :status")
+    IdRange findIdRange(LocalDate cutoff, Invoice.Status status);
+
+    /**
+     * Lowest ID in (afterId, lastId] of an overdue invoice still in {@code status}. Once a chunk is closed, this
+     * finds rows committed into its ID range after the chunk was read, e.g. from another node's ID block.
+     */
+    @Query("""
+            select min(i.id) from Invoice i
+            where i.id > :afterId and i.id <= :lastId and i.dueDate < :cutoff and i.status = :status""")
+    Long findFirstOverdueId(Long afterId, Long lastId, LocalDate cutoff, Invoice.Status status);
+
+    /*
+     * Bulk status flips for the overdue rows locked by findOverdueChunk or lockByIds. Those are known to be PENDING,
+     * so the status is not re-checked here: with it, H2 walks the (status, id) index instead of looking up the IDs.
+     * These bypass AuditListener, so timestamps are set here. Hibernate evicts the whole Invoice second-level
+     * cache region after each of them, when that cache is on.
+     */
+    @Modifying
+    @Query("""
+            update Invoice i set i.status = :to, i.paidOn = :now, i.updatedAt = :now, i.version = i.version + 1
+            where i.id in :ids and i.paidAmount > 0""")
+    int closePartiallyPaidByIds(Collection<Long> ids, Invoice.Status to, LocalDateTime now);
+
+    @Modifying
+    @Query("""
+            update Invoice i set i.status = :to, i.updatedAt = :now, i.version = i.version + 1
+            where i.id in :ids and i.paidAmount = 0""")
+    int closeUnpaidByIds(Collection<Long> ids, Invoice.Status to, LocalDateTime now);
+
+    /**
+     * Adds a payment in a single statement, so concurrent payments neither lose updates nor overpay.
+     * Returns 0 when the invoice does not exist, is no longer {@code pending} or the payment exceeds its
+     * remaining balance.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update Invoice i set i.paidAmount = i.paidAmount + :amount,
+                i.status = case when i.paidAmount + :amount >= i.amount then :paid else i.status end,
+                i.paidOn = case when i.paidAmount + :amount >= i.amount and i.paidOn is null then :now else i.paidOn end,
+                i.updatedAt = :now, i.version = i.version + 1
+            where i.id = :id and i.status = :pending and i.paidAmount + :amount <= i.amount""")
+    int applyPayment(Long id, long amount, Invoice.Status pending, Invoice.Status paid, LocalDateTime now);
+
+    /**
+     * Joins the caller's transaction but does not start one, so that an invoice found in the second-level cache
+     * is returned without taking a connection from the pool.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    Optional<Invoice> findById(Long id);
+
+    /**
+     * The invoice, locked until the transaction commits so that concurrent payments neither lose updates nor
+     * overpay. A locking read always goes to the database, whether or not the entity is cached. Used for
+     * payments instead of applyPayment when the second-level cache is on.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i from Invoice i where i.id = :id")
+    Optional<Invoice> lockById(Long id);
+
+    /*
+     * Read paths project straight into InvoiceResponse, so no entity is hydrated, kept in the persistence
+     * context or dirty-checked. Listing is split on status because "(:status is null or ...)" keeps the
+     * database from using the (status, id) index; the optional date bounds are filtered along the walk.
+     */
+    @Query("""
+            select new com.eg.invoiceassessment.dto.InvoiceResponse(i.id, i.amount, i.paidAmount, i.currency, i.dueDate, i.status)
+            from Invoice i
+            where i.id > :afterId
+              and (:dueFrom is null or i.dueDate >= :dueFrom)
+              and (:dueTo is null or i.dueDate <= :dueTo)
+            order by i.id""")
+    List<InvoiceResponse> findPage(Long afterId, LocalDate dueFrom, LocalDate dueTo, Limit limit);
+
+    @Query("""
+            select new com.eg.invoiceassessment.dto.InvoiceResponse(i.id, i.amount, i.paidAmount, i.currency, i.dueDate, i.status)
+            from Invoice i
+            where i.status = :status and i.id > :afterId
+              and (:dueFrom is null or i.dueDate >= :dueFrom)
+              and (:dueTo is null or i.dueDate <= :dueTo)
+            order by i.id""")
+    List<InvoiceResponse> findPageByStatus(Long afterId, Invoice.Status status, LocalDate dueFrom, LocalDate dueTo, Limit limit);
+
+    @Query("""
+            select new com.eg.invoiceassessment.dto.InvoiceResponse(i.id, i.amount, i.paidAmount, i.currency, i.dueDate, i.status)
+            from Invoice i
+            where i.id = :id""")
+    Optional<InvoiceResponse> findResponseById(Long id);
+
+    @Query("""
+            select new com.eg.invoiceassessment.dto.InvoiceResponse(i.id, i.amount, i.paidAmount, i.currency, i.dueDate, i.status)
+            from Invoice i
+            where i.id in :ids""")
+    List<InvoiceResponse> findResponsesByIds(Collection<Long> ids);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            select new com.eg.invoiceassessment.dto.InvoiceResponse(i.id, i.amount, i.paidAmount, i.currency, i.dueDate, i.status)
+            from Invoice i
+            where (:dueFrom is null or i.dueDate >= :dueFrom)
+              and (:dueTo is null or i.dueDate <= :dueTo)
+            order by i.id""")
+    Stream<InvoiceResponse> streamAll(LocalDate dueFrom, LocalDate dueTo);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            select new com.eg.invoiceassessment.dto.InvoiceResponse(i.id, i.amount, i.paidAmount, i.currency, i.dueDate, i.status)
+            from Invoice i
+            where i.status = :status
+              and (:dueFrom is null or i.dueDate >= :dueFrom)
+              and (:dueTo is null or i.dueDate <= :dueTo)
+            order by i.id""")
+    Stream<InvoiceResponse> streamAllByStatus(Invoice.Status status, LocalDate dueFrom, LocalDate dueTo);
+
+    interface IdRange {
+        Long getMinId();
+
+        Long getMaxId();
+    }
 
 }
@@ -0,0 +1,37 @@
+package com.eg.invoiceassessment.repository;
+
+import com.eg.invoiceassessment.entity.OverduePartitionLease;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface OverduePartitionLeaseRepository extends JpaRepository<OverduePartitionLease, Long> {
+
+    List<OverduePartitionLease> findByCutoffDateAndGenerationOrderByPartitionNo(LocalDate cutoffDate, int generation);
+
+    @Query("select max(l.generation) from OverduePartitionLease l where l.cutoffDate = :cutoffDate")
+    Integer findLatestGeneration(LocalDate cutoffDate);
+
+    /**
+     * Takes the lease if nobody holds it or the holder's lease has expired. Returns 1 when this caller now owns it.
+     */
+    @Modifying
+    @Query("""
+            update OverduePartitionLease l
+            set l.owner = :owner, l.leaseExpiresAt = :expiresAt, l.status = :claimed
+            where l.id = :id and l.status <> :done and (l.owner is null or l.leaseExpiresAt < :now)""")
+    int claim(Long id, String owner, LocalDateTime expiresAt, LocalDateTime now,
+              OverduePartitionLease.Status claimed, OverduePartitionLease.Status done);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l from OverduePartitionLease l where l.id = :id and l.owner = :owner")
+    Optional<OverduePartitionLease> lockOwned(Long id, String owner);
+
+}
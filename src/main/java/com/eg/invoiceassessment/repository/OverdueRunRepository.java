@@ -0,0 +1,19 @@
+package com.eg.invoiceassessment.repository;
+
+import com.eg.invoiceassessment.entity.OverdueRun;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+public interface OverdueRunRepository extends JpaRepository<OverdueRun, Long> {
+
+    /**
+     * Latest run for the cutoff not in {@code status}, locked so that two nodes cannot both take it over.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<OverdueRun> findFirstByCutoffDateAndStatusNotOrderByIdDesc(LocalDate cutoffDate, OverdueRun.Status status);
+
+}
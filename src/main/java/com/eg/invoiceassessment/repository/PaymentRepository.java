@@ -0,0 +1,26 @@
+package com.eg.invoiceassessment.repository;
+
+import com.eg.invoiceassessment.dto.PaymentResponse;
+import com.eg.invoiceassessment.entity.Payment;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface PaymentRepository extends JpaRepository<Payment, Long> {
+
+    @Query("""
+            select new com.eg.invoiceassessment.dto.PaymentResponse(p.id, p.invoiceId, p.amount, p.paidAt)
+            from Payment p
+            where p.invoiceId = :invoiceId and p.id > :afterId
+            order by p.id""")
+    List<PaymentResponse> findPage(Long invoiceId, Long afterId, Limit limit);
+
+    /**
+     * Sum of the ledger for one invoice, to reconcile against {@code Invoice.paidAmount}. Served by the
+     * {@code (invoice_id, id)} index.
+     */
+    @Query("select coalesce(sum(p.amount), 0) from Payment p where p.invoiceId = :invoiceId")
+    long sumByInvoiceId(Long invoiceId);
+}
@@ -0,0 +1,33 @@
+package com.eg.invoiceassessment.repository;
+
+import com.eg.invoiceassessment.entity.SchedulerLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+
+public interface SchedulerLockRepository extends JpaRepository<SchedulerLock, String> {
+
+    /**
+     * Takes the lock if it is free. Returns 1 when {@code owner} now holds it until {@code until}.
+     */
+    @Modifying
+    @Query("""
+            update SchedulerLock l set l.lockedBy = :owner, l.lockedAt = :now, l.lockedUntil = :until
+            where l.name = :name and l.lockedUntil <= :now""")
+    int acquire(String name, String owner, LocalDateTime now, LocalDateTime until);
+
+    /**
+     * Moves the expiry of a lock {@code owner} still holds. Returns 0 when the lock expired or was taken over.
+     */
+    @Modifying
+    @Query("""
+            update SchedulerLock l set l.lockedUntil = :until
+            where l.name = :name and l.lockedBy = :owner and l.lockedUntil > :now""")
+    int extend(String name, String owner, LocalDateTime now, LocalDateTime until);
+
+    @Modifying
+    @Query("update SchedulerLock l set l.lockedUntil = :now where l.name = :name and l.lockedBy = :owner and l.lockedUntil > :now")
+    int release(String name, String owner, LocalDateTime now);
+}
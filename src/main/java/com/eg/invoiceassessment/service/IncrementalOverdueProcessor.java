@@ -0,0 +1,107 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.metrics.InvoiceMetrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Closes invoices as they become overdue, driven by the {@link OverdueTimingWheel} instead of a scan of the
+ * invoices table. Every {@code invoice.overdue.incremental.check-interval} it checks whether the day has
+ * rolled over; if so it turns the wheel and closes the invoices that were handed out, in ID order and in
+ * chunks of {@code invoice.overdue.chunk-size}, following the {@link OverduePolicy}.
+ * <p>
+ * Invoices of a chunk that fails go back into the wheel and are retried on the next day. The full scan behind
+ * {@code POST /process-overdue} stays available, e.g. to close invoices that were already overdue at startup
+ * right away instead of at the next rollover. With several instances each one runs this for the invoices it
+ * loaded or wrote; rows are locked and re-checked, so an invoice is never closed twice.
+ */
+@Component
+public class IncrementalOverdueProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalOverdueProcessor.class);
+
+    private final OverdueTimingWheel overdueTimingWheel;
+    private final OverdueChunkWriter chunkWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final InvoiceMetrics invoiceMetrics;
+    private final OverduePolicy policy;
+    // Serializes runs, which span database transactions
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    public IncrementalOverdueProcessor(OverdueTimingWheel overdueTimingWheel,
+                                       OverdueChunkWriter chunkWriter,
+                                       PlatformTransactionManager transactionManager,
+                                       InvoiceMetrics invoiceMetrics,
+                                       OverduePolicy policy) {
+        this.overdueTimingWheel = overdueTimingWheel;
+        this.chunkWriter = chunkWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.invoiceMetrics = invoiceMetrics;
+        this.policy = policy;
+        invoiceMetrics.gaugeTrackedDueDates(overdueTimingWheel, OverdueTimingWheel::size);
+    }
+
+    @Scheduled(fixedDelayString = "${invoice.overdue.incremental.check-interval:PT1M}")
+    public void checkForRollover() {
+        if (overdueTimingWheel.isEnabled() && policy.cutoff(LocalDate.now()).isAfter(overdueTimingWheel.getCurrentDay())) {
+            processNewlyOverdue(LocalDate.now());
+        }
+    }
+
+    /**
+     * Turns the wheel to the policy's cutoff for {@code today} and closes every tracked invoice due before it.
+     * Returns the number of invoices closed.
+     */
+    public int processNewlyOverdue(LocalDate today) {
+        runLock.lock();
+        try {
+            return closeNewlyOverdue(today);
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    private int closeNewlyOverdue(LocalDate today) {
+        LocalDate cutoff = policy.cutoff(today);
+        long[] ids = overdueTimingWheel.advanceTo(cutoff);
+        if (ids.length == 0) {
+            return 0;
+        }
+        // ID order keeps row locks in the same order as the full scan's, so concurrent runs cannot deadlock
+        Arrays.sort(ids);
+
+        OverdueProgressListener progress = invoiceMetrics.countingOverdueRows(OverdueProgressListener.NONE);
+        Timer.Sample sample = invoiceMetrics.startOverdueRun();
+        int closed = 0;
+        int from = 0;
+        try {
+            for (; from < ids.length; from += chunkWriter.getChunkSize()) {
+                List<Long> chunkIds = Arrays.stream(ids, from, Math.min(from + chunkWriter.getChunkSize(), ids.length))
+                        .boxed().toList();
+                OverdueChunkWriter.ChunkResult chunk = transactionTemplate.execute(tx ->
+                        chunkWriter.closeChunk(chunkIds, cutoff, policy.getLateFee(), policy.getFollowUpDays()));
+                progress.chunkCommitted(chunk.scanned(), chunk.updated());
+                closed += chunk.scanned();
+            }
+        } catch (RuntimeException e) {
+            overdueTimingWheel.requeue(Arrays.copyOfRange(ids, from, ids.length));
+            invoiceMetrics.stopOverdueRun(sample, "incremental", "failed");
+            logger.error("Incremental overdue run for {} failed; {} invoices are retried with the next run",
+                    today, ids.length - from, e);
+            throw e;
+        }
+        invoiceMetrics.stopOverdueRun(sample, "incremental", "completed");
+        logger.info("Incremental overdue run for {} closed {} of {} tracked invoices", today, closed, ids.length);
+        return closed;
+    }
+}
@@ -0,0 +1,146 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.dto.BatchRowError;
+import com.eg.invoiceassessment.dto.InvoiceBatchResult;
+import com.eg.invoiceassessment.dto.InvoiceRequest;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.events.InvoiceEventRecorder;
+import com.eg.invoiceassessment.events.InvoiceEventRecorder.Change;
+import com.eg.invoiceassessment.mapper.InvoiceMapper;
+import com.eg.invoiceassessment.summary.ReceivablesAggregates;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Streams {@link InvoiceRequest} rows from a JSON array or NDJSON body and inserts the valid ones in
+ * chunks of {@code invoice.batch.chunk-size}, one transaction and one JDBC batch per chunk.
+ * Rows go through {@code persist}, so {@code AuditListener} still fills in the defaults.
+ */
+@Component
+public class InvoiceBatchImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvoiceBatchImporter.class);
+
+    private final ObjectReader reader;
+    private final TransactionTemplate transactionTemplate;
+    private final InvoiceEventRecorder invoiceEventRecorder;
+    private final OverdueTimingWheel overdueTimingWheel;
+    private final ReceivablesAggregates receivablesAggregates;
+    private final int chunkSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public InvoiceBatchImporter(ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                                InvoiceEventRecorder invoiceEventRecorder, OverdueTimingWheel overdueTimingWheel,
+                                ReceivablesAggregates receivablesAggregates,
+                                @Value("${invoice.batch.chunk-size:1000}") int chunkSize) {
+        this.reader = objectMapper.readerFor(InvoiceRequest.class);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.invoiceEventRecorder = invoiceEventRecorder;
+        this.overdueTimingWheel = overdueTimingWheel;
+        this.receivablesAggregates = receivablesAggregates;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Chunks committed before a malformed row stay committed; the malformed row is reported and reading stops.
+     * A chunk that fails to commit is rolled back and each of its rows reported as an error, as the payment
+     * batch does; the rows after it are still imported.
+     */
+    public InvoiceBatchResult importInvoices(InputStream body) {
+        List<Long> createdIds = new ArrayList<>();
+        List<BatchRowError> errors = new ArrayList<>();
+        List<Invoice> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkRows = new ArrayList<>(chunkSize);
+
+        long row = 0;
+        // readValues accepts both a top-level array and a whitespace-separated sequence of objects
+        try (MappingIterator<InvoiceRequest> rows = reader.readValues(body)) {
+            while (rows.hasNextValue()) {
+                InvoiceRequest request = rows.nextValue();
+                String error = validate(request);
+                if (error != null) {
+                    errors.add(new BatchRowError(row, error));
+                } else {
+                    chunk.add(InvoiceMapper.toEntity(request));
+                    chunkRows.add(row);
+                    if (chunk.size() == chunkSize) {
+                        insert(chunk, chunkRows, createdIds, errors);
+                        chunk.clear();
+                        chunkRows.clear();
+                    }
+                }
+                row++;
+            }
+        } catch (IOException e) {
+            logger.warn("Invoice batch stopped at malformed row {}: {}", row, e.getMessage());
+            errors.add(new BatchRowError(row, "Malformed JSON row"));
+        }
+        if (!chunk.isEmpty()) {
+            insert(chunk, chunkRows, createdIds, errors);
+        }
+
+        // Rows of a failed chunk were reported after the invalid rows read while it filled up
+        errors.sort(Comparator.comparingLong(BatchRowError::row));
+        logger.info("Invoice batch imported {} rows with {} errors", createdIds.size(), errors.size());
+        return new InvoiceBatchResult(createdIds, errors);
+    }
+
+    private void insert(List<Invoice> invoices, List<Long> rows, List<Long> createdIds, List<BatchRowError> errors) {
+        try {
+            createdIds.addAll(insertChunk(invoices));
+        } catch (RuntimeException e) {
+            logger.error("Invoice batch chunk of rows {} to {} failed", rows.get(0), rows.get(rows.size() - 1), e);
+            for (long row : rows) {
+                errors.add(new BatchRowError(row, "Invoice could not be created, retry later"));
+            }
+        }
+    }
+
+    private List<Long> insertChunk(List<Invoice> invoices) {
+        return transactionTemplate.execute(status -> {
+            List<Long> ids = new ArrayList<>(invoices.size());
+            List<Change> changes = new ArrayList<>(invoices.size());
+            for (Invoice invoice : invoices) {
+                entityManager.persist(invoice);
+                ids.add(invoice.getId());
+                changes.add(Change.created(invoice, null));
+            }
+            invoiceEventRecorder.record(changes);
+            overdueTimingWheel.addAfterCommit(invoices);
+            receivablesAggregates.createdAfterCommit(invoices);
+            entityManager.flush();
+            entityManager.clear();
+            return ids;
+        });
+    }
+
+    private static String validate(InvoiceRequest request) {
+        if (request == null || request.amount() == null || request.dueDate() == null) {
+            return "Amount or Due Date is null";
+        }
+        if (request.amount() <= 0) {
+            return "Amount must be a positive value";
+        }
+        if (!request.hasValidCurrency()) {
+            return "Unknown currency: " + request.currency();
+        }
+        return null;
+    }
+}
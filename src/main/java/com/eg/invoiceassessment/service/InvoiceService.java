@@ -2,21 +2,52 @@ package com.eg.invoiceassessment.service;
 
 
 
+import com.eg.invoiceassessment.dto.InvoiceBatchResult;
+import com.eg.invoiceassessment.dto.InvoiceChangePage;
+import com.eg.invoiceassessment.dto.InvoiceFilter;
+import com.eg.invoiceassessment.dto.InvoicePage;
 import com.eg.invoiceassessment.dto.InvoiceRequest;
 import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.dto.OverdueJobStatus;
+import com.eg.invoiceassessment.dto.PaymentBatchResult;
+import com.eg.invoiceassessment.dto.PaymentPage;
 import com.eg.invoiceassessment.dto.PaymentRequest;
 import com.eg.invoiceassessment.dto.ProcessOverdueInvoiceRequest;
+import com.eg.invoiceassessment.dto.ReceivablesSummary;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface InvoiceService {
     InvoiceResponse createInvoice(InvoiceRequest request);
 
-    List<InvoiceResponse> getAllInvoices();
+    InvoiceBatchResult createInvoices(InputStream body);
+
+    InvoicePage getInvoices(Long cursor, int size, InvoiceFilter filter);
+
+    void exportInvoices(InvoiceFilter filter, OutputStream out) throws IOException;
 
     InvoiceResponse payInvoice(Long invoiceId, PaymentRequest paymentRequest);
 
+    PaymentBatchResult applyPayments(InputStream body);
+
+    PaymentPage getPayments(Long invoiceId, Long cursor, int size);
+
+    CompletableFuture<InvoiceChangePage> getChanges(long since, int limit, Duration wait);
+
+    ReceivablesSummary getSummary();
+
     void processOverdueInvoices(ProcessOverdueInvoiceRequest processRequest);
 
+    OverdueJobStatus submitOverdueJob(ProcessOverdueInvoiceRequest processRequest);
+
+    OverdueJobStatus getOverdueJob(String jobId);
+
     InvoiceResponse getInvoiceById(Long id);
+
+    List<InvoiceResponse> getInvoicesByIds(List<Long> ids);
 }
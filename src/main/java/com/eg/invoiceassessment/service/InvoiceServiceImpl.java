@@ -2,30 +2,97 @@ package com.eg.invoiceassessment.service;
 
 
 
+import com.eg.invoiceassessment.cache.InvoiceCache;
+import com.eg.invoiceassessment.dto.InvoiceBatchResult;
+import com.eg.invoiceassessment.dto.InvoiceChangePage;
+import com.eg.invoiceassessment.dto.InvoiceFilter;
+import com.eg.invoiceassessment.dto.InvoicePage;
 import com.eg.invoiceassessment.dto.InvoiceRequest;
 import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.dto.OverdueJobStatus;
+import com.eg.invoiceassessment.dto.PaymentBatchResult;
+import com.eg.invoiceassessment.dto.PaymentPage;
 import com.eg.invoiceassessment.dto.PaymentRequest;
+import com.eg.invoiceassessment.dto.PaymentResponse;
 import com.eg.invoiceassessment.dto.ProcessOverdueInvoiceRequest;
+import com.eg.invoiceassessment.dto.ReceivablesSummary;
 import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.entity.Payment;
+import com.eg.invoiceassessment.events.InvoiceChangeFeed;
+import com.eg.invoiceassessment.events.InvoiceEventRecorder;
+import com.eg.invoiceassessment.events.InvoiceEventRecorder.Change;
 import com.eg.invoiceassessment.exception.InvalidRequestPayloadException;
 import com.eg.invoiceassessment.exception.ResourceNotFoundException;
+import com.eg.invoiceassessment.exception.ServiceUnavailableException;
 import com.eg.invoiceassessment.mapper.InvoiceMapper;
+import com.eg.invoiceassessment.metrics.InvoiceMetrics;
 import com.eg.invoiceassessment.repository.InvoiceRepository;
+import com.eg.invoiceassessment.repository.PaymentRepository;
+import com.eg.invoiceassessment.summary.ReceivablesAggregates;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = InvoiceMetrics.SERVICE_TIMER, histogram = true)
 public class InvoiceServiceImpl implements InvoiceService {
 
     private final InvoiceRepository invoiceRepository;
-
-    public InvoiceServiceImpl(InvoiceRepository invoiceRepository) {
+    private final ObjectMapper objectMapper;
+    private final OverdueInvoiceProcessor overdueInvoiceProcessor;
+    private final OverdueJobManager overdueJobManager;
+    private final InvoiceCache invoiceCache;
+    private final InvoiceBatchImporter invoiceBatchImporter;
+    private final PaymentBatchApplier paymentBatchApplier;
+    private final PaymentRepository paymentRepository;
+    private final InvoiceMetrics invoiceMetrics;
+    private final InvoiceEventRecorder invoiceEventRecorder;
+    private final InvoiceChangeFeed invoiceChangeFeed;
+    private final OverdueTimingWheel overdueTimingWheel;
+    private final ReceivablesAggregates receivablesAggregates;
+    private final boolean entityCacheEnabled;
+
+    public InvoiceServiceImpl(InvoiceRepository invoiceRepository, ObjectMapper objectMapper,
+                              OverdueInvoiceProcessor overdueInvoiceProcessor, OverdueJobManager overdueJobManager,
+                              InvoiceCache invoiceCache, InvoiceBatchImporter invoiceBatchImporter,
+                              PaymentBatchApplier paymentBatchApplier,
+                              PaymentRepository paymentRepository, InvoiceMetrics invoiceMetrics,
+                              InvoiceEventRecorder invoiceEventRecorder, InvoiceChangeFeed invoiceChangeFeed,
+                              OverdueTimingWheel overdueTimingWheel, ReceivablesAggregates receivablesAggregates,
+                              @Value("${invoice.entity-cache.enabled:false}") boolean entityCacheEnabled) {
         this.invoiceRepository = invoiceRepository;
+        this.objectMapper = objectMapper;
+        this.overdueInvoiceProcessor = overdueInvoiceProcessor;
+        this.overdueJobManager = overdueJobManager;
+        this.invoiceCache = invoiceCache;
+        this.invoiceBatchImporter = invoiceBatchImporter;
+        this.paymentBatchApplier = paymentBatchApplier;
+        this.paymentRepository = paymentRepository;
+        this.invoiceMetrics = invoiceMetrics;
+        this.invoiceEventRecorder = invoiceEventRecorder;
+        this.invoiceChangeFeed = invoiceChangeFeed;
+        this.overdueTimingWheel = overdueTimingWheel;
+        this.receivablesAggregates = receivablesAggregates;
+        this.entityCacheEnabled = entityCacheEnabled;
     }
 
 
@@ -34,81 +101,233 @@ public class InvoiceServiceImpl implements InvoiceService {
     @Transactional
     public InvoiceResponse createInvoice(InvoiceRequest request) {
         Invoice invoice = invoiceRepository.save(InvoiceMapper.toEntity(request));
-        return new InvoiceResponse(invoice.getId(),invoice.getAmount(),
-                invoice.getPaidAmount(),invoice.getDueDate(), invoice.getStatus().name());
+        invoiceEventRecorder.record(Change.created(invoice, null));
+        overdueTimingWheel.addAfterCommit(List.of(invoice));
+        receivablesAggregates.createdAfterCommit(List.of(invoice));
+        InvoiceResponse response = new InvoiceResponse(invoice.getId(),invoice.getAmount(),
+                invoice.getPaidAmount(),invoice.getCurrency(),invoice.getDueDate(), invoice.getStatus().name());
+        invoiceCache.putAfterCommit(response);
+        return response;
     }
 
 
+    // Not transactional: the importer commits every chunk on its own
     @Override
-    public List<InvoiceResponse> getAllInvoices() {
-        List<Invoice> invoices = invoiceRepository.findAll();
-        // If no invoices are found, return an empty list
-        if (invoices.isEmpty()) {
-            return List.of();
+    public InvoiceBatchResult createInvoices(InputStream body) {
+        return invoiceBatchImporter.importInvoices(body);
+    }
+
+
+    @Override
+    @Transactional(readOnly = true)
+    public InvoicePage getInvoices(Long cursor, int size, InvoiceFilter filter) {
+        // Fetch one row more than requested so we know whether another page exists
+        long afterId = cursor == null ? 0L : cursor;
+        List<InvoiceResponse> rows = filter.status() == null
+                ? invoiceRepository.findPage(afterId, filter.dueFrom(), filter.dueTo(), Limit.of(size + 1))
+                : invoiceRepository.findPageByStatus(afterId, filter.status(), filter.dueFrom(), filter.dueTo(), Limit.of(size + 1));
+        if (rows.size() <= size) {
+            return new InvoicePage(rows, null);
         }
-        // Convert list of entities to list of response DTOs
-        return invoices.stream()
-                .map(InvoiceMapper::toResponse)
-                .collect(Collectors.toList());
+        List<InvoiceResponse> items = rows.subList(0, size);
+        return new InvoicePage(items, items.get(size - 1).id());
     }
 
 
-    @Transactional
+    /**
+     * Writes every matching invoice as one JSON document per line. Rows are read through a forward-only
+     * cursor as projections, never as managed entities, so memory use does not grow with the result size.
+     */
     @Override
-    public InvoiceResponse payInvoice(Long id, PaymentRequest paymentRequest) {
-        Invoice invoice = invoiceRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Invoice not found with ID: " + id));
+    @Transactional(readOnly = true)
+    public void exportInvoices(InvoiceFilter filter, OutputStream out) throws IOException {
+        try (Stream<InvoiceResponse> invoices = filter.status() == null
+                ? invoiceRepository.streamAll(filter.dueFrom(), filter.dueTo())
+                : invoiceRepository.streamAllByStatus(filter.status(), filter.dueFrom(), filter.dueTo());
+             SequenceWriter writer = objectMapper.writerFor(InvoiceResponse.class)
+                     .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                     .withRootValueSeparator("\n")
+                     .writeValues(out)) {
+            for (InvoiceResponse invoice : (Iterable<InvoiceResponse>) invoices::iterator) {
+                writer.write(invoice);
+            }
+        }
+    }
 
-        double remainingAmount = invoice.getAmount() - invoice.getPaidAmount();
 
-        if (paymentRequest.amount() > remainingAmount) {
-            throw new InvalidRequestPayloadException("Payment amount exceeds the remaining balance");
+    @Transactional
+    @Override
+    public InvoiceResponse payInvoice(Long id, PaymentRequest paymentRequest) {
+        LocalDateTime now = LocalDateTime.now();
+        Invoice updatedInvoice = entityCacheEnabled
+                ? applyPaymentToEntity(id, paymentRequest.amount(), now)
+                : applyPaymentInPlace(id, paymentRequest.amount(), now);
+        // Recorded in the same transaction as the balance update, so the ledger always sums to paidAmount
+        paymentRepository.save(new Payment(id, paymentRequest.amount(), now));
+
+        Change payment = Change.paymentApplied(id, paymentRequest.amount(), updatedInvoice.getStatus());
+        // Only PENDING invoices take payments, so PAID here means this payment changed the status
+        boolean settled = updatedInvoice.getStatus() == Invoice.Status.PAID;
+        if (settled) {
+            invoiceEventRecorder.record(List.of(payment, Change.statusChanged(id, Invoice.Status.PAID, null)));
+            overdueTimingWheel.removeAfterCommit(List.of(updatedInvoice));
+        } else {
+            invoiceEventRecorder.record(payment);
         }
+        receivablesAggregates.paidAfterCommit(updatedInvoice, paymentRequest.amount());
+        invoiceCache.invalidateAfterCommit(id);
+        invoiceMetrics.paymentsAcceptedAfterCommit(1);
+        return InvoiceMapper.toResponse(updatedInvoice);
+    }
 
-        invoice.setPaidAmount(invoice.getPaidAmount() + paymentRequest.amount());
+    /**
+     * Applies the payment with one conditional UPDATE, so concurrent payments to the same invoice neither lose
+     * updates nor overpay and only wait for each other's row lock, not for a locking read first.
+     */
+    private Invoice applyPaymentInPlace(Long id, long amount, LocalDateTime now) {
+        int updated = invoiceRepository.applyPayment(id, amount, Invoice.Status.PENDING, Invoice.Status.PAID, now);
+        if (updated == 0) {
+            Invoice invoice = invoiceRepository.findById(id).orElseThrow(() -> paymentNotFound(id));
+            if (invoice.getPaidAmount() + amount > invoice.getAmount()) {
+                throw paymentExceedingBalance();
+            }
+            throw paymentToClosedInvoice(invoice.getStatus());
+        }
+        return invoiceRepository.findById(id).orElseThrow(() -> paymentNotFound(id));
+    }
 
+    /**
+     * Applies the payment to the locked entity. Used when the second-level cache is on, because a bulk UPDATE
+     * would make Hibernate evict every cached invoice; this way only this invoice's entry is replaced at commit.
+     */
+    private Invoice applyPaymentToEntity(Long id, long amount, LocalDateTime now) {
+        Invoice invoice = invoiceRepository.lockById(id).orElseThrow(() -> paymentNotFound(id));
+        if (invoice.getPaidAmount() + amount > invoice.getAmount()) {
+            throw paymentExceedingBalance();
+        }
+        if (invoice.getStatus() != Invoice.Status.PENDING) {
+            throw paymentToClosedInvoice(invoice.getStatus());
+        }
+        invoice.setPaidAmount(invoice.getPaidAmount() + amount);
         if (invoice.getPaidAmount() >= invoice.getAmount()) {
             invoice.setStatus(Invoice.Status.PAID);
+            if (invoice.getPaidOn() == null) {
+                invoice.setPaidOn(now);
+            }
         }
+        return invoice;
+    }
 
-        Invoice updatedInvoice = invoiceRepository.save(invoice);
-        return InvoiceMapper.toResponse(updatedInvoice);
+    private ResourceNotFoundException paymentNotFound(Long id) {
+        invoiceMetrics.paymentNotFound();
+        return new ResourceNotFoundException("Invoice not found with ID: " + id);
     }
 
+    private InvalidRequestPayloadException paymentExceedingBalance() {
+        invoiceMetrics.paymentExceedingBalance();
+        return new InvalidRequestPayloadException("Payment amount exceeds the remaining balance");
+    }
 
-    @Transactional
+    /**
+     * Overdue processing moves what is left of an invoice, with the late fee, to a follow-up invoice, so a
+     * closed invoice takes no more payments; they belong to the follow-up.
+     */
+    private InvalidRequestPayloadException paymentToClosedInvoice(Invoice.Status status) {
+        invoiceMetrics.paymentToClosedInvoice();
+        return new InvalidRequestPayloadException("Invoice is " + status + " and accepts no more payments");
+    }
+
+
+    // Not transactional: the applier commits every chunk on its own
     @Override
-        public void processOverdueInvoices(ProcessOverdueInvoiceRequest request) {
-        List<Invoice> overdueInvoices = invoiceRepository
-                .findByDueDateBeforeAndStatus(LocalDate.now(), Invoice.Status.PENDING);
+    public PaymentBatchResult applyPayments(InputStream body) {
+        return paymentBatchApplier.applyPayments(body);
+    }
 
-        for(Invoice invoice : overdueInvoices) {
 
-            if (invoice.getPaidAmount() > 0 ) {
-                invoice.setStatus(Invoice.Status.PAID);
-                invoice.setPaidOn(LocalDateTime.now());
-            }
-            if (invoice.getPaidAmount() == 0.0) {
-                invoice.setStatus(Invoice.Status.VOID);
-            }
+    @Override
+    @Transactional(readOnly = true)
+    public PaymentPage getPayments(Long invoiceId, Long cursor, int size) {
+        if (!invoiceRepository.existsById(invoiceId)) {
+            throw new ResourceNotFoundException("Invoice not found with ID: " + invoiceId);
+        }
+        List<PaymentResponse> rows = paymentRepository.findPage(invoiceId, cursor == null ? 0L : cursor, Limit.of(size + 1));
+        if (rows.size() <= size) {
+            return new PaymentPage(rows, null);
+        }
+        List<PaymentResponse> items = rows.subList(0, size);
+        return new PaymentPage(items, items.get(size - 1).id());
+    }
 
-            invoiceRepository.save(invoice);
 
-            Invoice newInvoice = new Invoice();
-            newInvoice.setAmount(invoice.getAmount() - invoice.getPaidAmount() + request.lateFees());
-            newInvoice.setDueDate(LocalDate.now().plusDays(request.overduedays()));
-            invoiceRepository.save(newInvoice);
+    @Override
+    public CompletableFuture<InvoiceChangePage> getChanges(long since, int limit, Duration wait) {
+        return invoiceChangeFeed.poll(since, limit, wait);
+    }
 
+
+    @Override
+    public ReceivablesSummary getSummary() {
+        if (!receivablesAggregates.isReady()) {
+            throw new ServiceUnavailableException("Receivables summary is still being built, retry later");
         }
+        return receivablesAggregates.summarize(LocalDate.now());
+    }
+
+
+    // Not transactional: the processor commits every chunk on its own
+    @Override
+    public void processOverdueInvoices(ProcessOverdueInvoiceRequest request) {
+        overdueInvoiceProcessor.process(request);
+    }
+
+    @Override
+    public OverdueJobStatus submitOverdueJob(ProcessOverdueInvoiceRequest request) {
+        return overdueJobManager.submit(request);
+    }
+
+    @Override
+    public OverdueJobStatus getOverdueJob(String jobId) {
+        return overdueJobManager.find(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Overdue job not found with ID: " + jobId));
     }
 
     @Override
     public InvoiceResponse getInvoiceById(Long id) {
+        InvoiceResponse invoice = invoiceCache.get(id, this::loadInvoice);
+        if (invoice == null) {
+            throw new ResourceNotFoundException("Invoice not found");
+        }
+        return invoice;
+    }
 
-        Invoice invoice = invoiceRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Invoice not found"));
+    /**
+     * Loads the entity when the second-level cache is on, so a miss here may still be served from memory;
+     * otherwise the projection, which skips hydrating an entity.
+     */
+    private InvoiceResponse loadInvoice(Long id) {
+        if (entityCacheEnabled) {
+            return invoiceRepository.findById(id).map(InvoiceMapper::toResponse).orElse(null);
+        }
+        return invoiceRepository.findResponseById(id).orElse(null);
+    }
 
-        return InvoiceMapper.toResponse(invoice);
+    /**
+     * Looks the IDs up in the cache and loads the rest with one {@code IN} query. Invoices are returned in the
+     * order of their first occurrence in {@code ids}; unknown IDs are left out.
+     */
+    @Override
+    public List<InvoiceResponse> getInvoicesByIds(List<Long> ids) {
+        Map<Long, InvoiceResponse> found = invoiceCache.getAll(ids, this::loadInvoices);
+        return ids.stream().distinct().map(found::get).filter(Objects::nonNull).toList();
+    }
 
+    private Map<Long, InvoiceResponse> loadInvoices(Collection<Long> ids) {
+        Map<Long, InvoiceResponse> invoices = new HashMap<>(ids.size() * 2);
+        for (InvoiceResponse invoice : invoiceRepository.findResponsesByIds(ids)) {
+            invoices.put(invoice.id(), invoice);
+        }
+        return invoices;
     }
 
 
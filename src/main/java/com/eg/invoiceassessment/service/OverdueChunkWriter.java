@@ -0,0 +1,150 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.cache.InvoiceCache;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.entity.LateFeePolicy;
+import com.eg.invoiceassessment.events.InvoiceEventRecorder;
+import com.eg.invoiceassessment.events.InvoiceEventRecorder.Change;
+import com.eg.invoiceassessment.repository.InvoiceRepository;
+import com.eg.invoiceassessment.summary.ReceivablesAggregates;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Closes one chunk of overdue invoices: reads and locks the next rows by keyset (or by ID for the incremental run),
+ * flips their status with two bulk {@code UPDATE}s by ID, batch-inserts the follow-up invoices and records both in the
+ * outbox, the {@link OverdueTimingWheel} and the receivables totals. Callers own the surrounding transaction and store the returned
+ * checkpoint in it.
+ */
+@Component
+public class OverdueChunkWriter {
+
+    private final InvoiceRepository invoiceRepository;
+    private final InvoiceCache invoiceCache;
+    private final InvoiceEventRecorder invoiceEventRecorder;
+    private final OverdueTimingWheel overdueTimingWheel;
+    private final ReceivablesAggregates receivablesAggregates;
+    private final int chunkSize;
+
+    public OverdueChunkWriter(InvoiceRepository invoiceRepository, InvoiceCache invoiceCache,
+                              InvoiceEventRecorder invoiceEventRecorder, OverdueTimingWheel overdueTimingWheel,
+                              ReceivablesAggregates receivablesAggregates,
+                              @Value("${invoice.overdue.chunk-size:500}") int chunkSize) {
+        this.invoiceRepository = invoiceRepository;
+        this.invoiceCache = invoiceCache;
+        this.invoiceEventRecorder = invoiceEventRecorder;
+        this.overdueTimingWheel = overdueTimingWheel;
+        this.receivablesAggregates = receivablesAggregates;
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Processes overdue invoices with {@code afterId < id <= maxId}, at most {@code chunkSize} of them. An overdue
+     * row committed into the chunk's ID range after it was read is left alone, and the checkpoint stops short of
+     * it so the next chunk picks it up.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public ChunkResult closeNextChunk(long afterId, long maxId, LocalDate cutoff, LateFeePolicy lateFee, int overdueDays) {
+        List<Invoice> chunk = invoiceRepository.findOverdueChunk(afterId, maxId, cutoff, Invoice.Status.PENDING,
+                Limit.of(chunkSize));
+        if (chunk.isEmpty()) {
+            return new ChunkResult(afterId, 0, 0, 0, false);
+        }
+
+        List<Long> ids = chunk.stream().map(Invoice::getId).toList();
+        LocalDateTime now = LocalDateTime.now();
+        int paid = invoiceRepository.closePartiallyPaidByIds(ids, Invoice.Status.PAID, now);
+        int voided = invoiceRepository.closeUnpaidByIds(ids, Invoice.Status.VOID, now);
+        ChunkResult result = createFollowUps(chunk, paid, voided, lateFee, overdueDays);
+
+        // Pooled ID allocation lets another node commit a row below lastId after the chunk was read
+        Long straggler = invoiceRepository.findFirstOverdueId(afterId, result.lastId(), cutoff, Invoice.Status.PENDING);
+        if (straggler != null) {
+            return new ChunkResult(straggler - 1, result.scanned(), paid, voided, true);
+        }
+        return new ChunkResult(result.lastId(), result.scanned(), paid, voided, chunk.size() == chunkSize);
+    }
+
+    /**
+     * Processes the invoices among {@code ids} that are still overdue. The IDs need not be contiguous, so the
+     * incremental run can pass exactly the invoices that became overdue.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public ChunkResult closeChunk(List<Long> ids, LocalDate cutoff, LateFeePolicy lateFee, int overdueDays) {
+        List<Invoice> chunk = invoiceRepository.lockByIds(ids).stream()
+                .filter(invoice -> invoice.getStatus() == Invoice.Status.PENDING && invoice.getDueDate().isBefore(cutoff))
+                .toList();
+        if (chunk.isEmpty()) {
+            return new ChunkResult(ids.get(ids.size() - 1), 0, 0, 0, false);
+        }
+
+        List<Long> overdueIds = chunk.stream().map(Invoice::getId).toList();
+        LocalDateTime now = LocalDateTime.now();
+        int paid = invoiceRepository.closePartiallyPaidByIds(overdueIds, Invoice.Status.PAID, now);
+        int voided = invoiceRepository.closeUnpaidByIds(overdueIds, Invoice.Status.VOID, now);
+        return createFollowUps(chunk, paid, voided, lateFee, overdueDays);
+    }
+
+    private ChunkResult createFollowUps(List<Invoice> chunk, int paid, int voided, LateFeePolicy lateFee, int overdueDays) {
+        List<Long> ids = new ArrayList<>(chunk.size());
+        List<Invoice> followUps = new ArrayList<>(chunk.size());
+        LocalDate followUpDueDate = LocalDate.now().plusDays(overdueDays);
+        for (Invoice invoice : chunk) {
+            ids.add(invoice.getId());
+
+            Invoice newInvoice = new Invoice();
+            long outstanding = invoice.getAmount() - invoice.getPaidAmount();
+            newInvoice.setAmount(outstanding + lateFee.feeFor(outstanding));
+            newInvoice.setCurrency(invoice.getCurrency());
+            newInvoice.setDueDate(followUpDueDate);
+            followUps.add(newInvoice);
+        }
+
+        invoiceRepository.saveAll(followUps);
+        invoiceEventRecorder.record(changes(chunk, followUps));
+        invoiceCache.invalidateAfterCommit(ids);
+        overdueTimingWheel.removeAfterCommit(chunk);
+        overdueTimingWheel.addAfterCommit(followUps);
+        receivablesAggregates.closedAfterCommit(chunk);
+        receivablesAggregates.createdAfterCommit(followUps);
+
+        return new ChunkResult(ids.get(ids.size() - 1), chunk.size(), paid, voided, false);
+    }
+
+    private static List<Change> changes(List<Invoice> chunk, List<Invoice> followUps) {
+        List<Change> changes = new ArrayList<>(chunk.size() * 2);
+        for (int i = 0; i < chunk.size(); i++) {
+            Invoice invoice = chunk.get(i);
+            Invoice followUp = followUps.get(i);
+            // Same split as closePartiallyPaidByIds / closeUnpaidByIds; the entities still hold the pre-update values
+            Invoice.Status closedAs = invoice.getPaidAmount() > 0 ? Invoice.Status.PAID : Invoice.Status.VOID;
+            changes.add(Change.statusChanged(invoice.getId(), closedAs, followUp.getId()));
+            changes.add(Change.created(followUp, invoice.getId()));
+        }
+        return changes;
+    }
+
+    /**
+     * Outcome of one chunk. {@code lastId} is the new checkpoint; every closed invoice gets one follow-up,
+     * so {@code scanned} is also the number of follow-ups created. {@code more} is set when the range may
+     * still hold overdue rows after the checkpoint.
+     */
+    public record ChunkResult(long lastId, int scanned, int paid, int voided, boolean more) {
+
+        public int updated() {
+            return paid + voided;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.dto.ProcessOverdueInvoiceRequest;
+import com.eg.invoiceassessment.entity.LateFeePolicy;
+import com.eg.invoiceassessment.entity.OverdueRun;
+import com.eg.invoiceassessment.exception.ServiceUnavailableException;
+import com.eg.invoiceassessment.metrics.InvoiceMetrics;
+import com.eg.invoiceassessment.repository.OverdueRunRepository;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Closes overdue PENDING invoices and creates their follow-up invoices in chunks.
+ * <p>
+ * Each chunk is read by keyset on {@code id}, closed with two bulk {@code UPDATE}s, gets its follow-ups
+ * inserted through JDBC batching, and is committed together with the run checkpoint. Locks are therefore
+ * held for one chunk at a time, and a crashed run picks up after the last committed chunk. Every chunk renews
+ * the run's {@code updatedAt}; a RUNNING run is only taken over once that is older than
+ * {@code invoice.overdue.lease-duration}, so a run still in progress on another node is left to it.
+ * <p>
+ * With {@code invoice.overdue.parallelism} above 1 the run is handed to {@link PartitionedOverdueProcessor},
+ * which keeps its checkpoints per partition instead.
+ */
+@Component
+public class OverdueInvoiceProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(OverdueInvoiceProcessor.class);
+
+    private final OverdueRunRepository overdueRunRepository;
+    private final OverdueChunkWriter chunkWriter;
+    private final PartitionedOverdueProcessor partitionedProcessor;
+    private final TransactionTemplate transactionTemplate;
+    private final InvoiceMetrics invoiceMetrics;
+    private final int parallelism;
+    private final Duration leaseDuration;
+
+    public OverdueInvoiceProcessor(OverdueRunRepository overdueRunRepository,
+                                   OverdueChunkWriter chunkWriter,
+                                   PartitionedOverdueProcessor partitionedProcessor,
+                                   PlatformTransactionManager transactionManager,
+                                   InvoiceMetrics invoiceMetrics,
+                                   @Value("${invoice.overdue.parallelism:1}") int parallelism,
+                                   @Value("${invoice.overdue.lease-duration:PT2M}") Duration leaseDuration) {
+        this.overdueRunRepository = overdueRunRepository;
+        this.chunkWriter = chunkWriter;
+        this.partitionedProcessor = partitionedProcessor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.invoiceMetrics = invoiceMetrics;
+        this.parallelism = parallelism;
+        this.leaseDuration = leaseDuration;
+    }
+
+    /**
+     * Processes every invoice that was due before today. If an earlier run for the same cutoff date failed or
+     * stopped renewing its lease, that run is resumed with its original late fee and overdue days; one another
+     * node is still running fails with {@link ServiceUnavailableException}.
+     */
+    public void process(ProcessOverdueInvoiceRequest request) {
+        process(request, LocalDate.now(), OverdueProgressListener.NONE);
+    }
+
+    /**
+     * Same as {@link #process(ProcessOverdueInvoiceRequest)}, reporting every committed chunk to {@code progress}.
+     */
+    public void process(ProcessOverdueInvoiceRequest request, LocalDate cutoff, OverdueProgressListener progress) {
+        process(LateFeePolicy.flat(request.lateFees()), request.overduedays(), cutoff, progress);
+    }
+
+    /**
+     * Processes every invoice due before {@code cutoff}, charging {@code lateFee} on the follow-ups. A listener
+     * that throws stops the run after the chunk it was told about; the run can be resumed later.
+     */
+    public void process(LateFeePolicy lateFee, int overdueDays, LocalDate cutoff, OverdueProgressListener progress) {
+        String mode = parallelism > 1 ? "partitioned" : "sequential";
+        OverdueProgressListener counted = invoiceMetrics.countingOverdueRows(progress);
+        Timer.Sample sample = invoiceMetrics.startOverdueRun();
+        try {
+            if (parallelism > 1) {
+                partitionedProcessor.process(lateFee, overdueDays, cutoff, parallelism, counted);
+            } else {
+                processSequentially(lateFee, overdueDays, cutoff, counted);
+            }
+        } catch (RuntimeException e) {
+            invoiceMetrics.stopOverdueRun(sample, mode, "failed");
+            throw e;
+        }
+        invoiceMetrics.stopOverdueRun(sample, mode, "completed");
+    }
+
+    private void processSequentially(LateFeePolicy lateFee, int overdueDays, LocalDate cutoff,
+                                     OverdueProgressListener progress) {
+        OverdueRun run = startOrResume(cutoff, lateFee, overdueDays);
+        try {
+            OverdueChunkWriter.ChunkResult chunk;
+            do {
+                chunk = transactionTemplate.execute(status -> processChunk(run));
+                progress.chunkCommitted(chunk.scanned(), chunk.updated());
+            } while (chunk.more());
+        } catch (RuntimeException e) {
+            OverdueRun failed = finish(run.getId(), OverdueRun.Status.FAILED);
+            logger.error("Overdue run {} failed after invoice ID {}", failed.getId(), failed.getLastProcessedId(), e);
+            throw e;
+        }
+
+        OverdueRun completed = finish(run.getId(), OverdueRun.Status.COMPLETED);
+        logger.info("Overdue run {} completed: scanned {}, paid {}, voided {}, follow-ups {}", completed.getId(),
+                completed.getRowsScanned(), completed.getRowsPaid(), completed.getRowsVoided(), completed.getFollowUpsCreated());
+    }
+
+    private OverdueRun startOrResume(LocalDate cutoff, LateFeePolicy lateFee, int overdueDays) {
+        return transactionTemplate.execute(status -> {
+            OverdueRun existing = overdueRunRepository
+                    .findFirstByCutoffDateAndStatusNotOrderByIdDesc(cutoff, OverdueRun.Status.COMPLETED)
+                    .orElse(null);
+            if (existing == null) {
+                return overdueRunRepository.save(new OverdueRun(cutoff, lateFee, overdueDays));
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (existing.getStatus() == OverdueRun.Status.RUNNING
+                    && existing.getUpdatedAt().isAfter(now.minus(leaseDuration))) {
+                throw new ServiceUnavailableException("Overdue run " + existing.getId() + " for " + cutoff
+                        + " is still running, retry later");
+            }
+            if (!existing.getLateFeePolicy().equals(lateFee) || existing.getOverdueDays() != overdueDays) {
+                logger.warn("Resuming overdue run {} with its original late fee {} and overdue days {}",
+                        existing.getId(), existing.getLateFeePolicy(), existing.getOverdueDays());
+            }
+            logger.info("Resuming overdue run {} after invoice ID {}", existing.getId(), existing.getLastProcessedId());
+            existing.setStatus(OverdueRun.Status.RUNNING);
+            existing.setUpdatedAt(now);
+            return overdueRunRepository.save(existing);
+        });
+    }
+
+    /**
+     * Runs inside one transaction. A result without {@code more} is the last chunk.
+     */
+    private OverdueChunkWriter.ChunkResult processChunk(OverdueRun run) {
+        OverdueChunkWriter.ChunkResult chunk = chunkWriter.closeNextChunk(run.getLastProcessedId(), Long.MAX_VALUE,
+                run.getCutoffDate(), run.getLateFeePolicy(), run.getOverdueDays());
+        if (chunk.scanned() == 0) {
+            return chunk;
+        }
+
+        run.setLastProcessedId(chunk.lastId());
+        run.setRowsScanned(run.getRowsScanned() + chunk.scanned());
+        run.setRowsPaid(run.getRowsPaid() + chunk.paid());
+        run.setRowsVoided(run.getRowsVoided() + chunk.voided());
+        run.setFollowUpsCreated(run.getFollowUpsCreated() + chunk.scanned());
+        run.setUpdatedAt(LocalDateTime.now());
+        overdueRunRepository.save(run);
+
+        logger.info("Overdue run {} progress: scanned {}, paid {}, voided {}, last invoice ID {}", run.getId(),
+                run.getRowsScanned(), run.getRowsPaid(), run.getRowsVoided(), run.getLastProcessedId());
+        return chunk;
+    }
+
+    /**
+     * Marks the run finished. The checkpoint is re-read rather than taken from memory, because a chunk whose
+     * commit failed may already have advanced the in-memory copy.
+     */
+    private OverdueRun finish(Long runId, OverdueRun.Status status) {
+        return transactionTemplate.execute(tx -> {
+            OverdueRun run = overdueRunRepository.findById(runId).orElseThrow();
+            run.setStatus(status);
+            run.setFinishedAt(LocalDateTime.now());
+            run.setUpdatedAt(run.getFinishedAt());
+            return run;
+        });
+    }
+}
@@ -0,0 +1,138 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.dto.OverdueJobStatus;
+import com.eg.invoiceassessment.dto.ProcessOverdueInvoiceRequest;
+import com.eg.invoiceassessment.exception.ServiceUnavailableException;
+import com.eg.invoiceassessment.metrics.InvoiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs overdue processing in the background and keeps track of its progress.
+ * <p>
+ * At most one job is active per cutoff date; submitting again while it runs returns the running job.
+ * Finished jobs stay queryable for {@code invoice.overdue.jobs.retention}.
+ */
+@Component
+public class OverdueJobManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(OverdueJobManager.class);
+
+    private final OverdueInvoiceProcessor overdueInvoiceProcessor;
+    private final TaskExecutor executor;
+    private final Duration retention;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<LocalDate, Job> activeByCutoff = new ConcurrentHashMap<>();
+
+    public OverdueJobManager(OverdueInvoiceProcessor overdueInvoiceProcessor,
+                             @Qualifier("overdueJobExecutor") TaskExecutor executor,
+                             @Value("${invoice.overdue.jobs.retention:PT1H}") Duration retention,
+                             InvoiceMetrics invoiceMetrics) {
+        this.overdueInvoiceProcessor = overdueInvoiceProcessor;
+        this.executor = executor;
+        this.retention = retention;
+        invoiceMetrics.gaugeActiveOverdueJobs(activeByCutoff);
+    }
+
+    public OverdueJobStatus submit(ProcessOverdueInvoiceRequest request) {
+        pruneFinishedJobs();
+
+        LocalDate cutoff = LocalDate.now();
+        Job candidate = new Job(UUID.randomUUID().toString(), cutoff);
+        Job job = activeByCutoff.putIfAbsent(cutoff, candidate);
+        if (job != null) {
+            logger.info("Overdue job {} already running for cutoff {}", job.id, cutoff);
+            return job.toStatus();
+        }
+
+        jobs.put(candidate.id, candidate);
+        try {
+            executor.execute(() -> run(candidate, request));
+        } catch (TaskRejectedException e) {
+            jobs.remove(candidate.id);
+            activeByCutoff.remove(cutoff, candidate);
+            logger.warn("Overdue job rejected for cutoff {}: executor is saturated", cutoff);
+            throw new ServiceUnavailableException("Overdue processing is busy, retry later");
+        }
+        logger.info("Overdue job {} submitted for cutoff {}", candidate.id, cutoff);
+        return candidate.toStatus();
+    }
+
+    public Optional<OverdueJobStatus> find(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(Job::toStatus);
+    }
+
+    private void run(Job job, ProcessOverdueInvoiceRequest request) {
+        job.state = State.RUNNING;
+        job.startedAt = LocalDateTime.now();
+        job.startNanos = System.nanoTime();
+        try {
+            overdueInvoiceProcessor.process(request, job.cutoffDate, (scanned, updated) -> {
+                job.rowsScanned.addAndGet(scanned);
+                job.rowsUpdated.addAndGet(updated);
+            });
+            job.state = State.COMPLETED;
+        } catch (RuntimeException e) {
+            job.error = e.getMessage();
+            job.state = State.FAILED;
+        } finally {
+            job.endNanos = System.nanoTime();
+            job.finishedAt = LocalDateTime.now();
+            activeByCutoff.remove(job.cutoffDate, job);
+            logger.info("Overdue job {} finished as {} after {} rows", job.id, job.state, job.rowsScanned.get());
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(threshold));
+    }
+
+    private enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private static final class Job {
+        private final String id;
+        private final LocalDate cutoffDate;
+        private final AtomicLong rowsScanned = new AtomicLong();
+        private final AtomicLong rowsUpdated = new AtomicLong();
+        private volatile State state = State.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile long startNanos;
+        private volatile long endNanos;
+        private volatile String error;
+
+        private Job(String id, LocalDate cutoffDate) {
+            this.id = id;
+            this.cutoffDate = cutoffDate;
+        }
+
+        private OverdueJobStatus toStatus() {
+            long scanned = rowsScanned.get();
+            double rowsPerSecond = 0;
+            if (startedAt != null) {
+                long elapsed = (finishedAt != null ? endNanos : System.nanoTime()) - startNanos;
+                rowsPerSecond = elapsed > 0 ? scanned * 1_000_000_000d / elapsed : 0;
+            }
+            return new OverdueJobStatus(id, cutoffDate, state.name(), scanned, rowsUpdated.get(), rowsPerSecond,
+                    startedAt, finishedAt, error);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.entity.LateFeePolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * How the service closes overdue invoices on its own, in scheduled and incremental runs: the late fee, how
+ * many days after the due date an invoice counts as overdue, and when its follow-up falls due. Runs started
+ * through {@code POST /process-overdue} take the flat fee and follow-up days from the request instead and
+ * have no grace period.
+ */
+@Component
+public class OverduePolicy {
+
+    private final LateFeePolicy lateFee;
+    private final int graceDays;
+    private final int followUpDays;
+
+    public OverduePolicy(@Value("${invoice.overdue.policy.late-fee:0}") long flatFee,
+                         @Value("${invoice.overdue.policy.late-fee-basis-points:0}") int basisPoints,
+                         @Value("${invoice.overdue.policy.late-fee-cap:0}") long cap,
+                         @Value("${invoice.overdue.policy.grace-days:0}") int graceDays,
+                         @Value("${invoice.overdue.policy.follow-up-days:30}") int followUpDays) {
+        if (flatFee < 0 || basisPoints < 0 || cap < 0 || graceDays < 0 || followUpDays <= 0) {
+            throw new IllegalArgumentException("Invalid invoice.overdue.policy settings");
+        }
+        this.lateFee = new LateFeePolicy(flatFee, basisPoints, cap);
+        this.graceDays = graceDays;
+        this.followUpDays = followUpDays;
+    }
+
+    public LateFeePolicy getLateFee() {
+        return lateFee;
+    }
+
+    public int getFollowUpDays() {
+        return followUpDays;
+    }
+
+    /**
+     * Invoices due before the returned date are overdue on {@code today}.
+     */
+    public LocalDate cutoff(LocalDate today) {
+        return today.minusDays(graceDays);
+    }
+}
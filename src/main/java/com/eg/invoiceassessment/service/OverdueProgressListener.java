@@ -0,0 +1,13 @@
+package com.eg.invoiceassessment.service;
+
+/**
+ * Receives the row counts of each overdue chunk right after it commits. Partitioned runs call it from
+ * several worker threads at once.
+ */
+@FunctionalInterface
+public interface OverdueProgressListener {
+
+    OverdueProgressListener NONE = (rowsScanned, rowsUpdated) -> { };
+
+    void chunkCommitted(int rowsScanned, int rowsUpdated);
+}
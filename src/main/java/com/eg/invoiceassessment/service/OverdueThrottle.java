@@ -0,0 +1,38 @@
+package com.eg.invoiceassessment.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds an overdue run to at most {@code rowsPerSecond} scanned rows, averaged from the start of the run, by
+ * pausing after any chunk that got ahead of that rate. The pause falls between chunk transactions, so no row
+ * lock or pooled connection is held while waiting. Safe to share between the workers of a partitioned run.
+ */
+public class OverdueThrottle implements OverdueProgressListener {
+
+    private final long started = System.nanoTime();
+    private final double nanosPerRow;
+    private final AtomicLong rows = new AtomicLong();
+
+    public OverdueThrottle(int rowsPerSecond) {
+        if (rowsPerSecond <= 0) {
+            throw new IllegalArgumentException("rowsPerSecond must be positive");
+        }
+        this.nanosPerRow = 1_000_000_000.0 / rowsPerSecond;
+    }
+
+    @Override
+    public void chunkCommitted(int rowsScanned, int rowsUpdated) {
+        long total = rows.addAndGet(rowsScanned);
+        long ahead = started + (long) (total * nanosPerRow) - System.nanoTime();
+        if (ahead <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(Duration.ofNanos(ahead));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while throttling an overdue run", e);
+        }
+    }
+}
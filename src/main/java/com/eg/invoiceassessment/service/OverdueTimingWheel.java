@@ -0,0 +1,293 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.transaction.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory index of PENDING invoice IDs by due date, so the daily overdue run can find the invoices that just
+ * became overdue without querying the whole table.
+ * <p>
+ * Days from the current day on are kept in a wheel of {@link #WHEEL_DAYS} one-day slots; later due dates wait
+ * in an overflow map and move into the wheel as it turns. Advancing to a new day hands out the slots that
+ * fell behind, so the work per day is proportional to the invoices due on the days passed, not to the table.
+ * <p>
+ * The index may hold invoices that are no longer PENDING (the overdue run re-checks every row under a lock),
+ * but it must never miss one: it is loaded from the database at startup, and every write that creates or
+ * settles an invoice updates it once its transaction commits. IDs are stored as primitive {@code long}s,
+ * about 12 bytes per pending invoice; invoices that are already overdue are also indexed by ID, at several
+ * times that. Only in use with {@code invoice.overdue.incremental.enabled}.
+ */
+@Component
+public class OverdueTimingWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(OverdueTimingWheel.class);
+
+    static final int WHEEL_DAYS = 512;
+
+    private static final String LOAD_PENDING = "select id, due_date from invoices where status = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    private final Bucket[] slots = new Bucket[WHEEL_DAYS];
+    private final TreeMap<Long, Bucket> overflow = new TreeMap<>();
+    // Due before currentDay but not handed out yet: loaded at startup, created with a past due date or requeued.
+    // Indexed by ID, because this is where a backlog sits while the full scan closes it chunk by chunk
+    private Bucket overdue = Bucket.indexed();
+    // Slots hold the days [currentDay, currentDay + WHEEL_DAYS); starts at today's overdue cutoff
+    private long currentDay;
+    private long size;
+
+    public OverdueTimingWheel(JdbcTemplate jdbcTemplate, OverduePolicy policy,
+                              @Value("${invoice.overdue.incremental.enabled:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.currentDay = policy.cutoff(LocalDate.now()).toEpochDay();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(LOAD_PENDING);
+            statement.setFetchSize(1000);
+            statement.setString(1, Invoice.Status.PENDING.name());
+            return statement;
+        }, (RowCallbackHandler) row -> add(row.getLong(1), row.getObject(2, LocalDate.class).toEpochDay()));
+        logger.info("Loaded {} pending invoices into the overdue timing wheel in {} ms", size(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public synchronized LocalDate getCurrentDay() {
+        return LocalDate.ofEpochDay(currentDay);
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Tracks the given invoices once the current transaction commits.
+     */
+    public void addAfterCommit(List<Invoice> invoices) {
+        if (!enabled || invoices.isEmpty()) {
+            return;
+        }
+        long[] ids = ids(invoices);
+        long[] days = days(invoices);
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                for (int i = 0; i < ids.length; i++) {
+                    add(ids[i], days[i]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops tracking the given invoices once the current transaction commits.
+     */
+    public void removeAfterCommit(List<Invoice> invoices) {
+        if (!enabled || invoices.isEmpty()) {
+            return;
+        }
+        long[] ids = ids(invoices);
+        long[] days = days(invoices);
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                for (int i = 0; i < ids.length; i++) {
+                    remove(ids[i], days[i]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Turns the wheel to {@code cutoff} and returns the IDs of every tracked invoice due before it, in no
+     * particular order. They are no longer tracked; hand back the ones that could not be processed through
+     * {@link #requeue(long[])}. Returns an empty array if {@code cutoff} is not after the current day.
+     */
+    public synchronized long[] advanceTo(LocalDate cutoff) {
+        long target = cutoff.toEpochDay();
+        if (target <= currentDay) {
+            return new long[0];
+        }
+
+        Bucket due = new Bucket();
+        due.addAll(overdue);
+        overdue = Bucket.indexed();
+        for (long day = currentDay; day < Math.min(target, currentDay + WHEEL_DAYS); day++) {
+            int slot = slot(day);
+            if (slots[slot] != null) {
+                due.addAll(slots[slot]);
+                slots[slot] = null;
+            }
+        }
+        currentDay = target;
+
+        // Bring the days that now fit into the wheel over from the overflow; after a long pause some may be due
+        for (Iterator<Map.Entry<Long, Bucket>> it = overflow.headMap(target + WHEEL_DAYS).entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Bucket> entry = it.next();
+            if (entry.getKey() < target) {
+                due.addAll(entry.getValue());
+            } else {
+                slots[slot(entry.getKey())] = entry.getValue();
+            }
+            it.remove();
+        }
+
+        size -= due.size;
+        return due.toArray();
+    }
+
+    /**
+     * Tracks {@code ids} again as overdue, to be handed out on the next {@link #advanceTo(LocalDate)}.
+     */
+    public synchronized void requeue(long[] ids) {
+        for (long id : ids) {
+            if (overdue.add(id)) {
+                size++;
+            }
+        }
+    }
+
+    synchronized void add(long id, long day) {
+        if (bucketFor(day, true).add(id)) {
+            size++;
+        }
+    }
+
+    synchronized void remove(long id, long day) {
+        Bucket bucket = bucketFor(day, false);
+        if (bucket != null && bucket.remove(id)) {
+            size--;
+        }
+    }
+
+    private Bucket bucketFor(long day, boolean create) {
+        if (day < currentDay) {
+            return overdue;
+        }
+        if (day < currentDay + WHEEL_DAYS) {
+            int slot = slot(day);
+            if (slots[slot] == null && create) {
+                slots[slot] = new Bucket();
+            }
+            return slots[slot];
+        }
+        return create ? overflow.computeIfAbsent(day, d -> new Bucket()) : overflow.get(day);
+    }
+
+    private static int slot(long day) {
+        return (int) Math.floorMod(day, (long) WHEEL_DAYS);
+    }
+
+    private static long[] ids(List<Invoice> invoices) {
+        return invoices.stream().mapToLong(Invoice::getId).toArray();
+    }
+
+    private static long[] days(List<Invoice> invoices) {
+        return invoices.stream().mapToLong(invoice -> invoice.getDueDate().toEpochDay()).toArray();
+    }
+
+
+    /**
+     * IDs due on one day. Removal scans the bucket, which at a few tens of thousands of invoices per day is
+     * cheaper than the boxing and per-entry overhead of a hash set. The overdue bucket can hold a whole backlog
+     * whose invoices are removed in ID order as the full scan closes them, so it also keeps the position of
+     * every ID; it then holds each ID at most once.
+     */
+    private static final class Bucket {
+
+        private long[] ids = new long[16];
+        private int size;
+        private final HashMap<Long, Integer> positions;
+
+        Bucket() {
+            this(null);
+        }
+
+        private Bucket(HashMap<Long, Integer> positions) {
+            this.positions = positions;
+        }
+
+        static Bucket indexed() {
+            return new Bucket(new HashMap<>());
+        }
+
+        /**
+         * Returns false if the bucket is indexed and already holds {@code id}.
+         */
+        boolean add(long id) {
+            if (positions != null && positions.putIfAbsent(id, size) != null) {
+                return false;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1));
+            }
+            ids[size++] = id;
+            return true;
+        }
+
+        void addAll(Bucket other) {
+            if (size + other.size > ids.length) {
+                ids = Arrays.copyOf(ids, size + other.size);
+            }
+            System.arraycopy(other.ids, 0, ids, size, other.size);
+            size += other.size;
+        }
+
+        boolean remove(long id) {
+            if (positions != null) {
+                Integer position = positions.remove(id);
+                if (position == null) {
+                    return false;
+                }
+                removeAt(position);
+                return true;
+            }
+            for (int i = size - 1; i >= 0; i--) {
+                if (ids[i] == id) {
+                    removeAt(i);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void removeAt(int i) {
+            ids[i] = ids[--size];
+            if (positions != null && i < size) {
+                positions.put(ids[i], i);
+            }
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
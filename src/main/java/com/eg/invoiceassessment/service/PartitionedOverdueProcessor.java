@@ -0,0 +1,217 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.entity.LateFeePolicy;
+import com.eg.invoiceassessment.entity.OverduePartitionLease;
+import com.eg.invoiceassessment.repository.InvoiceRepository;
+import com.eg.invoiceassessment.repository.OverduePartitionLeaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Processes an overdue run as a set of id-range partitions worked on in parallel.
+ * <p>
+ * The partition plan is stored in {@code overdue_partition_leases}, so every application instance that runs
+ * the same cutoff date joins the same plan. A worker only touches a partition while it holds that
+ * partition's lease, and re-checks ownership under a row lock in every chunk transaction. A partition whose
+ * holder died becomes claimable once its lease expires and continues from its last committed checkpoint.
+ */
+@Component
+public class PartitionedOverdueProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedOverdueProcessor.class);
+
+    private static final long POLL_INTERVAL_MILLIS = 500;
+
+    private final InvoiceRepository invoiceRepository;
+    private final OverduePartitionLeaseRepository leaseRepository;
+    private final OverdueChunkWriter chunkWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final int partitions;
+    private final Duration leaseDuration;
+    private final String nodeId;
+
+    public PartitionedOverdueProcessor(InvoiceRepository invoiceRepository,
+                                       OverduePartitionLeaseRepository leaseRepository,
+                                       OverdueChunkWriter chunkWriter,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${invoice.overdue.partitions:16}") int partitions,
+                                       @Value("${invoice.overdue.lease-duration:PT2M}") Duration leaseDuration,
+                                       @Value("${invoice.node-id:}") String nodeId) {
+        this.invoiceRepository = invoiceRepository;
+        this.leaseRepository = leaseRepository;
+        this.chunkWriter = chunkWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.partitions = partitions;
+        this.leaseDuration = leaseDuration;
+        this.nodeId = nodeId.isBlank() ? "node-" + UUID.randomUUID() : nodeId;
+    }
+
+    /**
+     * Works on the plan for {@code cutoff} with {@code parallelism} virtual-thread workers and returns once
+     * every partition of the plan is done, whichever instance did the work.
+     */
+    public void process(LateFeePolicy lateFee, int overdueDays, LocalDate cutoff, int parallelism,
+                        OverdueProgressListener progress) {
+        Integer generation = ensurePlan(cutoff, lateFee, overdueDays);
+        if (generation == null) {
+            logger.info("No overdue invoices before {}", cutoff);
+            return;
+        }
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(parallelism);
+            for (int i = 0; i < parallelism; i++) {
+                String owner = nodeId + "#" + i;
+                futures.add(workers.submit(() -> work(cutoff, generation, owner, progress)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for overdue partitions", e);
+        }
+        logger.info("Partitioned overdue run for {} (generation {}) completed", cutoff, generation);
+    }
+
+    /**
+     * Returns the generation to work on: the latest one if it still has open partitions, otherwise a new one
+     * covering whatever is overdue now. Returns {@code null} when there is nothing to do.
+     */
+    private Integer ensurePlan(LocalDate cutoff, LateFeePolicy lateFee, int overdueDays) {
+        Integer latest = leaseRepository.findLatestGeneration(cutoff);
+        if (latest != null && hasOpenPartitions(cutoff, latest)) {
+            return latest;
+        }
+
+        int generation = latest == null ? 0 : latest + 1;
+        InvoiceRepository.IdRange range = invoiceRepository.findIdRange(cutoff, Invoice.Status.PENDING);
+        if (range == null || range.getMinId() == null) {
+            return null;
+        }
+
+        long low = range.getMinId() - 1;
+        long span = range.getMaxId() - low;
+        int count = (int) Math.min(partitions, span);
+        List<OverduePartitionLease> plan = new ArrayList<>(count);
+        for (int p = 0; p < count; p++) {
+            plan.add(new OverduePartitionLease(cutoff, generation, p, low + span * p / count,
+                    low + span * (p + 1) / count, lateFee, overdueDays));
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(tx -> leaseRepository.saveAllAndFlush(plan));
+            logger.info("Created overdue plan for {} (generation {}) with {} partitions over IDs ({}, {}]",
+                    cutoff, generation, count, low, range.getMaxId());
+        } catch (DataIntegrityViolationException e) {
+            logger.info("Overdue plan for {} (generation {}) was created by another instance", cutoff, generation);
+        }
+        return generation;
+    }
+
+    private boolean hasOpenPartitions(LocalDate cutoff, int generation) {
+        return leaseRepository.findByCutoffDateAndGenerationOrderByPartitionNo(cutoff, generation).stream()
+                .anyMatch(lease -> lease.getStatus() != OverduePartitionLease.Status.DONE);
+    }
+
+    private void work(LocalDate cutoff, int generation, String owner, OverdueProgressListener progress) {
+        while (true) {
+            List<OverduePartitionLease> leases =
+                    leaseRepository.findByCutoffDateAndGenerationOrderByPartitionNo(cutoff, generation);
+            if (leases.stream().allMatch(lease -> lease.getStatus() == OverduePartitionLease.Status.DONE)) {
+                return;
+            }
+
+            Long claimed = claimNext(leases, owner);
+            if (claimed == null) {
+                // Everything left is held by live leases elsewhere; wait for them to finish or expire
+                sleep();
+                continue;
+            }
+
+            try {
+                processPartition(claimed, cutoff, owner, progress);
+            } catch (LeaseLostException e) {
+                logger.warn("Lease on overdue partition {} was taken over; {} moves on", claimed, owner);
+            }
+        }
+    }
+
+    private Long claimNext(List<OverduePartitionLease> leases, String owner) {
+        LocalDateTime now = LocalDateTime.now();
+        for (OverduePartitionLease lease : leases) {
+            boolean claimable = lease.getStatus() != OverduePartitionLease.Status.DONE
+                    && (lease.getOwner() == null || lease.getLeaseExpiresAt().isBefore(now));
+            if (!claimable) {
+                continue;
+            }
+            Integer updated = transactionTemplate.execute(tx -> leaseRepository.claim(lease.getId(), owner,
+                    now.plus(leaseDuration), now, OverduePartitionLease.Status.CLAIMED,
+                    OverduePartitionLease.Status.DONE));
+            if (updated != null && updated == 1) {
+                logger.info("{} claimed overdue partition {} ({}, {}]", owner, lease.getPartitionNo(),
+                        lease.getLastProcessedId(), lease.getHighId());
+                return lease.getId();
+            }
+        }
+        return null;
+    }
+
+    private void processPartition(Long leaseId, LocalDate cutoff, String owner, OverdueProgressListener progress) {
+        boolean done = false;
+        while (!done) {
+            OverdueChunkWriter.ChunkResult result = transactionTemplate.execute(tx -> {
+                OverduePartitionLease lease = leaseRepository.lockOwned(leaseId, owner)
+                        .orElseThrow(LeaseLostException::new);
+
+                OverdueChunkWriter.ChunkResult chunk = chunkWriter.closeNextChunk(lease.getLastProcessedId(),
+                        lease.getHighId(), cutoff, lease.getLateFeePolicy(), lease.getOverdueDays());
+
+                lease.setLastProcessedId(chunk.lastId());
+                lease.setRowsScanned(lease.getRowsScanned() + chunk.scanned());
+                lease.setRowsUpdated(lease.getRowsUpdated() + chunk.updated());
+                lease.setLeaseExpiresAt(LocalDateTime.now().plus(leaseDuration));
+                if (!chunk.more()) {
+                    lease.setStatus(OverduePartitionLease.Status.DONE);
+                }
+                return chunk;
+            });
+            progress.chunkCommitted(result.scanned(), result.updated());
+            done = !result.more();
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for overdue partitions", e);
+        }
+    }
+
+    private static final class LeaseLostException extends RuntimeException {
+    }
+}
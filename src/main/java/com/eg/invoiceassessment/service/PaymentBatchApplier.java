@@ -0,0 +1,347 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.cache.InvoiceCache;
+import com.eg.invoiceassessment.dto.PaymentBatchItem;
+import com.eg.invoiceassessment.dto.PaymentBatchItemResult;
+import com.eg.invoiceassessment.dto.PaymentBatchItemResult.Outcome;
+import com.eg.invoiceassessment.dto.PaymentBatchResult;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.entity.Payment;
+import com.eg.invoiceassessment.events.InvoiceEventRecorder;
+import com.eg.invoiceassessment.events.InvoiceEventRecorder.Change;
+import com.eg.invoiceassessment.exception.InvalidRequestPayloadException;
+import com.eg.invoiceassessment.metrics.InvoiceMetrics;
+import com.eg.invoiceassessment.repository.InvoiceRepository;
+import com.eg.invoiceassessment.summary.ReceivablesAggregates;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.generator.Generator;
+import org.hibernate.id.enhanced.PooledOptimizer;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Applies a remittance of payments from a JSON array or NDJSON body. The whole body is read first; the valid
+ * rows are grouped by invoice and applied in ascending invoice ID order, {@code invoice.payments.batch.chunk-size}
+ * invoices per transaction. A chunk locks its invoice rows in ID order, as the overdue runs do, so concurrent
+ * batches and overdue runs cannot deadlock on them, and writes all of its payments, invoice updates and events as
+ * JDBC batches.
+ * <p>
+ * Payments to one invoice are applied in request order under the rules of {@code payInvoice}: one that would
+ * exceed the remaining balance is rejected, and the invoice becomes PAID once it is paid in full. Chunks committed
+ * before a failing one stay committed; the failing chunk's rows are reported as FAILED and the rest still run.
+ * <p>
+ * Invoices are locked with a plain {@code SELECT ... FOR UPDATE} and updated with one JDBC batch, and the
+ * payments are inserted with another: loading, dirty-checking and flushing them as entities cost more than the
+ * SQL itself. With {@code invoice.entity-cache.enabled} the invoices are locked and updated as entities instead,
+ * so that Hibernate keeps their second-level cache entries in step, as {@code payInvoice} does.
+ * <p>
+ * Payment IDs are taken from {@link Payment#ID_SEQUENCE} the way Hibernate's pooled optimizer does for
+ * {@link Payment}: each {@code nextval} reserves the block of {@link Payment#ID_ALLOCATION_SIZE} IDs ending at the
+ * value returned, so they never collide with payments saved through JPA. The constructor checks that Hibernate
+ * still generates Payment IDs that way, so a change to the entity's generator fails at startup rather than
+ * handing out duplicate IDs.
+ */
+@Component
+public class PaymentBatchApplier {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentBatchApplier.class);
+
+    private static final String LOCK_INVOICES = """
+            select id, amount, paid_amount, currency, due_date, status, paid_on
+            from invoices where id in (%s) order by id for update""";
+
+    private static final String UPDATE_INVOICE = """
+            update invoices set paid_amount = ?, status = ?, paid_on = ?, updated_at = ?, version = version + 1
+            where id = ?""";
+
+    private static final String INSERT_PAYMENT = "insert into payments (id, invoice_id, amount, paid_at) values (?, ?, ?, ?)";
+
+    // nextval syntax shared by H2 and PostgreSQL
+    private static final String NEXT_PAYMENT_ID_BLOCK = "select nextval('" + Payment.ID_SEQUENCE + "')";
+
+    private final ObjectReader reader;
+    private final TransactionTemplate transactionTemplate;
+    private final InvoiceRepository invoiceRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final InvoiceEventRecorder invoiceEventRecorder;
+    private final InvoiceCache invoiceCache;
+    private final OverdueTimingWheel overdueTimingWheel;
+    private final ReceivablesAggregates receivablesAggregates;
+    private final InvoiceMetrics invoiceMetrics;
+    private final int chunkSize;
+    private final int maxItems;
+    private final boolean entityCacheEnabled;
+
+    public PaymentBatchApplier(ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                               EntityManagerFactory entityManagerFactory,
+                               InvoiceRepository invoiceRepository, JdbcTemplate jdbcTemplate,
+                               InvoiceEventRecorder invoiceEventRecorder, InvoiceCache invoiceCache,
+                               OverdueTimingWheel overdueTimingWheel, ReceivablesAggregates receivablesAggregates,
+                               InvoiceMetrics invoiceMetrics,
+                               @Value("${invoice.payments.batch.chunk-size:500}") int chunkSize,
+                               @Value("${invoice.payments.batch.max-items:100000}") int maxItems,
+                               @Value("${invoice.entity-cache.enabled:false}") boolean entityCacheEnabled) {
+        checkPaymentIdGenerator(entityManagerFactory);
+        this.reader = objectMapper.readerFor(PaymentBatchItem.class);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.invoiceRepository = invoiceRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.invoiceEventRecorder = invoiceEventRecorder;
+        this.invoiceCache = invoiceCache;
+        this.overdueTimingWheel = overdueTimingWheel;
+        this.receivablesAggregates = receivablesAggregates;
+        this.invoiceMetrics = invoiceMetrics;
+        this.chunkSize = chunkSize;
+        this.maxItems = maxItems;
+        this.entityCacheEnabled = entityCacheEnabled;
+    }
+
+    /**
+     * Unlike the invoice import, a malformed body is rejected as a whole before any payment is applied.
+     */
+    public PaymentBatchResult applyPayments(InputStream body) {
+        List<PaymentBatchItem> items = read(body);
+        PaymentBatchItemResult[] results = new PaymentBatchItemResult[items.size()];
+
+        // Rows of each invoice in request order, invoices in ID order
+        TreeMap<Long, List<Integer>> rowsByInvoice = new TreeMap<>();
+        for (int row = 0; row < items.size(); row++) {
+            PaymentBatchItem item = items.get(row);
+            if (item == null || item.invoiceId() == null || item.amount() == null || item.amount() <= 0) {
+                results[row] = PaymentBatchItemResult.rejected(row, item == null ? null : item.invoiceId(),
+                        Outcome.INVALID, "Invalid invoice ID or payment amount");
+            } else {
+                rowsByInvoice.computeIfAbsent(item.invoiceId(), id -> new ArrayList<>()).add(row);
+            }
+        }
+
+        List<Long> invoiceIds = new ArrayList<>(rowsByInvoice.keySet());
+        for (int from = 0; from < invoiceIds.size(); from += chunkSize) {
+            List<Long> chunk = invoiceIds.subList(from, Math.min(from + chunkSize, invoiceIds.size()));
+            try {
+                transactionTemplate.executeWithoutResult(tx -> applyChunk(chunk, rowsByInvoice, items, results));
+            } catch (RuntimeException e) {
+                logger.error("Payment batch chunk of invoices {} to {} failed", chunk.get(0), chunk.get(chunk.size() - 1), e);
+                for (Long invoiceId : chunk) {
+                    for (int row : rowsByInvoice.get(invoiceId)) {
+                        results[row] = PaymentBatchItemResult.rejected(row, invoiceId, Outcome.FAILED,
+                                "Payment could not be applied, retry later");
+                    }
+                }
+            }
+        }
+
+        int applied = (int) Arrays.stream(results).filter(result -> result.outcome() == Outcome.APPLIED).count();
+        logger.info("Payment batch applied {} of {} payments to {} invoices", applied, items.size(), invoiceIds.size());
+        return new PaymentBatchResult(applied, items.size() - applied, Arrays.asList(results));
+    }
+
+    private List<PaymentBatchItem> read(InputStream body) {
+        List<PaymentBatchItem> items = new ArrayList<>();
+        // readValues accepts both a top-level array and a whitespace-separated sequence of objects
+        try (MappingIterator<PaymentBatchItem> rows = reader.readValues(body)) {
+            while (rows.hasNextValue()) {
+                if (items.size() == maxItems) {
+                    throw new InvalidRequestPayloadException("Payment batch exceeds " + maxItems + " rows");
+                }
+                items.add(rows.nextValue());
+            }
+        } catch (IOException e) {
+            logger.warn("Payment batch rejected at malformed row {}: {}", items.size(), e.getMessage());
+            throw new InvalidRequestPayloadException("Malformed JSON at row " + items.size());
+        }
+        return items;
+    }
+
+    private void applyChunk(List<Long> invoiceIds, Map<Long, List<Integer>> rowsByInvoice,
+                            List<PaymentBatchItem> items, PaymentBatchItemResult[] results) {
+        Map<Long, Invoice> invoices = new HashMap<>(invoiceIds.size() * 2);
+        for (Invoice invoice : entityCacheEnabled ? invoiceRepository.lockByIds(invoiceIds) : lockInvoices(invoiceIds)) {
+            invoices.put(invoice.getId(), invoice);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Payment> payments = new ArrayList<>();
+        List<Change> changes = new ArrayList<>();
+        List<Invoice> paidInto = new ArrayList<>();
+        List<Long> paidAmounts = new ArrayList<>();
+        List<Invoice> settled = new ArrayList<>();
+        for (Long invoiceId : invoiceIds) {
+            Invoice invoice = invoices.get(invoiceId);
+            long appliedToInvoice = 0;
+            for (int row : rowsByInvoice.get(invoiceId)) {
+                long amount = items.get(row).amount();
+                if (invoice == null) {
+                    invoiceMetrics.paymentNotFound();
+                    results[row] = PaymentBatchItemResult.rejected(row, invoiceId, Outcome.NOT_FOUND,
+                            "Invoice not found with ID: " + invoiceId);
+                } else if (invoice.getPaidAmount() + amount > invoice.getAmount()) {
+                    invoiceMetrics.paymentExceedingBalance();
+                    results[row] = PaymentBatchItemResult.rejected(row, invoiceId, Outcome.EXCEEDS_BALANCE,
+                            "Payment amount exceeds the remaining balance");
+                } else if (invoice.getStatus() != Invoice.Status.PENDING) {
+                    invoiceMetrics.paymentToClosedInvoice();
+                    results[row] = PaymentBatchItemResult.rejected(row, invoiceId, Outcome.CLOSED,
+                            "Invoice is " + invoice.getStatus() + " and accepts no more payments");
+                } else {
+                    // Same update as InvoiceRepository.applyPayment, on the locked invoice
+                    invoice.setPaidAmount(invoice.getPaidAmount() + amount);
+                    boolean settles = invoice.getPaidAmount() >= invoice.getAmount();
+                    if (settles) {
+                        invoice.setStatus(Invoice.Status.PAID);
+                        if (invoice.getPaidOn() == null) {
+                            invoice.setPaidOn(now);
+                        }
+                        settled.add(invoice);
+                    }
+                    appliedToInvoice += amount;
+                    payments.add(new Payment(invoiceId, amount, now));
+                    changes.add(Change.paymentApplied(invoiceId, amount, invoice.getStatus()));
+                    if (settles) {
+                        changes.add(Change.statusChanged(invoiceId, Invoice.Status.PAID, null));
+                    }
+                    results[row] = PaymentBatchItemResult.applied(row, invoiceId, invoice.getStatus().name(),
+                            invoice.getPaidAmount());
+                }
+            }
+            if (appliedToInvoice > 0) {
+                invoice.setUpdatedAt(now);
+                paidInto.add(invoice);
+                paidAmounts.add(appliedToInvoice);
+            }
+        }
+
+        if (!entityCacheEnabled) {
+            updateInvoices(paidInto);
+        }
+        insertPayments(payments);
+        invoiceEventRecorder.record(changes);
+        overdueTimingWheel.removeAfterCommit(settled);
+        receivablesAggregates.paidAfterCommit(paidInto, paidAmounts);
+        invoiceCache.invalidateAfterCommit(paidInto.stream().map(Invoice::getId).toList());
+        invoiceMetrics.paymentsAcceptedAfterCommit(payments.size());
+    }
+
+    /**
+     * The invoices among {@code ids}, locked in ID order. They are not managed: changes to them only reach
+     * the database through {@link #updateInvoices}.
+     */
+    private List<Invoice> lockInvoices(List<Long> ids) {
+        String sql = LOCK_INVOICES.formatted(String.join(", ", Collections.nCopies(ids.size(), "?")));
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            Invoice invoice = new Invoice();
+            invoice.setId(rs.getLong("id"));
+            invoice.setAmount(rs.getLong("amount"));
+            invoice.setPaidAmount(rs.getLong("paid_amount"));
+            invoice.setCurrency(rs.getString("currency"));
+            invoice.setDueDate(rs.getObject("due_date", LocalDate.class));
+            invoice.setStatus(Invoice.Status.valueOf(rs.getString("status")));
+            invoice.setPaidOn(rs.getObject("paid_on", LocalDateTime.class));
+            return invoice;
+        }, ids.toArray());
+    }
+
+    private void updateInvoices(List<Invoice> invoices) {
+        if (invoices.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_INVOICE, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Invoice invoice = invoices.get(i);
+                ps.setLong(1, invoice.getPaidAmount());
+                ps.setString(2, invoice.getStatus().name());
+                ps.setObject(3, invoice.getPaidOn());
+                ps.setObject(4, invoice.getUpdatedAt());
+                ps.setLong(5, invoice.getId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return invoices.size();
+            }
+        });
+    }
+
+    private void insertPayments(List<Payment> payments) {
+        if (payments.isEmpty()) {
+            return;
+        }
+        long[] ids = nextPaymentIds(payments.size());
+        jdbcTemplate.batchUpdate(INSERT_PAYMENT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Payment payment = payments.get(i);
+                ps.setLong(1, ids[i]);
+                ps.setLong(2, payment.getInvoiceId());
+                ps.setLong(3, payment.getAmount());
+                ps.setObject(4, payment.getPaidAt());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return payments.size();
+            }
+        });
+    }
+
+    private static void checkPaymentIdGenerator(EntityManagerFactory entityManagerFactory) {
+        Generator generator = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel()
+                .getEntityDescriptor(Payment.class).getGenerator();
+        if (!(generator instanceof SequenceStyleGenerator sequence)
+                || !(sequence.getOptimizer() instanceof PooledOptimizer optimizer)
+                || optimizer.getIncrementSize() != Payment.ID_ALLOCATION_SIZE
+                || !Payment.ID_SEQUENCE.equalsIgnoreCase(
+                        sequence.getDatabaseStructure().getPhysicalName().getObjectName().getText())) {
+            throw new IllegalStateException("Payment IDs are no longer generated from " + Payment.ID_SEQUENCE
+                    + " by a pooled optimizer in blocks of " + Payment.ID_ALLOCATION_SIZE
+                    + "; PaymentBatchApplier must allocate them the same way");
+        }
+    }
+
+    /**
+     * Reserves {@code count} payment IDs, a block of {@link Payment#ID_ALLOCATION_SIZE} per sequence value: the
+     * value {@code v} stands for IDs {@code v - ID_ALLOCATION_SIZE + 1} to {@code v}, as in Hibernate's pooled optimizer.
+     * The first two values are skipped, because Hibernate takes the sequence's start value as the bottom of a
+     * block that runs up to the value it fetches next.
+     */
+    private long[] nextPaymentIds(int count) {
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count) {
+            long high = jdbcTemplate.queryForObject(NEXT_PAYMENT_ID_BLOCK, Long.class);
+            if (high <= 1 + Payment.ID_ALLOCATION_SIZE) {
+                continue;
+            }
+            for (long id = high - Payment.ID_ALLOCATION_SIZE + 1; id <= high && filled < count; id++) {
+                ids[filled++] = id;
+            }
+        }
+        return ids;
+    }
+}
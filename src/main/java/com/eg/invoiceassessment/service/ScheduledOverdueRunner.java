@@ -0,0 +1,78 @@
+package com.eg.invoiceassessment.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Runs overdue processing on {@code invoice.overdue.schedule.cron} (off by default) with the
+ * {@link OverduePolicy}, so no external trigger is needed.
+ * <p>
+ * Every instance fires on the schedule, but only the one that takes the {@code overdue-run} lock in
+ * {@code scheduler_locks} does the work; the others skip that firing. The lock is taken for
+ * {@code invoice.overdue.schedule.lock-duration} and renewed after every chunk; a run that can no longer renew
+ * it stops, and the next holder resumes it from its checkpoint. With
+ * {@code invoice.overdue.schedule.max-rows-per-second} the run pauses between chunks to stay under that rate,
+ * leaving connections and row locks to online traffic. Transaction size is {@code invoice.overdue.chunk-size}.
+ */
+@Component
+public class ScheduledOverdueRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScheduledOverdueRunner.class);
+
+    static final String LOCK = "overdue-run";
+
+    private final OverdueInvoiceProcessor overdueInvoiceProcessor;
+    private final OverduePolicy policy;
+    private final SchedulerLocks schedulerLocks;
+    private final Duration lockDuration;
+    private final int maxRowsPerSecond;
+
+    public ScheduledOverdueRunner(OverdueInvoiceProcessor overdueInvoiceProcessor, OverduePolicy policy,
+                                  SchedulerLocks schedulerLocks,
+                                  @Value("${invoice.overdue.schedule.lock-duration:PT10M}") Duration lockDuration,
+                                  @Value("${invoice.overdue.schedule.max-rows-per-second:0}") int maxRowsPerSecond) {
+        this.overdueInvoiceProcessor = overdueInvoiceProcessor;
+        this.policy = policy;
+        this.schedulerLocks = schedulerLocks;
+        this.lockDuration = lockDuration;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+    }
+
+    @Scheduled(cron = "${invoice.overdue.schedule.cron:-}", zone = "${invoice.overdue.schedule.zone:}")
+    public void runScheduled() {
+        run(LocalDate.now());
+    }
+
+    /**
+     * Processes everything overdue on {@code today} if this instance gets the lock. Returns whether it did.
+     */
+    public boolean run(LocalDate today) {
+        if (!schedulerLocks.tryAcquire(LOCK, lockDuration)) {
+            logger.info("Skipping scheduled overdue run for {}: another instance holds the lock", today);
+            return false;
+        }
+        LocalDate cutoff = policy.cutoff(today);
+        OverdueProgressListener throttle = maxRowsPerSecond > 0 ? new OverdueThrottle(maxRowsPerSecond) : OverdueProgressListener.NONE;
+        try {
+            logger.info("{} starting scheduled overdue run for invoices due before {}", schedulerLocks.getNodeId(), cutoff);
+            overdueInvoiceProcessor.process(policy.getLateFee(), policy.getFollowUpDays(), cutoff, (scanned, updated) -> {
+                throttle.chunkCommitted(scanned, updated);
+                if (!schedulerLocks.extend(LOCK, lockDuration)) {
+                    throw new IllegalStateException("Lost the " + LOCK + " lock; stopping after the last committed chunk");
+                }
+            });
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Scheduled overdue run for {} failed", today, e);
+            return true;
+        } finally {
+            schedulerLocks.release(LOCK);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.repository.SchedulerLockRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.IntSupplier;
+
+/**
+ * Locks in the {@code scheduler_locks} table that at most one application instance holds at a time. A lock is
+ * taken for a limited time and must be extended while the work goes on, so a crashed holder only blocks the
+ * others until its lock expires. Each call commits on its own, whatever transaction the caller is in.
+ */
+@Component
+public class SchedulerLocks {
+
+    private final SchedulerLockRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId;
+
+    public SchedulerLocks(SchedulerLockRepository repository, PlatformTransactionManager transactionManager,
+                          @Value("${invoice.node-id:}") String nodeId) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionTemplate.PROPAGATION_REQUIRES_NEW);
+        this.nodeId = nodeId.isBlank() ? "node-" + UUID.randomUUID() : nodeId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Takes {@code name} for {@code duration} if no other instance holds it.
+     */
+    public boolean tryAcquire(String name, Duration duration) {
+        LocalDateTime now = LocalDateTime.now();
+        return update(() -> repository.acquire(name, nodeId, now, now.plus(duration)));
+    }
+
+    /**
+     * Extends a lock this instance holds by {@code duration} from now. Returns {@code false} if it had expired.
+     */
+    public boolean extend(String name, Duration duration) {
+        LocalDateTime now = LocalDateTime.now();
+        return update(() -> repository.extend(name, nodeId, now, now.plus(duration)));
+    }
+
+    public void release(String name) {
+        update(() -> repository.release(name, nodeId, LocalDateTime.now()));
+    }
+
+    private boolean update(IntSupplier statement) {
+        Integer updated = transactionTemplate.execute(tx -> statement.getAsInt());
+        return updated != null && updated == 1;
+    }
+}
@@ -0,0 +1,336 @@
+package com.eg.invoiceassessment.summary;
+
+import com.eg.invoiceassessment.dto.ReceivablesSummary;
+import com.eg.invoiceassessment.dto.ReceivablesSummary.CurrencySummary;
+import com.eg.invoiceassessment.dto.ReceivablesSummary.DueDateBucket;
+import com.eg.invoiceassessment.dto.ReceivablesSummary.StatusTotals;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.metrics.InvoiceMetrics;
+import com.eg.invoiceassessment.transaction.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Running totals of the invoices table, so {@code GET /summary} answers from memory instead of aggregating the
+ * table. Totals are kept per currency and status, and for PENDING invoices also per currency and due date; a
+ * summary sums those entries, so its cost depends on the number of distinct due dates, not of invoices.
+ * <p>
+ * Every write that creates, pays or closes an invoice adds its delta once its transaction commits, into
+ * {@link LongAdder}s, so concurrent writers do not contend on a shared counter. The totals are built from the
+ * database at startup, and every {@code invoice.summary.check-interval} they are compared with it again and any
+ * drift is corrected, e.g. from writes of other instances or a delta lost to a crash between commit and update.
+ * A summary is not an atomic snapshot: a write that is being applied may show in one total and not yet in another.
+ */
+@Component
+public class ReceivablesAggregates {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReceivablesAggregates.class);
+
+    private static final String TOTALS_BY_STATUS =
+            "select currency, status, count(*), sum(amount), sum(paid_amount) from invoices group by currency, status";
+    private static final String PENDING_BY_DUE_DATE =
+            "select currency, due_date, count(*), sum(amount), sum(paid_amount) from invoices where status = ? "
+                    + "group by currency, due_date";
+
+    // Aging buckets of PENDING invoices by days past (negative) or until their due date
+    private static final String[] BUCKETS = {"overdue_91_plus", "overdue_61_90", "overdue_31_60", "overdue_1_30",
+            "due_0_30", "due_31_60", "due_61_90", "due_91_plus"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final InvoiceMetrics invoiceMetrics;
+
+    private final ConcurrentHashMap<StatusKey, Totals> byStatus = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<DueDateKey, Totals> pendingByDueDate = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+    // Serializes reconcile runs
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+
+    public ReceivablesAggregates(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 InvoiceMetrics invoiceMetrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Both queries must see the same snapshot, or an invoice closed in between would be counted twice
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.transactionTemplate.setReadOnly(true);
+        this.invoiceMetrics = invoiceMetrics;
+    }
+
+    /**
+     * Whether the totals have been built from the database yet.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Counts the given new invoices once the current transaction commits.
+     */
+    public void createdAfterCommit(List<Invoice> invoices) {
+        if (invoices.isEmpty()) {
+            return;
+        }
+        List<Delta> deltas = new ArrayList<>(invoices.size());
+        for (Invoice invoice : invoices) {
+            deltas.add(Delta.of(invoice, invoice.getStatus(), 1));
+        }
+        AfterCommit.run(() -> apply(deltas));
+    }
+
+    /**
+     * Counts a payment of {@code amount} once the current transaction commits. {@code invoice} holds the values
+     * after the payment; payments are only taken by PENDING invoices, so one that is PAID was settled by it.
+     */
+    public void paidAfterCommit(Invoice invoice, long amount) {
+        paidAfterCommit(List.of(invoice), List.of(amount));
+    }
+
+    /**
+     * Counts payments once the current transaction commits, {@code amounts.get(i)} in total to {@code invoices.get(i)},
+     * which holds the values after them.
+     */
+    public void paidAfterCommit(List<Invoice> invoices, List<Long> amounts) {
+        if (invoices.isEmpty()) {
+            return;
+        }
+        List<Delta> deltas = new ArrayList<>(invoices.size() * 2);
+        for (int i = 0; i < invoices.size(); i++) {
+            Invoice invoice = invoices.get(i);
+            long amount = amounts.get(i);
+            if (invoice.getStatus() == Invoice.Status.PAID) {
+                deltas.add(new Delta(invoice.getCurrency(), Invoice.Status.PENDING, invoice.getDueDate(),
+                        -1, -invoice.getAmount(), -(invoice.getPaidAmount() - amount)));
+                deltas.add(Delta.of(invoice, Invoice.Status.PAID, 1));
+            } else {
+                deltas.add(new Delta(invoice.getCurrency(), invoice.getStatus(), invoice.getDueDate(), 0, 0, amount));
+            }
+        }
+        AfterCommit.run(() -> apply(deltas));
+    }
+
+    /**
+     * Moves the given overdue invoices out of PENDING once the current transaction commits. The entities hold
+     * the values before they were closed; as in the bulk updates, partly paid ones become PAID and the rest VOID.
+     */
+    public void closedAfterCommit(List<Invoice> invoices) {
+        if (invoices.isEmpty()) {
+            return;
+        }
+        List<Delta> deltas = new ArrayList<>(invoices.size() * 2);
+        for (Invoice invoice : invoices) {
+            deltas.add(Delta.of(invoice, Invoice.Status.PENDING, -1));
+            deltas.add(Delta.of(invoice, invoice.getPaidAmount() > 0 ? Invoice.Status.PAID : Invoice.Status.VOID, 1));
+        }
+        AfterCommit.run(() -> apply(deltas));
+    }
+
+    /**
+     * Sums the totals into a summary; invoices due before {@code today} count as overdue.
+     */
+    public ReceivablesSummary summarize(LocalDate today) {
+        Map<String, CurrencyTotals> currencies = new TreeMap<>();
+        byStatus.forEach((key, totals) -> {
+            CurrencyTotals currency = currencies.computeIfAbsent(key.currency(), c -> new CurrencyTotals());
+            long[] sums = totals.sums();
+            currency.byStatus[key.status().ordinal()] = sums;
+            currency.paid += sums[2];
+            if (key.status() == Invoice.Status.PENDING) {
+                currency.outstanding += sums[1] - sums[2];
+            }
+        });
+        long todayEpochDay = today.toEpochDay();
+        pendingByDueDate.forEach((key, totals) -> {
+            CurrencyTotals currency = currencies.computeIfAbsent(key.currency(), c -> new CurrencyTotals());
+            long[] sums = totals.sums();
+            long outstanding = sums[1] - sums[2];
+            long daysUntilDue = key.dueDate().toEpochDay() - todayEpochDay;
+            int bucket = bucket(daysUntilDue);
+            currency.bucketCounts[bucket] += sums[0];
+            currency.bucketOutstanding[bucket] += outstanding;
+            if (daysUntilDue < 0) {
+                currency.overdue += outstanding;
+            }
+        });
+
+        List<CurrencySummary> summaries = new ArrayList<>(currencies.size());
+        currencies.forEach((code, currency) -> summaries.add(currency.toSummary(code)));
+        return new ReceivablesSummary(today, summaries);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.nanoTime();
+        reconcile();
+        logger.info("Built receivables totals for {} currencies in {} ms",
+                byStatus.keySet().stream().map(StatusKey::currency).distinct().count(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @Scheduled(fixedDelayString = "${invoice.summary.check-interval:PT15M}",
+            initialDelayString = "${invoice.summary.check-interval:PT15M}")
+    public void checkConsistency() {
+        int corrected = reconcile();
+        if (corrected > 0) {
+            logger.warn("Receivables totals had drifted from the database; corrected {} entries", corrected);
+        }
+    }
+
+    /**
+     * Aggregates the invoices table and adds the difference to what the totals held when the query started, so
+     * deltas applied while it runs are kept. A write that commits just as the query starts may be counted twice
+     * or not at all; the next check corrects it. Returns the number of entries corrected.
+     */
+    int reconcile() {
+        reconcileLock.lock();
+        try {
+            int corrected = transactionTemplate.execute(tx -> {
+                Map<StatusKey, long[]> statusBefore = copy(byStatus);
+                Map<DueDateKey, long[]> dueDateBefore = copy(pendingByDueDate);
+
+                Map<StatusKey, long[]> statusActual = new HashMap<>();
+                jdbcTemplate.query(TOTALS_BY_STATUS, (RowCallbackHandler) row -> statusActual.put(
+                        new StatusKey(row.getString(1), Invoice.Status.valueOf(row.getString(2))),
+                        new long[]{row.getLong(3), row.getLong(4), row.getLong(5)}));
+                Map<DueDateKey, long[]> dueDateActual = new HashMap<>();
+                jdbcTemplate.query(PENDING_BY_DUE_DATE, (RowCallbackHandler) row -> dueDateActual.put(
+                        new DueDateKey(row.getString(1), row.getObject(2, LocalDate.class)),
+                        new long[]{row.getLong(3), row.getLong(4), row.getLong(5)}),
+                        Invoice.Status.PENDING.name());
+
+                return correct(byStatus, statusBefore, statusActual) + correct(pendingByDueDate, dueDateBefore, dueDateActual);
+            });
+            // Settled days stay at zero; drop them. A delta racing the removal is lost, and the next check restores it
+            pendingByDueDate.entrySet().removeIf(entry -> entry.getValue().isZero());
+            ready = true;
+            invoiceMetrics.summaryCorrected(corrected);
+            return corrected;
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    private static <K> Map<K, long[]> copy(Map<K, Totals> totals) {
+        Map<K, long[]> copy = new HashMap<>(totals.size() * 2);
+        totals.forEach((key, value) -> copy.put(key, value.sums()));
+        return copy;
+    }
+
+    private static <K> int correct(ConcurrentHashMap<K, Totals> totals, Map<K, long[]> before, Map<K, long[]> actual) {
+        Set<K> keys = new HashSet<>(before.keySet());
+        keys.addAll(actual.keySet());
+        int corrected = 0;
+        for (K key : keys) {
+            long[] was = before.getOrDefault(key, new long[3]);
+            long[] is = actual.getOrDefault(key, new long[3]);
+            if (was[0] != is[0] || was[1] != is[1] || was[2] != is[2]) {
+                totals.computeIfAbsent(key, k -> new Totals()).add(is[0] - was[0], is[1] - was[1], is[2] - was[2]);
+                corrected++;
+            }
+        }
+        return corrected;
+    }
+
+    private void apply(List<Delta> deltas) {
+        for (Delta delta : deltas) {
+            byStatus.computeIfAbsent(new StatusKey(delta.currency(), delta.status()), key -> new Totals())
+                    .add(delta.count(), delta.amount(), delta.paid());
+            if (delta.status() == Invoice.Status.PENDING) {
+                pendingByDueDate.computeIfAbsent(new DueDateKey(delta.currency(), delta.dueDate()), key -> new Totals())
+                        .add(delta.count(), delta.amount(), delta.paid());
+            }
+        }
+    }
+
+
+    private static int bucket(long daysUntilDue) {
+        if (daysUntilDue < 0) {
+            long daysOverdue = -daysUntilDue;
+            return daysOverdue > 90 ? 0 : daysOverdue > 60 ? 1 : daysOverdue > 30 ? 2 : 3;
+        }
+        return daysUntilDue > 90 ? 7 : daysUntilDue > 60 ? 6 : daysUntilDue > 30 ? 5 : 4;
+    }
+
+    private record StatusKey(String currency, Invoice.Status status) {
+    }
+
+    private record DueDateKey(String currency, LocalDate dueDate) {
+    }
+
+    /**
+     * Change of one invoice to the totals of {@code status}; values are captured when the write happens, since
+     * the entity may change before its transaction commits.
+     */
+    private record Delta(String currency, Invoice.Status status, LocalDate dueDate, long count, long amount, long paid) {
+
+        static Delta of(Invoice invoice, Invoice.Status status, int sign) {
+            return new Delta(invoice.getCurrency(), status, invoice.getDueDate(),
+                    sign, sign * invoice.getAmount(), sign * invoice.getPaidAmount());
+        }
+    }
+
+    private static final class Totals {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder amount = new LongAdder();
+        private final LongAdder paid = new LongAdder();
+
+        void add(long count, long amount, long paid) {
+            this.count.add(count);
+            this.amount.add(amount);
+            this.paid.add(paid);
+        }
+
+        long[] sums() {
+            return new long[]{count.sum(), amount.sum(), paid.sum()};
+        }
+
+        boolean isZero() {
+            return count.sum() == 0 && amount.sum() == 0 && paid.sum() == 0;
+        }
+    }
+
+    private static final class CurrencyTotals {
+
+        private final long[][] byStatus = new long[Invoice.Status.values().length][];
+        private final long[] bucketCounts = new long[BUCKETS.length];
+        private final long[] bucketOutstanding = new long[BUCKETS.length];
+        private long outstanding;
+        private long overdue;
+        private long paid;
+
+        CurrencySummary toSummary(String currency) {
+            Map<String, StatusTotals> statuses = new LinkedHashMap<>();
+            for (Invoice.Status status : Invoice.Status.values()) {
+                long[] sums = byStatus[status.ordinal()] == null ? new long[3] : byStatus[status.ordinal()];
+                statuses.put(status.name(), new StatusTotals(sums[0], sums[1], sums[2]));
+            }
+            List<DueDateBucket> buckets = new ArrayList<>(BUCKETS.length);
+            for (int i = 0; i < BUCKETS.length; i++) {
+                buckets.add(new DueDateBucket(BUCKETS[i], bucketCounts[i], bucketOutstanding[i]));
+            }
+            return new CurrencySummary(currency, outstanding, overdue, paid, statuses, buckets);
+        }
+    }
+}
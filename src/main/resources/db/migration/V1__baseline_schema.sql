@@ -0,0 +1,80 @@
+-- Schema as previously generated by Hibernate, written in SQL that both H2 and PostgreSQL accept
+
+create sequence invoices_seq start with 1 increment by 100;
+create sequence payments_seq start with 1 increment by 100;
+create sequence overdue_runs_seq start with 1 increment by 1;
+create sequence overdue_partition_leases_seq start with 1 increment by 50;
+
+create table invoices (
+    id          bigint       not null,
+    amount      bigint       not null,
+    paid_amount bigint       not null,
+    currency    varchar(3)   not null,
+    due_date    date         not null,
+    status      varchar(16)  not null,
+    created_at  timestamp(6) not null,
+    updated_at  timestamp(6) not null,
+    paid_on     timestamp(6),
+    version     bigint       not null default 0,
+    primary key (id)
+);
+
+-- Append-only ledger; invoice_id deliberately has no foreign key so inserts never lock the invoice row
+create table payments (
+    id         bigint       not null,
+    invoice_id bigint       not null,
+    amount     bigint       not null,
+    paid_at    timestamp(6) not null,
+    primary key (id)
+);
+
+create table overdue_runs (
+    id                 bigint       not null,
+    cutoff_date        date,
+    late_fees          bigint       not null,
+    overdue_days       integer      not null,
+    last_processed_id  bigint       not null,
+    rows_scanned       bigint       not null,
+    rows_paid          bigint       not null,
+    rows_voided        bigint       not null,
+    follow_ups_created bigint       not null,
+    status             varchar(16),
+    started_at         timestamp(6),
+    updated_at         timestamp(6),
+    finished_at        timestamp(6),
+    primary key (id)
+);
+
+create table overdue_partition_leases (
+    id                bigint       not null,
+    cutoff_date       date,
+    generation        integer      not null,
+    partition_no      integer      not null,
+    low_id            bigint       not null,
+    high_id           bigint       not null,
+    last_processed_id bigint       not null,
+    late_fees         bigint       not null,
+    overdue_days      integer      not null,
+    owner             varchar(255),
+    lease_expires_at  timestamp(6),
+    rows_scanned      bigint       not null,
+    rows_updated      bigint       not null,
+    status            varchar(16),
+    primary key (id),
+    constraint uk_overdue_partition unique (cutoff_date, generation, partition_no)
+);
+
+create table idempotency_keys (
+    idempotency_key varchar(255)   not null,
+    request_hash    varchar(64)    not null,
+    status          varchar(16),
+    response_status integer,
+    content_type    varchar(255),
+    response_body   varchar(16384),
+    created_at      timestamp(6),
+    expires_at      timestamp(6),
+    primary key (idempotency_key)
+);
+
+create index idx_payments_invoice_id on payments (invoice_id, id);
+create index idx_payments_paid_at on payments (paid_at);
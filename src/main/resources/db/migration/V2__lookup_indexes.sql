@@ -0,0 +1,9 @@
+-- Overdue selection and the min/max id range of a run: status = ? and due_date < ?
+create index idx_invoices_status_due_date on invoices (status, due_date);
+
+-- Keyset listing filtered by status: status = ? and id > ? order by id
+create index idx_invoices_status_id on invoices (status, id);
+
+create index idx_overdue_runs_cutoff_date on overdue_runs (cutoff_date);
+create index idx_overdue_partition_leases_cutoff on overdue_partition_leases (cutoff_date, generation);
+create index idx_idempotency_keys_expires_at on idempotency_keys (expires_at);
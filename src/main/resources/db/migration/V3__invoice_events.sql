@@ -0,0 +1,16 @@
+-- Transactional outbox: one row per invoice state change, written in the transaction that made the change.
+-- The identity column is the feed offset; it is assigned one row at a time, so offsets from different
+-- instances never interleave in blocks.
+create table invoice_events (
+    id                 bigint generated by default as identity,
+    invoice_id         bigint       not null,
+    type               varchar(32)  not null,
+    status             varchar(16)  not null,
+    amount             bigint,
+    related_invoice_id bigint,
+    created_at         timestamp(6) not null,
+    primary key (id)
+);
+
+-- Retention purge: created_at < ?
+create index idx_invoice_events_created_at on invoice_events (created_at);
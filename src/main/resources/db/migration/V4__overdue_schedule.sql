@@ -0,0 +1,17 @@
+-- Late-fee policy of a run: late_fees stays the flat part, the percentage and its cap are new. Runs and
+-- partitions created before this migration charged a flat fee only.
+alter table overdue_runs add column late_fee_basis_points integer not null default 0;
+alter table overdue_runs add column late_fee_cap bigint not null default 0;
+alter table overdue_partition_leases add column late_fee_basis_points integer not null default 0;
+alter table overdue_partition_leases add column late_fee_cap bigint not null default 0;
+
+-- Named locks shared by all instances; a lock is free once locked_until has passed
+create table scheduler_locks (
+    name         varchar(64)  not null,
+    locked_by    varchar(255),
+    locked_at    timestamp(6),
+    locked_until timestamp(6) not null,
+    primary key (name)
+);
+
+insert into scheduler_locks (name, locked_until) values ('overdue-run', timestamp '1970-01-01 00:00:00');
@@ -0,0 +1,17 @@
+-- Feed offsets are assigned after commit instead of taken from the identity column: an identity value is drawn
+-- when the row is inserted, so a lower one could commit after a higher one had already been served. Existing
+-- rows keep their id as offset, so offsets held by consumers stay valid.
+alter table invoice_events add column feed_offset bigint;
+update invoice_events set feed_offset = id;
+
+-- Feed reads: feed_offset > ? order by feed_offset; publishing: feed_offset is null
+create unique index ux_invoice_events_feed_offset on invoice_events (feed_offset);
+
+-- The last offset handed out; its row lock serializes publishing across instances
+create table invoice_event_head (
+    id          integer not null,
+    last_offset bigint  not null,
+    primary key (id)
+);
+
+insert into invoice_event_head (id, last_offset) select 1, coalesce(max(id), 0) from invoice_events;
@@ -0,0 +1,5 @@
+-- V3 described invoice_events.id as the feed offset, which stopped being true with V5. Applied migrations are
+-- never edited, since that would change their checksums, so the schema documents the columns here instead.
+comment on column invoice_events.id is 'Row identity only; not the feed offset';
+comment on column invoice_events.feed_offset is 'Feed offset, assigned in commit order by the publisher after commit; null until then';
+comment on table invoice_event_head is 'Last feed offset handed out; every publisher run on every instance locks its row';
@@ -0,0 +1,216 @@
+package com.eg.invoiceassessment.cache;
+
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InvoiceCacheTest {
+
+    private static final int THREADS = 100;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final InvoiceCache cache = new InvoiceCache(1000, Duration.ofMinutes(5), registry);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testConcurrentMisses_ShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<InvoiceResponse>> futures = new ArrayList<>(THREADS);
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            futures.add(executor.submit(() -> cache.get(1L, id -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return invoice(id);
+            })));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < THREADS; i++) {
+                futures.add(executor.submit(() -> cache.get(1L, id -> {
+                    loads.incrementAndGet();
+                    return invoice(id);
+                })));
+            }
+            // Every other caller has found the load in flight before it finishes
+            while (registry.get("cache.coalesced").counter().count() < THREADS - 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<InvoiceResponse> future : futures) {
+                assertEquals(1L, future.get().id());
+            }
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testGetAll_JoinsLoadInFlightAndLoadsTheRestAtOnce() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<InvoiceResponse> single = CompletableFuture.supplyAsync(() -> cache.get(2L, id -> {
+            loading.countDown();
+            await(release);
+            return invoice(id);
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        cache.get(1L, InvoiceCacheTest::invoice);
+
+        List<List<Long>> batches = new ArrayList<>();
+        CompletableFuture<Map<Long, InvoiceResponse>> all = CompletableFuture.supplyAsync(() ->
+                cache.getAll(List.of(1L, 2L, 3L, 4L, 3L), ids -> {
+                    batches.add(List.copyOf(ids));
+                    return Map.of(3L, invoice(3L));
+                }));
+        while (registry.get("cache.coalesced").counter().count() < 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        Map<Long, InvoiceResponse> found = all.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(1L, 2L, 3L), found.keySet().stream().sorted().toList());
+        assertEquals(1, batches.size());
+        assertEquals(List.of(3L, 4L), batches.get(0).stream().sorted().toList());
+        assertEquals(2L, single.get().id());
+        // Unknown IDs are not cached
+        assertNull(cache.get(4L, id -> null));
+    }
+
+    @Test
+    void testInvalidation_DetachesLoadInFlight() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<InvoiceResponse> stale = CompletableFuture.supplyAsync(() -> cache.get(1L, id -> {
+            loading.countDown();
+            await(release);
+            return invoice(id);
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        cache.invalidateAfterCommit(1L);
+        InvoiceResponse fresh = new InvoiceResponse(1L, 10_000L, 10_000L, "USD", LocalDate.now(), "PAID");
+        assertEquals(fresh, cache.get(1L, id -> fresh));
+
+        release.countDown();
+        assertEquals("PENDING", stale.get().status());
+        assertEquals(fresh, cache.get(1L, id -> invoice(id)));
+    }
+
+    @Test
+    void testInvalidateAfterCommit_DropsTheEntryOnlyOnCommit() {
+        AtomicInteger loads = new AtomicInteger();
+        Function<Long, InvoiceResponse> loader = id -> {
+            loads.incrementAndGet();
+            return invoice(id);
+        };
+        cache.get(1L, loader);
+        cache.get(2L, loader);
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.invalidateAfterCommit(1L);
+        // Until the writer commits, readers keep getting the committed value
+        cache.get(1L, loader);
+        assertEquals(2, loads.get());
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        TransactionSynchronizationManager.clearSynchronization();
+        cache.get(1L, loader);
+        assertEquals(3, loads.get());
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.invalidateAfterCommit(2L);
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        TransactionSynchronizationManager.clearSynchronization();
+        cache.get(2L, loader);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testPutAfterCommit_StoresTheInvoiceOnlyOnCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        cache.putAfterCommit(invoice(1L));
+        cache.putAfterCommit(invoice(2L));
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.putAfterCommit(invoice(3L));
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        AtomicInteger loads = new AtomicInteger();
+        Map<Long, InvoiceResponse> found = cache.getAll(List.of(1L, 2L, 3L), ids -> {
+            loads.addAndGet(ids.size());
+            return Map.of();
+        });
+        assertEquals(List.of(1L, 2L), found.keySet().stream().sorted().toList());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testLoadOverlappingAnInvalidation_IsNotStored() throws Exception {
+        for (boolean batch : new boolean[]{false, true}) {
+            long id = batch ? 2L : 1L;
+            CountDownLatch loading = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            // Reads the row before the writer commits and tries to store it after the commit's invalidation
+            Function<Long, InvoiceResponse> staleRead = key -> {
+                InvoiceResponse read = invoice(key);
+                loading.countDown();
+                await(release);
+                return read;
+            };
+            CompletableFuture<InvoiceResponse> stale = CompletableFuture.supplyAsync(() -> batch
+                    ? cache.getAll(List.of(id), ids -> Map.of(id, staleRead.apply(id))).get(id)
+                    : cache.get(id, staleRead));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            cache.invalidateAfterCommit(id);
+            release.countDown();
+            assertEquals("PENDING", stale.get(5, TimeUnit.SECONDS).status());
+
+            // The next read goes to the database instead of finding the stale value
+            InvoiceResponse paid = new InvoiceResponse(id, 10_000L, 10_000L, "USD", LocalDate.now(), "PAID");
+            assertEquals(paid, cache.get(id, key -> paid));
+        }
+    }
+
+    private static InvoiceResponse invoice(Long id) {
+        return new InvoiceResponse(id, 10_000L, 0L, "USD", LocalDate.now(), "PENDING");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
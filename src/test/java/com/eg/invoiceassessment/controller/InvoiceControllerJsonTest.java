@@ -0,0 +1,49 @@
+package com.eg.invoiceassessment.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+ * InvoiceControllerTest calls the controller directly; these requests go through the message converters, so they
+ * cover how request bodies are read.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class InvoiceControllerJsonTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testDecimalAmounts_AreRejectedRatherThanTruncated() throws Exception {
+        String dueDate = LocalDate.now().plusDays(30).toString();
+        mockMvc.perform(post("/api/v1/invoices").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": 100.50, \"currency\": \"USD\", \"dueDate\": \"" + dueDate + "\"}"))
+                .andExpect(status().isBadRequest());
+
+        String created = mockMvc.perform(post("/api/v1/invoices").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": 10050, \"currency\": \"USD\", \"dueDate\": \"" + dueDate + "\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String id = JsonPath.read(created, "$.data");
+
+        mockMvc.perform(post("/api/v1/invoices/" + id + "/payments").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": 50.25}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/v1/invoices/" + id + "/payments").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": 5025}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.paidAmount").value(5025));
+    }
+}
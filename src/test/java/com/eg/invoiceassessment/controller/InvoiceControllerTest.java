@@ -14,8 +14,13 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.verify;
@@ -36,7 +41,7 @@ public class InvoiceControllerTest {
 
     @Test
     void testGetInvoice_Success() {
-        InvoiceResponse invoice = new InvoiceResponse(1L, 100.0,0.0, LocalDate.now().plusDays(10), Invoice.Status.PENDING.name());
+        InvoiceResponse invoice = new InvoiceResponse(1L, 10000L, 0L, "USD", LocalDate.now().plusDays(10), Invoice.Status.PENDING.name());
 
         when(invoiceService.getInvoiceById(1L)).thenReturn(invoice);
 
@@ -53,10 +58,27 @@ public class InvoiceControllerTest {
         assertThrows(ResourceNotFoundException.class, () -> invoiceController.getInvoice(1L));
     }
 
+    @Test
+    void testGetInvoicesByIds_Success() {
+        InvoiceResponse invoice = new InvoiceResponse(2L, 10000L, 0L, "USD", LocalDate.now().plusDays(10), Invoice.Status.PENDING.name());
+
+        when(invoiceService.getInvoicesByIds(List.of(2L, 7L))).thenReturn(List.of(invoice));
+
+        ResponseEntity<ResponseDTO<InvoicePage>> response = invoiceController.getInvoicesByIds("2, 7");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(new InvoicePage(List.of(invoice), null), response.getBody().getData());
+    }
+
+    @Test
+    void testGetInvoicesByIds_InvalidId() {
+        assertThrows(InvalidRequestPayloadException.class, () -> invoiceController.getInvoicesByIds("1,x"));
+    }
+
     @Test
     void testCreateInvoice_Success() {
-        InvoiceRequest request = new InvoiceRequest(200.0, LocalDate.now());
-        InvoiceResponse created = new InvoiceResponse(1L, 200.0,0.0, LocalDate.now(), Invoice.Status.PENDING.name());
+        InvoiceRequest request = new InvoiceRequest(20000L, "USD", LocalDate.now());
+        InvoiceResponse created = new InvoiceResponse(1L, 20000L, 0L, "USD", LocalDate.now(), Invoice.Status.PENDING.name());
 
         when(invoiceService.createInvoice(request)).thenReturn(created);
 
@@ -69,38 +91,96 @@ public class InvoiceControllerTest {
 
     @Test
     void testCreateInvoice_InvalidRequest() {
-        InvoiceRequest request = new InvoiceRequest(null, null);
+        InvoiceRequest request = new InvoiceRequest(null, null, null);
 
         assertThrows(InvalidRequestPayloadException.class,
                 () -> invoiceController.createInvoice(request));
     }
 
+    @Test
+    void testCreateInvoice_UnknownCurrency() {
+        InvoiceRequest request = new InvoiceRequest(20000L, "XYZ", LocalDate.now());
+
+        assertThrows(InvalidRequestPayloadException.class,
+                () -> invoiceController.createInvoice(request));
+    }
+
+    @Test
+    void testCreateInvoices_Batch() {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        InvoiceBatchResult result = new InvoiceBatchResult(List.of(1L, 2L), List.of(new BatchRowError(1, "Amount or Due Date is null")));
+
+        when(invoiceService.createInvoices(body)).thenReturn(result);
+
+        ResponseEntity<ResponseDTO<InvoiceBatchResult>> response = invoiceController.createInvoices(body);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(result, response.getBody().getData());
+    }
+
+    @Test
+    void testCreateInvoices_BatchNothingCreated() {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        InvoiceBatchResult result = new InvoiceBatchResult(List.of(), List.of(new BatchRowError(0, "Amount or Due Date is null")));
+
+        when(invoiceService.createInvoices(body)).thenReturn(result);
+
+        ResponseEntity<ResponseDTO<InvoiceBatchResult>> response = invoiceController.createInvoices(body);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(1, response.getBody().getData().errors().size());
+    }
+
     @Test
     void testGetAllInvoices_Success() {
         List<InvoiceResponse> invoices = List.of(
-                new InvoiceResponse(1L, 100.0, 0.0,LocalDate.now(), Invoice.Status.PENDING.name()),
-                new InvoiceResponse(2L, 200.0, 0.0, LocalDate.now(), Invoice.Status.PENDING.name())
+                new InvoiceResponse(1L, 10000L, 0L, "USD", LocalDate.now(), Invoice.Status.PENDING.name()),
+                new InvoiceResponse(2L, 20000L, 0L, "USD", LocalDate.now(), Invoice.Status.PENDING.name())
         );
 
-        when(invoiceService.getAllInvoices()).thenReturn(invoices);
+        when(invoiceService.getInvoices(null, 2, new InvoiceFilter(null, null, null))).thenReturn(new InvoicePage(invoices, 2L));
+
+        ResponseEntity<ResponseDTO<InvoicePage>> response = invoiceController.getAllInvoices(null, 2, null, null, null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().getData().items().size());
+        assertEquals(2L, response.getBody().getData().nextCursor());
+    }
+
+    @Test
+    void testGetAllInvoices_WithFilters() {
+        LocalDate from = LocalDate.now();
+        LocalDate to = from.plusDays(30);
+        InvoiceFilter filter = new InvoiceFilter(Invoice.Status.PENDING, from, to);
+
+        when(invoiceService.getInvoices(5L, 100, filter)).thenReturn(new InvoicePage(List.of(), null));
 
-        ResponseEntity<ResponseDTO<List<InvoiceResponse>>> response = invoiceController.getAllInvoices();
+        ResponseEntity<ResponseDTO<InvoicePage>> response = invoiceController.getAllInvoices(5L, null, "pending", from, to);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals(2, response.getBody().getData().size());
+        assertNull(response.getBody().getData().nextCursor());
+        verify(invoiceService).getInvoices(5L, 100, filter);
     }
 
     @Test
     void testGetAllInvoices_NotFound() {
-        when(invoiceService.getAllInvoices()).thenReturn(List.of());
+        when(invoiceService.getInvoices(null, 100, new InvoiceFilter(null, null, null))).thenReturn(new InvoicePage(List.of(), null));
+
+        assertThrows(ResourceNotFoundException.class, () -> invoiceController.getAllInvoices(null, null, null, null, null));
+    }
 
-        assertThrows(ResourceNotFoundException.class, () -> invoiceController.getAllInvoices());
+    @Test
+    void testGetAllInvoices_BadRequest() {
+        assertThrows(InvalidRequestPayloadException.class, () -> invoiceController.getAllInvoices(null, 0, null, null, null));
+        assertThrows(InvalidRequestPayloadException.class, () -> invoiceController.getAllInvoices(null, null, "UNKNOWN", null, null));
+        assertThrows(InvalidRequestPayloadException.class,
+                () -> invoiceController.getAllInvoices(null, null, null, LocalDate.now(), LocalDate.now().minusDays(1)));
     }
 
     @Test
     void testPayInvoice_Success() {
-        PaymentRequest request = new PaymentRequest(100.0);
-        InvoiceResponse paidInvoice = new InvoiceResponse(1L, 100.0,0.0, LocalDate.now(), Invoice.Status.PAID.name());
+        PaymentRequest request = new PaymentRequest(10000L);
+        InvoiceResponse paidInvoice = new InvoiceResponse(1L, 10000L, 0L, "USD", LocalDate.now(), Invoice.Status.PAID.name());
 
         when(invoiceService.payInvoice(1L, request)).thenReturn(paidInvoice);
 
@@ -114,26 +194,119 @@ public class InvoiceControllerTest {
 
     @Test
     void testPayInvoice_BadRequest() {
-        PaymentRequest request = new PaymentRequest(0.0);
+        PaymentRequest request = new PaymentRequest(0L);
 
         assertThrows(InvalidRequestPayloadException.class, () -> invoiceController.payInvoice(1L, request));
     }
 
     @Test
     void testProcessOverdueInvoices_Success() {
-        ProcessOverdueInvoiceRequest request = new ProcessOverdueInvoiceRequest(10.0, 5);
+        ProcessOverdueInvoiceRequest request = new ProcessOverdueInvoiceRequest(1000L, 5);
+        OverdueJobStatus job = new OverdueJobStatus("job-1", LocalDate.now(), "QUEUED", 0, 0, 0, null, null, null);
 
-        ResponseEntity<ResponseDTO<String>> response = invoiceController.processOverdueInvoices(request);
+        when(invoiceService.submitOverdueJob(request)).thenReturn(job);
 
-        assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals("Overdue invoices processed successfully", response.getBody().getData());
+        ResponseEntity<ResponseDTO<OverdueJobStatus>> response = invoiceController.processOverdueInvoices(request);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(job, response.getBody().getData());
+        assertEquals("/api/v1/invoices/process-overdue/jobs/job-1", response.getHeaders().getLocation().toString());
 
-        verify(invoiceService).processOverdueInvoices(request);
+        verify(invoiceService).submitOverdueJob(request);
+    }
+
+    @Test
+    void testGetOverdueJob_Success() {
+        OverdueJobStatus job = new OverdueJobStatus("job-1", LocalDate.now(), "COMPLETED", 10, 10, 500.0, null, null, null);
+
+        when(invoiceService.getOverdueJob("job-1")).thenReturn(job);
+
+        ResponseEntity<ResponseDTO<OverdueJobStatus>> response = invoiceController.getOverdueJob("job-1");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(job, response.getBody().getData());
     }
 
     @Test
     void testProcessOverdueInvoices_BadRequest() {
-        ProcessOverdueInvoiceRequest request = new ProcessOverdueInvoiceRequest(0.0, 0);
+        ProcessOverdueInvoiceRequest request = new ProcessOverdueInvoiceRequest(0L, 0);
         assertThrows(InvalidRequestPayloadException.class, () -> invoiceController.processOverdueInvoices(request));
     }
+
+    @Test
+    void testGetPayments_Success() {
+        PaymentPage page = new PaymentPage(List.of(new PaymentResponse(7L, 1L, 5000L, LocalDateTime.now())), null);
+
+        when(invoiceService.getPayments(1L, null, 100)).thenReturn(page);
+
+        ResponseEntity<ResponseDTO<PaymentPage>> response = invoiceController.getPayments(1L, null, null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(page, response.getBody().getData());
+    }
+
+    @Test
+    void testGetPayments_InvalidSize() {
+        assertThrows(InvalidRequestPayloadException.class, () -> invoiceController.getPayments(1L, null, 0));
+    }
+
+    @Test
+    void testGetChanges_Success() {
+        InvoiceChangePage page = new InvoiceChangePage(List.of(new InvoiceEventResponse(42L, 1L, "CREATED", "PENDING",
+                10000L, null, LocalDateTime.now())), 42L);
+
+        when(invoiceService.getChanges(41L, 100, Duration.ofSeconds(10))).thenReturn(CompletableFuture.completedFuture(page));
+
+        ResponseEntity<ResponseDTO<InvoiceChangePage>> response = invoiceController.getChanges(41L, null, 10).join();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(page, response.getBody().getData());
+    }
+
+    @Test
+    void testGetChanges_InvalidParameters() {
+        assertThrows(InvalidRequestPayloadException.class, () -> invoiceController.getChanges(-1L, null, 0));
+        assertThrows(InvalidRequestPayloadException.class, () -> invoiceController.getChanges(0L, 0, 0));
+        assertThrows(InvalidRequestPayloadException.class, () -> invoiceController.getChanges(0L, null, 31));
+    }
+
+    @Test
+    void testGetSummary_Success() {
+        ReceivablesSummary summary = new ReceivablesSummary(LocalDate.now(), List.of());
+
+        when(invoiceService.getSummary()).thenReturn(summary);
+
+        ResponseEntity<ResponseDTO<ReceivablesSummary>> response = invoiceController.getSummary();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(summary, response.getBody().getData());
+    }
+
+    @Test
+    void testApplyPayments_Batch() {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        PaymentBatchResult result = new PaymentBatchResult(1, 1, List.of(
+                PaymentBatchItemResult.applied(0, 1L, "PAID", 10000L),
+                PaymentBatchItemResult.rejected(1, 2L, PaymentBatchItemResult.Outcome.NOT_FOUND, "Invoice not found with ID: 2")));
+
+        when(invoiceService.applyPayments(body)).thenReturn(result);
+
+        ResponseEntity<ResponseDTO<PaymentBatchResult>> response = invoiceController.applyPayments(body);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(result, response.getBody().getData());
+    }
+
+    @Test
+    void testApplyPayments_BatchNothingApplied() {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        PaymentBatchResult result = new PaymentBatchResult(0, 1, List.of(
+                PaymentBatchItemResult.rejected(0, 1L, PaymentBatchItemResult.Outcome.EXCEEDS_BALANCE, "Payment amount exceeds the remaining balance")));
+
+        when(invoiceService.applyPayments(body)).thenReturn(result);
+
+        ResponseEntity<ResponseDTO<PaymentBatchResult>> response = invoiceController.applyPayments(body);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
 }
@@ -0,0 +1,237 @@
+package com.eg.invoiceassessment.idempotency;
+
+import com.eg.invoiceassessment.entity.IdempotencyRecord;
+import com.eg.invoiceassessment.repository.IdempotencyRecordRepository;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class IdempotencyFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IdempotencyFilter filter;
+
+    @Autowired
+    private IdempotencyStore store;
+
+    @Autowired
+    private IdempotencyRecordRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void testRepeatedKey_ReplaysTheFirstResponse() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String body = invoiceJson(1_500L);
+
+        MvcResult first = mockMvc.perform(post("/api/v1/invoices").header(IdempotencyFilter.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andReturn();
+        MvcResult second = mockMvc.perform(post("/api/v1/invoices").header(IdempotencyFilter.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andReturn();
+
+        // Same invoice ID, so the second request never created one
+        assertEquals(first.getResponse().getContentAsString(), second.getResponse().getContentAsString());
+    }
+
+    @Test
+    void testKeyReusedWithADifferentBody_Returns422() throws Exception {
+        String key = UUID.randomUUID().toString();
+        mockMvc.perform(post("/api/v1/invoices").header(IdempotencyFilter.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON).content(invoiceJson(1_500L)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(post("/api/v1/invoices").header(IdempotencyFilter.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON).content(invoiceJson(2_500L)))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void testSameKeyFromAnotherClient_RunsItsOwnRequest() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String body = invoiceJson(1_500L);
+
+        MvcResult first = mockMvc.perform(post("/api/v1/invoices").header(IdempotencyFilter.HEADER, key)
+                        .with(from("10.2.0.1")).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn();
+        MvcResult other = mockMvc.perform(post("/api/v1/invoices").header(IdempotencyFilter.HEADER, key)
+                        .with(from("10.2.0.2")).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andReturn();
+
+        // Two invoices, and each client's retry replays its own
+        assertNotEquals(first.getResponse().getContentAsString(), other.getResponse().getContentAsString());
+        mockMvc.perform(post("/api/v1/invoices").header(IdempotencyFilter.HEADER, key)
+                        .with(from("10.2.0.2")).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(content().string(other.getResponse().getContentAsString()));
+    }
+
+    @Test
+    void testConcurrentDuplicate_WaitsForTheFirstAndReplaysIt() throws Exception {
+        String key = UUID.randomUUID().toString();
+        IdempotencyStore.Claim.Execute first = assertInstanceOf(IdempotencyStore.Claim.Execute.class, store.claim(key, "hash"));
+
+        CompletableFuture<IdempotencyStore.Claim> duplicate = CompletableFuture.supplyAsync(() -> store.claim(key, "hash"));
+        Thread.sleep(200);
+        assertFalse(duplicate.isDone());
+
+        StoredResponse response = new StoredResponse(201, MediaType.APPLICATION_JSON_VALUE, "{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+        store.complete(first, response);
+
+        IdempotencyStore.Claim.Replay replay = assertInstanceOf(IdempotencyStore.Claim.Replay.class,
+                duplicate.get(10, TimeUnit.SECONDS));
+        assertArrayEquals(response.body(), replay.response().body());
+    }
+
+    @Test
+    void testServerErrorAndShedRequest_ReleaseTheKey() throws Exception {
+        for (int status : new int[]{500, 429}) {
+            String key = UUID.randomUUID().toString();
+            AtomicInteger runs = new AtomicInteger();
+            FilterChain failing = (request, response) -> {
+                runs.incrementAndGet();
+                ((HttpServletResponse) response).setStatus(status);
+            };
+
+            assertEquals(status, run(key, failing).getStatus());
+            assertTrue(repository.findById(stored(key)).isEmpty());
+            assertEquals(status, run(key, failing).getStatus());
+            assertEquals(2, runs.get(), "a request answered with " + status + " must run again on retry");
+        }
+    }
+
+    @Test
+    void testStaleInFlightKey_IsTakenOver() {
+        String key = UUID.randomUUID().toString();
+        // Left behind by an instance that died a minute ago while running the request
+        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(1);
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx -> repository.insert(key, "hash",
+                IdempotencyRecord.Status.IN_FLIGHT, createdAt, createdAt.plusHours(24)));
+
+        IdempotencyStore.Claim.Execute claim = assertInstanceOf(IdempotencyStore.Claim.Execute.class, store.claim(key, "hash"));
+        assertTrue(claim.createdAt().isAfter(createdAt));
+        store.release(claim);
+    }
+
+    @Test
+    void testBinaryResponse_IsStoredAsBase64AndReplayedFromTheDatabase() throws Exception {
+        String key = UUID.randomUUID().toString();
+        byte[] cbor = {(byte) 0xbf, 0x64, 'd', 'a', 't', 'a', 0x00, (byte) 0xff, (byte) 0x80};
+        FilterChain chain = (request, response) -> {
+            response.setContentType("application/cbor");
+            ((HttpServletResponse) response).setStatus(201);
+            response.getOutputStream().write(cbor);
+        };
+
+        assertArrayEquals(cbor, run(key, chain).getContentAsByteArray());
+
+        IdempotencyRecord record = repository.findById(stored(key)).orElseThrow();
+        assertEquals(IdempotencyRecord.Status.COMPLETED, record.getStatus());
+        assertArrayEquals(cbor, Base64.getDecoder().decode(record.getResponseBody()));
+
+        // A store without the key in memory, as on another instance, replays it from the row
+        IdempotencyStore otherInstance = new IdempotencyStore(repository, transactionManager,
+                Duration.ofHours(24), Duration.ofSeconds(30), 100);
+        IdempotencyStore.Claim.Replay replay = assertInstanceOf(IdempotencyStore.Claim.Replay.class,
+                otherInstance.claim(stored(key), record.getRequestHash()));
+        assertEquals(201, replay.response().status());
+        assertEquals("application/cbor", replay.response().contentType());
+        assertArrayEquals(cbor, replay.response().body());
+    }
+
+    @Test
+    void testResponseTooLongToStore_IsStillDeliveredAndReplayed() throws Exception {
+        String key = UUID.randomUUID().toString();
+        byte[] large = ("\"" + "x".repeat(IdempotencyStore.MAX_STORED_BODY_LENGTH) + "\"").getBytes(StandardCharsets.UTF_8);
+        AtomicInteger runs = new AtomicInteger();
+        FilterChain chain = (request, response) -> {
+            runs.incrementAndGet();
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            ((HttpServletResponse) response).setStatus(201);
+            response.getOutputStream().write(large);
+        };
+
+        MockHttpServletResponse first = run(key, chain);
+        assertEquals(201, first.getStatus());
+        assertArrayEquals(large, first.getContentAsByteArray());
+
+        // Completed without the body, not left in flight
+        IdempotencyRecord record = repository.findById(stored(key)).orElseThrow();
+        assertEquals(IdempotencyRecord.Status.COMPLETED, record.getStatus());
+        assertArrayEquals(large, run(key, chain).getContentAsByteArray());
+        assertEquals(1, runs.get());
+    }
+
+    // Keys sent through the filter are stored under the caller's scope; MockHttpServletRequest comes from 127.0.0.1
+    private static String stored(String key) {
+        return IdempotencyFilter.scopedKey("address:127.0.0.1", key);
+    }
+
+    private MockHttpServletResponse run(String key, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/invoices");
+        request.addHeader(IdempotencyFilter.HEADER, key);
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(invoiceJson(1_000L).getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static RequestPostProcessor from(String address) {
+        return request -> {
+            request.setRemoteAddr(address);
+            return request;
+        };
+    }
+
+    private static String invoiceJson(long amount) {
+        return """
+                {"amount": %d, "currency": "USD", "dueDate": "%s"}""".formatted(amount, LocalDate.now().plusDays(30));
+    }
+}
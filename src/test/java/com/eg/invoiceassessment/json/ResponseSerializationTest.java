@@ -0,0 +1,72 @@
+package com.eg.invoiceassessment.json;
+
+import com.eg.invoiceassessment.dto.InvoicePage;
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.dto.ResponseDTO;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ResponseSerializationTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    // Same mapper with the hand-written serializers switched off again
+    private final ObjectMapper reflectionMapper = Jackson2ObjectMapperBuilder.json()
+            .mixIn(InvoiceResponse.class, DefaultSerialization.class)
+            .mixIn(InvoicePage.class, DefaultSerialization.class)
+            .mixIn(ResponseDTO.class, DefaultSerialization.class)
+            .build();
+
+    @Test
+    void testInvoicePage_MatchesDefaultSerialization() throws Exception {
+        InvoicePage page = new InvoicePage(Arrays.asList(
+                new InvoiceResponse(1L, 10000L, 2500L, "USD", LocalDate.of(2024, 2, 29), Invoice.Status.PENDING.name()),
+                new InvoiceResponse(2L, Long.MAX_VALUE, 0L, "EUR", LocalDate.of(1, 1, 1), Invoice.Status.PAID.name()),
+                new InvoiceResponse(null, 0L, 0L, null, null, (String) null),
+                new InvoiceResponse(3L, 1L, 0L, "JPY", LocalDate.of(12345, 12, 31), Invoice.Status.VOID.name()),
+                null), 3L);
+
+        assertSameJson(new ResponseDTO<>("SUCCESS", page));
+        assertSameJson(new ResponseDTO<>("SUCCESS", new InvoicePage(List.of(), null)));
+    }
+
+    @Test
+    void testResponseDTO_MatchesDefaultSerializationForOtherPayloads() throws Exception {
+        assertSameJson(new ResponseDTO<>("SUCCESS", "42"));
+        assertSameJson(new ResponseDTO<>(null, null));
+        assertSameJson(new ResponseDTO<>("SUCCESS", List.of(
+                new InvoiceResponse(7L, 100L, 0L, "USD", LocalDate.of(2030, 10, 5), Invoice.Status.PENDING.name()))));
+    }
+
+    @Test
+    void testInvoicePage_RoundTripsThroughBinaryFormats() throws Exception {
+        InvoicePage page = new InvoicePage(List.of(
+                new InvoiceResponse(1L, 10000L, 2500L, "USD", LocalDate.of(2024, 2, 29), Invoice.Status.PENDING.name()),
+                new InvoiceResponse(2L, 1L, 0L, "EUR", null, Invoice.Status.PAID.name())), 2L);
+
+        for (ObjectMapper mapper : List.<ObjectMapper>of(Jackson2ObjectMapperBuilder.cbor().build(), Jackson2ObjectMapperBuilder.smile().build())) {
+            ResponseDTO<InvoicePage> decoded = mapper.readValue(mapper.writeValueAsBytes(new ResponseDTO<>("SUCCESS", page)),
+                    mapper.getTypeFactory().constructParametricType(ResponseDTO.class, InvoicePage.class));
+
+            assertEquals("SUCCESS", decoded.getMessage());
+            assertEquals(page, decoded.getData());
+        }
+    }
+
+    private void assertSameJson(Object value) throws Exception {
+        assertEquals(reflectionMapper.writeValueAsString(value), objectMapper.writeValueAsString(value));
+    }
+
+    @JsonSerialize
+    private abstract static class DefaultSerialization {
+    }
+}
@@ -0,0 +1,54 @@
+package com.eg.invoiceassessment.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class InvoiceMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final InvoiceMetrics metrics = new InvoiceMetrics(registry);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testAcceptedPayments_AreCountedOnlyOnceTheTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        metrics.paymentsAcceptedAfterCommit(3);
+        assertEquals(0.0, accepted());
+
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(3.0, accepted());
+    }
+
+    @Test
+    void testAcceptedPayments_AreNotCountedWhenTheTransactionRollsBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        metrics.paymentsAcceptedAfterCommit(2);
+
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(0.0, accepted());
+    }
+
+    @Test
+    void testAcceptedPayments_OutsideATransactionAreCountedRightAway() {
+        metrics.paymentsAcceptedAfterCommit(1);
+
+        assertEquals(1.0, accepted());
+    }
+
+    private double accepted() {
+        return registry.get("invoice.payments").tag("outcome", "accepted").counter().count();
+    }
+}
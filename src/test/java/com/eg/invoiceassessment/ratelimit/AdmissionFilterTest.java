@@ -0,0 +1,143 @@
+package com.eg.invoiceassessment.ratelimit;
+
+import com.eg.invoiceassessment.exception.TooManyRequestsException;
+import com.eg.invoiceassessment.metrics.InvoiceMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdmissionFilterTest {
+
+    private static final String PAYMENTS = "/api/v1/invoices/{id}/payments";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<TooManyRequestsException> rejections = new ArrayList<>();
+
+    @Test
+    void testTokenBucket_RefillsAtRate() {
+        TokenBucket bucket = new TokenBucket(10, 2, 0);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(100_000_000, bucket.tryAcquire(0));
+        assertEquals(50_000_000, bucket.tryAcquire(50_000_000));
+        assertEquals(0, bucket.tryAcquire(100_000_000));
+        // Idle time refills the bucket only up to its capacity
+        assertEquals(0, bucket.tryAcquire(10_000_000_000L));
+        assertEquals(0, bucket.tryAcquire(10_000_000_000L));
+        assertTrue(bucket.tryAcquire(10_000_000_000L) > 0);
+    }
+
+    @Test
+    void testRateLimit_PerClient() throws Exception {
+        AdmissionFilter filter = filter(new AdmissionProperties.Endpoint("POST", PAYMENTS, 0.001, 2, 0));
+
+        assertAdmitted(filter, request("POST", "10.0.0.1"));
+        assertAdmitted(filter, request("POST", "10.0.0.1"));
+        assertRejected(filter, request("POST", "10.0.0.1"));
+        assertTrue(rejections.get(0).getRetryAfter().compareTo(Duration.ofMinutes(16)) > 0);
+
+        // Another client, and the same path with another method, have their own allowance
+        assertAdmitted(filter, request("POST", "10.0.0.2"));
+        assertAdmitted(filter, request("GET", "10.0.0.1"));
+        assertEquals(3, registry.get("invoice.admission").tag("outcome", "admitted").counter().count());
+        assertEquals(1, registry.get("invoice.admission").tag("outcome", "rate_limited").counter().count());
+    }
+
+    @Test
+    void testRateLimit_KeyedOnPrincipalOrAddressNotOnHeaders() throws Exception {
+        AdmissionFilter filter = filter(new AdmissionProperties.Endpoint("POST", PAYMENTS, 0.001, 1, 0));
+
+        // A new API key per request is still the same client
+        MockHttpServletRequest first = request("POST", "10.0.0.1");
+        first.addHeader("X-API-Key", "key-a");
+        assertAdmitted(filter, first);
+        MockHttpServletRequest second = request("POST", "10.0.0.1");
+        second.addHeader("X-API-Key", "key-b");
+        assertRejected(filter, second);
+
+        // Authenticated callers are told apart by their principal, wherever they connect from
+        MockHttpServletRequest alice = request("POST", "10.0.0.1");
+        alice.setUserPrincipal(() -> "alice");
+        assertAdmitted(filter, alice);
+        MockHttpServletRequest aliceElsewhere = request("POST", "10.0.0.2");
+        aliceElsewhere.setUserPrincipal(() -> "alice");
+        assertRejected(filter, aliceElsewhere);
+    }
+
+    @Test
+    void testConcurrencyLimit_ReleasedOnCompletion() throws Exception {
+        AdmissionFilter filter = filter(new AdmissionProperties.Endpoint("POST", PAYMENTS, 0, 0, 1));
+
+        // The second request arrives while the first is still in the chain
+        filter.doFilter(request("POST", null), new MockHttpServletResponse(), (request, response) -> {
+            assertRejected(filter, request("POST", null));
+            assertEquals(1, registry.get("invoice.admission.in_flight").gauge().value());
+        });
+
+        assertAdmitted(filter, request("POST", null));
+        assertEquals(1, registry.get("invoice.admission").tag("outcome", "concurrency_limited").counter().count());
+        assertEquals(0, registry.get("invoice.admission.in_flight").gauge().value());
+    }
+
+    @Test
+    void testOtherPaths_AreNotLimited() throws Exception {
+        AdmissionFilter filter = filter(new AdmissionProperties.Endpoint("POST", PAYMENTS, 0.001, 1, 0));
+
+        assertAdmitted(filter, request("POST", "10.0.0.1"));
+        for (String path : new String[]{"/api/v1/invoices/payments/batch", "/api/v1/invoices/1", "/api/v1/invoices"}) {
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+            request.setRemoteAddr("10.0.0.1");
+            assertAdmitted(filter, request);
+        }
+    }
+
+    private AdmissionFilter filter(AdmissionProperties.Endpoint endpoint) {
+        AdmissionProperties properties = new AdmissionProperties(true, 100, Duration.ofMinutes(10),
+                Map.of("pay-invoice", endpoint));
+        return new AdmissionFilter(properties, new InvoiceMetrics(registry), (request, response, handler, ex) -> {
+            rejections.add((TooManyRequestsException) ex);
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            return new ModelAndView();
+        });
+    }
+
+    private static MockHttpServletRequest request(String method, String address) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, PAYMENTS.replace("{id}", "1"));
+        if (address != null) {
+            request.setRemoteAddr(address);
+        }
+        return request;
+    }
+
+    private static void assertAdmitted(AdmissionFilter filter, MockHttpServletRequest request) throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertNotNull(chain.getRequest(), "request was not admitted");
+    }
+
+    private static void assertRejected(AdmissionFilter filter, ServletRequest request) throws IOException, ServletException {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        assertNull(chain.getRequest(), "request was admitted");
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), response.getStatus());
+    }
+}
@@ -0,0 +1,51 @@
+package com.eg.invoiceassessment.ratelimit;
+
+import com.eg.invoiceassessment.idempotency.IdempotencyFilter;
+import com.eg.invoiceassessment.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "invoice.admission.endpoints.create-invoice.rate=0.001",
+        "invoice.admission.endpoints.create-invoice.burst=1"
+})
+@AutoConfigureMockMvc
+public class AdmissionIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Test
+    void testRejectedRequest_NeverClaimsItsIdempotencyKey() throws Exception {
+        String body = """
+                {"amount": 1000, "currency": "DKK", "dueDate": "%s"}""".formatted(LocalDate.now().plusDays(30));
+        mockMvc.perform(post("/api/v1/invoices").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(post("/api/v1/invoices")
+                        .header(IdempotencyFilter.HEADER, "admission-test-key")
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+                .andExpect(jsonPath("$.status").value(429))
+                .andExpect(jsonPath("$.path").value("/api/v1/invoices"));
+
+        assertTrue(idempotencyRecordRepository.findById("admission-test-key").isEmpty());
+    }
+}
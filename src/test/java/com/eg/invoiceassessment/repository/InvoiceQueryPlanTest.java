@@ -0,0 +1,163 @@
+package com.eg.invoiceassessment.repository;
+
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.entity.Invoice;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the repository queries, captures the SQL Hibernate sends and checks the database plan for it, so a
+ * query or schema change that falls back to a table scan fails here instead of in production.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.eg.invoiceassessment.repository.InvoiceQueryPlanTest$CapturingStatementInspector")
+@Transactional
+public class InvoiceQueryPlanTest {
+
+    // Far above anything the sequences hand out during the test run; everything is rolled back anyway
+    private static final long FIRST_ID = 1_000_000_000L;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("""
+                insert into invoices (id, amount, paid_amount, currency, due_date, status, created_at, updated_at, version)
+                select ? + x, 10000, 0, 'USD', dateadd('DAY', mod(x, 730), date '2024-01-01'),
+                       case mod(x, 3) when 0 then 'PENDING' when 1 then 'PAID' else 'VOID' end, now(), now(), 0
+                from system_range(1, 5000)""", FIRST_ID);
+        jdbcTemplate.update("""
+                insert into payments (id, invoice_id, amount, paid_at)
+                select ? + x, ? + mod(x, 500), 100, now()
+                from system_range(1, 5000)""", FIRST_ID, FIRST_ID);
+        CapturingStatementInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    void testOverdueIdRange_UsesStatusDueDateIndex() {
+        LocalDate cutoff = LocalDate.of(2025, 1, 1);
+        invoiceRepository.findIdRange(cutoff, Invoice.Status.PENDING);
+
+        String plan = explain(cutoff, Invoice.Status.PENDING.name());
+        assertUses(plan, "IDX_INVOICES_STATUS_DUE_DATE");
+    }
+
+    @Test
+    void testOverdueChunk_UsesStatusIndex() {
+        LocalDate cutoff = LocalDate.of(2025, 1, 1);
+        invoiceRepository.findOverdueChunk(FIRST_ID, FIRST_ID + 5000, cutoff, Invoice.Status.PENDING, Limit.of(500));
+
+        // Either status-led index is fine here; the id window then only filters rows inside it
+        String plan = explain(FIRST_ID, FIRST_ID + 5000, cutoff, Invoice.Status.PENDING.name(), 500);
+        assertUses(plan, "IDX_INVOICES_STATUS_");
+    }
+
+    @Test
+    void testLockByIds_LooksUpPrimaryKey() {
+        invoiceRepository.lockByIds(List.of(FIRST_ID + 3, FIRST_ID + 6));
+
+        String plan = explain(FIRST_ID + 3, FIRST_ID + 6);
+        assertUses(plan, "PRIMARY_KEY");
+    }
+
+    @Test
+    void testCloseByIds_LooksUpPrimaryKey() {
+        LocalDateTime now = LocalDateTime.now();
+        invoiceRepository.closeUnpaidByIds(List.of(FIRST_ID + 3, FIRST_ID + 6), Invoice.Status.VOID, now);
+
+        String plan = explain(Invoice.Status.VOID.name(), now, FIRST_ID + 3, FIRST_ID + 6);
+        assertUses(plan, "PRIMARY_KEY");
+    }
+
+    @Test
+    void testPageByStatus_UsesStatusIdIndex() {
+        invoiceRepository.findPageByStatus(FIRST_ID, Invoice.Status.PENDING, null, null, Limit.of(100));
+
+        String plan = explain(Invoice.Status.PENDING.name(), FIRST_ID, null, null, null, null, 100);
+        assertUses(plan, "IDX_INVOICES_STATUS_ID");
+    }
+
+    @Test
+    void testPage_WalksPrimaryKey() {
+        invoiceRepository.findPage(FIRST_ID, null, null, Limit.of(100));
+
+        String plan = explain(FIRST_ID, null, null, null, null, 100);
+        assertUses(plan, "PRIMARY_KEY");
+    }
+
+    @Test
+    void testExportByStatus_UsesStatusIndex() {
+        try (Stream<InvoiceResponse> rows = invoiceRepository.streamAllByStatus(Invoice.Status.PENDING, null, null)) {
+            rows.forEach(row -> { });
+        }
+
+        // Either status-led index is fine here; without an id bound the planner may pick the due date one
+        String plan = explain(Invoice.Status.PENDING.name(), null, null, null, null);
+        assertUses(plan, "IDX_INVOICES_STATUS_");
+    }
+
+    @Test
+    void testExport_WalksPrimaryKey() {
+        try (Stream<InvoiceResponse> rows = invoiceRepository.streamAll(null, null)) {
+            rows.forEach(row -> { });
+        }
+
+        String plan = explain(null, null, null, null);
+        assertUses(plan, "PRIMARY_KEY");
+    }
+
+    @Test
+    void testPaymentPage_UsesInvoiceIdIndex() {
+        paymentRepository.findPage(FIRST_ID + 1, 0L, Limit.of(100));
+
+        String plan = explain(FIRST_ID + 1, 0L, 100);
+        assertUses(plan, "IDX_PAYMENTS_INVOICE_ID");
+    }
+
+    /**
+     * EXPLAIN for the last statement Hibernate ran, bound to {@code args} in the order they appear in it.
+     */
+    private String explain(Object... args) {
+        List<String> statements = CapturingStatementInspector.STATEMENTS;
+        String sql = statements.get(statements.size() - 1);
+        return String.join("\n", jdbcTemplate.queryForList("explain " + sql, String.class, args));
+    }
+
+    private static void assertUses(String plan, String index) {
+        assertTrue(plan.toUpperCase().contains(index), () -> "Expected " + index + " in plan:\n" + plan);
+        assertFalse(plan.contains("tableScan"), () -> "Unexpected table scan in plan:\n" + plan);
+    }
+
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
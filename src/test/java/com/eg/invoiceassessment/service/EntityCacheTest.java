@@ -0,0 +1,71 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.dto.InvoiceRequest;
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.dto.PaymentRequest;
+import com.eg.invoiceassessment.dto.ProcessOverdueInvoiceRequest;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.repository.InvoiceRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "invoice.entity-cache.enabled=true")
+public class EntityCacheTest {
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void testPaymentsUpdateTheEntryAndOverdueRunsEvictIt() {
+        InvoiceResponse invoice = invoiceService.createInvoice(new InvoiceRequest(10_000L, "NOK", LocalDate.now().minusDays(3)));
+        CacheRegionStatistics region = entityManagerFactory.unwrap(SessionFactory.class).getStatistics()
+                .getDomainDataRegionStatistics(Invoice.CACHE_REGION);
+        assertTrue(entityManagerFactory.getCache().contains(Invoice.class, invoice.id()));
+
+        InvoiceResponse paid = invoiceService.payInvoice(invoice.id(), new PaymentRequest(4_000L));
+        assertEquals(4_000L, paid.paidAmount());
+        long hits = region.getHitCount();
+        assertEquals(4_000L, invoiceRepository.findById(invoice.id()).orElseThrow().getPaidAmount());
+        assertEquals(hits + 1, region.getHitCount());
+
+        // Closed with a bulk UPDATE, which must not leave the PENDING entry behind
+        invoiceService.processOverdueInvoices(new ProcessOverdueInvoiceRequest(0L, 30));
+        assertFalse(entityManagerFactory.getCache().contains(Invoice.class, invoice.id()));
+        assertEquals(Invoice.Status.PAID, invoiceRepository.findById(invoice.id()).orElseThrow().getStatus());
+        assertEquals(Invoice.Status.PAID.name(), invoiceService.getInvoiceById(invoice.id()).status());
+    }
+
+    @Test
+    void testBatchPaymentsUpdateTheEntry() {
+        InvoiceResponse invoice = invoiceService.createInvoice(new InvoiceRequest(10_000L, "NOK", LocalDate.now().plusDays(30)));
+        assertTrue(entityManagerFactory.getCache().contains(Invoice.class, invoice.id()));
+
+        String body = """
+                {"invoiceId": %1$d, "amount": 4000}
+                {"invoiceId": %1$d, "amount": 2000}
+                """.formatted(invoice.id());
+        assertEquals(2, invoiceService.applyPayments(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))).applied());
+
+        // Written through the entity, so the entry was replaced rather than left at the old balance
+        assertTrue(entityManagerFactory.getCache().contains(Invoice.class, invoice.id()));
+        assertEquals(6_000L, invoiceRepository.findById(invoice.id()).orElseThrow().getPaidAmount());
+    }
+}
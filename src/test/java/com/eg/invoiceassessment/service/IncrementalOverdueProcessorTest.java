@@ -0,0 +1,71 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.dto.InvoiceRequest;
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.dto.PaymentRequest;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.repository.InvoiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "invoice.overdue.incremental.enabled=true",
+        "invoice.overdue.policy.late-fee=1000",
+        "invoice.overdue.policy.follow-up-days=14"
+})
+public class IncrementalOverdueProcessorTest {
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private IncrementalOverdueProcessor processor;
+
+    @Autowired
+    private OverdueTimingWheel wheel;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Test
+    void testRollover_ClosesOnlyInvoicesThatBecameOverdue() {
+        LocalDate today = wheel.getCurrentDay();
+        InvoiceResponse dueToday = invoiceService.createInvoice(new InvoiceRequest(10_000L, "USD", today));
+        InvoiceResponse partlyPaid = invoiceService.createInvoice(new InvoiceRequest(8_000L, "USD", today));
+        InvoiceResponse settled = invoiceService.createInvoice(new InvoiceRequest(5_000L, "USD", today));
+        InvoiceResponse dueNextWeek = invoiceService.createInvoice(new InvoiceRequest(7_000L, "USD", today.plusDays(7)));
+        invoiceService.payInvoice(partlyPaid.id(), new PaymentRequest(3_000L));
+        invoiceService.payInvoice(settled.id(), new PaymentRequest(5_000L));
+
+        int closed = processor.processNewlyOverdue(today.plusDays(1));
+
+        assertTrue(closed >= 2);
+        assertEquals(Invoice.Status.VOID, status(dueToday.id()));
+        assertEquals(Invoice.Status.PAID, status(partlyPaid.id()));
+        assertEquals(Invoice.Status.PAID, status(settled.id()));
+        assertEquals(Invoice.Status.PENDING, status(dueNextWeek.id()));
+
+        Invoice followUp = invoiceRepository.findAll().stream()
+                .filter(invoice -> invoice.getId() > dueNextWeek.id() && invoice.getAmount() == 6_000L)
+                .findFirst().orElseThrow();
+        assertEquals(LocalDate.now().plusDays(14), followUp.getDueDate());
+        assertEquals(Invoice.Status.PENDING, followUp.getStatus());
+
+        assertEquals(0, processor.processNewlyOverdue(today.plusDays(1)));
+
+        // The follow-up was tracked when it was created, so it is closed once it falls due in turn
+        processor.processNewlyOverdue(LocalDate.now().plusDays(15));
+        assertEquals(Invoice.Status.VOID, status(followUp.getId()));
+        assertEquals(Invoice.Status.VOID, status(dueNextWeek.id()));
+    }
+
+    private Invoice.Status status(Long id) {
+        return invoiceRepository.findById(id).orElseThrow().getStatus();
+    }
+}
@@ -0,0 +1,98 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.dto.BatchRowError;
+import com.eg.invoiceassessment.dto.InvoiceBatchResult;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.events.InvoiceEventRecorder;
+import com.eg.invoiceassessment.repository.InvoiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.util.AopTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+
+// A chunk size of 2 spreads the rows below over several transactions
+@SpringBootTest(properties = "invoice.batch.chunk-size=2")
+public class InvoiceBatchImporterTest {
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @MockitoSpyBean
+    private InvoiceEventRecorder invoiceEventRecorder;
+
+    @Test
+    void testImportInvoices_ReportsInvalidRowsAndImportsTheRest() {
+        InvoiceBatchResult result = invoiceService.createInvoices(body("""
+                {"amount": 1000, "currency": "USD", "dueDate": "%1$s"}
+                {"amount": 0, "currency": "USD", "dueDate": "%1$s"}
+                {"amount": 2000, "currency": "USD", "dueDate": "%1$s"}
+                {"amount": 3000, "currency": "XXQ", "dueDate": "%1$s"}
+                {"amount": 4000, "currency": "USD", "dueDate": "%1$s"}
+                """.formatted(LocalDate.now().plusDays(30))));
+
+        assertEquals(3, result.createdIds().size());
+        assertEquals(List.of(1L, 3L), result.errors().stream().map(BatchRowError::row).toList());
+        assertEquals(List.of(1_000L, 2_000L, 4_000L), amounts(result.createdIds()));
+    }
+
+    @Test
+    void testImportInvoices_FailedChunkIsReportedAndLaterChunksStillRun() {
+        // The second chunk's transaction fails after its rows were inserted, so they must be rolled back
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            invocation.callRealMethod();
+            if (calls.incrementAndGet() == 2) {
+                throw new DataIntegrityViolationException("Simulated failure");
+            }
+            return null;
+        }).when(spiedRecorder()).record(anyList());
+
+        try {
+            InvoiceBatchResult result = invoiceService.createInvoices(body("""
+                    [{"amount": 1000, "currency": "USD", "dueDate": "%1$s"},
+                     {"amount": 2000, "currency": "USD", "dueDate": "%1$s"},
+                     {"amount": 3000, "currency": "USD", "dueDate": "%1$s"},
+                     {"amount": null, "currency": "USD", "dueDate": "%1$s"},
+                     {"amount": 4000, "currency": "USD", "dueDate": "%1$s"},
+                     {"amount": 5000, "currency": "USD", "dueDate": "%1$s"}]
+                    """.formatted(LocalDate.now().plusDays(30))));
+
+            assertEquals(List.of(1_000L, 2_000L, 5_000L), amounts(result.createdIds()));
+            // Rows 2 and 4 were the failed chunk; row 3 was invalid and read while it filled up
+            assertEquals(List.of(2L, 3L, 4L), result.errors().stream().map(BatchRowError::row).toList());
+            assertEquals("Invoice could not be created, retry later", result.errors().get(0).message());
+        } finally {
+            doCallRealMethod().when(spiedRecorder()).record(anyList());
+        }
+    }
+
+    // Stubbed behind the transactional proxy, whose MANDATORY propagation would reject the stubbing call
+    private InvoiceEventRecorder spiedRecorder() {
+        return AopTestUtils.getUltimateTargetObject(invoiceEventRecorder);
+    }
+
+    private List<Long> amounts(List<Long> ids) {
+        return ids.stream().map(id -> invoiceRepository.findById(id).map(Invoice::getAmount).orElseThrow()).toList();
+    }
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
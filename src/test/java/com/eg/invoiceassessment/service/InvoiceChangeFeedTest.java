@@ -0,0 +1,218 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.dto.InvoiceChangePage;
+import com.eg.invoiceassessment.dto.InvoiceEventResponse;
+import com.eg.invoiceassessment.dto.InvoiceRequest;
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.dto.PaymentRequest;
+import com.eg.invoiceassessment.dto.ProcessOverdueInvoiceRequest;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.events.InvoiceEventPublisher;
+import com.eg.invoiceassessment.events.InvoiceEventRecorder;
+import com.eg.invoiceassessment.events.InvoiceEventRecorder.Change;
+import com.eg.invoiceassessment.exception.InvalidRequestPayloadException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "invoice.changes.publish-interval=PT0.05S",
+        "invoice.changes.poll-interval=PT0.05S"
+})
+public class InvoiceChangeFeedTest {
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceEventRecorder invoiceEventRecorder;
+
+    @Autowired
+    private InvoiceEventPublisher invoiceEventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void testStateTransitions_AreRecordedInOrder() {
+        long head = head();
+        LocalDate overdue = LocalDate.now().minusDays(10);
+        InvoiceResponse partlyPaid = invoiceService.createInvoice(new InvoiceRequest(10_000L, "USD", overdue));
+        InvoiceResponse unpaid = invoiceService.createInvoice(new InvoiceRequest(20_000L, "EUR", overdue));
+        InvoiceResponse settled = invoiceService.createInvoice(new InvoiceRequest(5_000L, "USD", overdue));
+        invoiceService.payInvoice(partlyPaid.id(), new PaymentRequest(4_000L));
+        invoiceService.payInvoice(settled.id(), new PaymentRequest(5_000L));
+        invoiceService.processOverdueInvoices(new ProcessOverdueInvoiceRequest(1_000L, 30));
+
+        List<InvoiceEventResponse> events = readAll(head).stream()
+                .filter(event -> List.of(partlyPaid.id(), unpaid.id(), settled.id()).contains(event.invoiceId())
+                        || List.of(partlyPaid.id(), unpaid.id()).contains(event.relatedInvoiceId()))
+                .toList();
+
+        assertEquals(List.of(
+                "CREATED " + partlyPaid.id() + " PENDING 10000",
+                "CREATED " + unpaid.id() + " PENDING 20000",
+                "CREATED " + settled.id() + " PENDING 5000",
+                "PAYMENT_APPLIED " + partlyPaid.id() + " PENDING 4000",
+                "PAYMENT_APPLIED " + settled.id() + " PAID 5000",
+                "STATUS_CHANGED " + settled.id() + " PAID null",
+                "STATUS_CHANGED " + partlyPaid.id() + " PAID null",
+                "CREATED follow-up PENDING 7000",
+                "STATUS_CHANGED " + unpaid.id() + " VOID null",
+                "CREATED follow-up PENDING 21000"), events.stream().map(InvoiceChangeFeedTest::describe).toList());
+
+        // Each closed invoice and its follow-up point at each other
+        assertEquals(events.get(7).invoiceId(), events.get(6).relatedInvoiceId());
+        assertEquals(partlyPaid.id(), events.get(7).relatedInvoiceId());
+        assertEquals(events.get(9).invoiceId(), events.get(8).relatedInvoiceId());
+        assertEquals(unpaid.id(), events.get(9).relatedInvoiceId());
+    }
+
+    @Test
+    void testPaymentsToAClosedInvoice_RecordNoFurtherStatusChange() {
+        InvoiceResponse invoice = invoiceService.createInvoice(new InvoiceRequest(10_000L, "USD", LocalDate.now().minusDays(10)));
+        invoiceService.payInvoice(invoice.id(), new PaymentRequest(4_000L));
+        invoiceService.processOverdueInvoices(new ProcessOverdueInvoiceRequest(1_000L, 30));
+        long head = head();
+
+        assertThrows(InvalidRequestPayloadException.class,
+                () -> invoiceService.payInvoice(invoice.id(), new PaymentRequest(6_000L)));
+        invoiceService.applyPayments(new ByteArrayInputStream(
+                ("{\"invoiceId\": " + invoice.id() + ", \"amount\": 6000}").getBytes(StandardCharsets.UTF_8)));
+
+        assertTrue(readAll(head).stream().noneMatch(event -> event.invoiceId().equals(invoice.id())));
+    }
+
+    @Test
+    void testLongPoll_CompletesWhenAnEventArrives() throws Exception {
+        long head = head();
+        CompletableFuture<InvoiceChangePage> poll = invoiceService.getChanges(head, 100, Duration.ofSeconds(20));
+        assertFalse(poll.isDone());
+
+        InvoiceResponse created = invoiceService.createInvoice(new InvoiceRequest(1_000L, "USD", LocalDate.now().plusDays(30)));
+
+        InvoiceChangePage page = poll.get(10, TimeUnit.SECONDS);
+        assertTrue(page.events().stream().anyMatch(event -> event.invoiceId().equals(created.id())));
+        assertEquals(page.events().get(page.events().size() - 1).offset(), page.nextOffset());
+    }
+
+    @Test
+    void testLongPoll_ReturnsEmptyPageAfterWait() throws Exception {
+        long head = head();
+
+        InvoiceChangePage page = invoiceService.getChanges(head, 100, Duration.ofMillis(200)).get(10, TimeUnit.SECONDS);
+
+        assertNotNull(page);
+        assertTrue(page.events().isEmpty());
+        assertEquals(head, page.nextOffset());
+    }
+
+    @Test
+    void testEventCommittedAfterAHigherId_IsServedAfterIt() throws Exception {
+        long head = head();
+        InvoiceResponse invoice = invoiceService.createInvoice(new InvoiceRequest(9_000L, "USD", LocalDate.now().plusDays(30)));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        CountDownLatch recorded = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        // Takes the lower id, then stays open while a later transaction commits a higher one
+        CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(tx -> {
+            invoiceEventRecorder.record(Change.paymentApplied(invoice.id(), 1_000L, Invoice.Status.PENDING));
+            recorded.countDown();
+            await(commit);
+        }));
+        recorded.await(10, TimeUnit.SECONDS);
+        invoiceService.payInvoice(invoice.id(), new PaymentRequest(2_000L));
+
+        invoiceEventPublisher.publish();
+        List<InvoiceEventResponse> first = readAll(head);
+        assertEquals(List.of("PAYMENT_APPLIED " + invoice.id() + " PENDING 2000"), describePayments(first, invoice.id()));
+
+        commit.countDown();
+        slow.get(10, TimeUnit.SECONDS);
+        invoiceEventPublisher.publish();
+        List<InvoiceEventResponse> second = readAll(first.get(first.size() - 1).offset());
+        assertEquals(List.of("PAYMENT_APPLIED " + invoice.id() + " PENDING 1000"), describePayments(second, invoice.id()));
+    }
+
+    @Test
+    void testEventsStampedBySkewedClocks_AreServedInCommitOrder() {
+        long head = head();
+        InvoiceResponse invoice = invoiceService.createInvoice(new InvoiceRequest(9_000L, "USD", LocalDate.now().plusDays(30)));
+        // Written by instances whose clocks are an hour ahead and an hour behind, in that order
+        insertEvent(invoice.id(), 1_000L, LocalDateTime.now().plusHours(1));
+        insertEvent(invoice.id(), 2_000L, LocalDateTime.now().minusHours(1));
+
+        invoiceEventPublisher.publish();
+
+        assertEquals(List.of(
+                "PAYMENT_APPLIED " + invoice.id() + " PENDING 1000",
+                "PAYMENT_APPLIED " + invoice.id() + " PENDING 2000"), describePayments(readAll(head), invoice.id()));
+    }
+
+    private void insertEvent(Long invoiceId, long amount, LocalDateTime createdAt) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx -> jdbcTemplate.update("""
+                insert into invoice_events (invoice_id, type, status, amount, created_at)
+                values (?, 'PAYMENT_APPLIED', 'PENDING', ?, ?)""", invoiceId, amount, createdAt));
+    }
+
+    private static List<String> describePayments(List<InvoiceEventResponse> events, Long invoiceId) {
+        return events.stream()
+                .filter(event -> event.invoiceId().equals(invoiceId) && event.type().equals("PAYMENT_APPLIED"))
+                .map(InvoiceChangeFeedTest::describe)
+                .toList();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long head() {
+        List<InvoiceEventResponse> all = readAll(0);
+        return all.isEmpty() ? 0 : all.get(all.size() - 1).offset();
+    }
+
+    private List<InvoiceEventResponse> readAll(long since) {
+        invoiceEventPublisher.publish();
+        List<InvoiceEventResponse> events = new ArrayList<>();
+        InvoiceChangePage page;
+        do {
+            page = invoiceService.getChanges(since, 1000, Duration.ZERO).join();
+            events.addAll(page.events());
+            since = page.nextOffset();
+        } while (!page.events().isEmpty());
+        return events;
+    }
+
+    private static String describe(InvoiceEventResponse event) {
+        String invoice = event.relatedInvoiceId() != null && event.type().equals("CREATED")
+                ? "follow-up" : String.valueOf(event.invoiceId());
+        return event.type() + " " + invoice + " " + event.status() + " " + event.amount();
+    }
+}
@@ -0,0 +1,229 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.dto.InvoiceRequest;
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.dto.PaymentRequest;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.entity.LateFeePolicy;
+import com.eg.invoiceassessment.entity.OverdueRun;
+import com.eg.invoiceassessment.events.InvoiceEventRecorder;
+import com.eg.invoiceassessment.exception.ServiceUnavailableException;
+import com.eg.invoiceassessment.repository.InvoiceRepository;
+import com.eg.invoiceassessment.repository.OverdueRunRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+
+/*
+ * Each test works on invoices due in a year of its own and runs with a cutoff in that year, so the runs only
+ * ever see the invoices created here, whatever other tests left in the shared database. The one invoice left
+ * PENDING is due after every other test's cutoff.
+ */
+@SpringBootTest(properties = "invoice.overdue.chunk-size=2")
+public class OverdueInvoiceProcessorTest {
+
+    @Autowired
+    private OverdueInvoiceProcessor overdueInvoiceProcessor;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private OverdueRunRepository overdueRunRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoSpyBean
+    private OverdueChunkWriter chunkWriter;
+
+    @MockitoSpyBean
+    private InvoiceEventRecorder invoiceEventRecorder;
+
+    @Test
+    void testRun_CountsPaidAndVoidedAndCreatesOneFollowUpEach() {
+        LocalDate cutoff = LocalDate.of(2001, 6, 1);
+        List<InvoiceResponse> unpaid = List.of(create(1_000L, cutoff.minusDays(30)), create(2_000L, cutoff.minusDays(20)),
+                create(3_000L, cutoff.minusDays(1)));
+        List<InvoiceResponse> partlyPaid = List.of(create(4_000L, cutoff.minusDays(10)), create(5_000L, cutoff.minusDays(5)));
+        partlyPaid.forEach(invoice -> invoiceService.payInvoice(invoice.id(), new PaymentRequest(500L)));
+        InvoiceResponse settled = create(6_000L, cutoff.minusDays(3));
+        invoiceService.payInvoice(settled.id(), new PaymentRequest(6_000L));
+        InvoiceResponse notDue = create(7_000L, cutoff);
+
+        overdueInvoiceProcessor.process(LateFeePolicy.flat(100L), 30, cutoff, OverdueProgressListener.NONE);
+
+        OverdueRun run = latestRun(cutoff);
+        assertEquals(OverdueRun.Status.COMPLETED, run.getStatus());
+        assertEquals(5, run.getRowsScanned());
+        assertEquals(2, run.getRowsPaid());
+        assertEquals(3, run.getRowsVoided());
+        assertEquals(5, run.getFollowUpsCreated());
+
+        unpaid.forEach(invoice -> assertClosedWithOneFollowUp(invoice, Invoice.Status.VOID, invoice.amount() + 100L));
+        partlyPaid.forEach(invoice -> assertClosedWithOneFollowUp(invoice, Invoice.Status.PAID, invoice.amount() - 500L + 100L));
+        assertEquals(0, followUpsOf(settled.id()).size());
+        assertEquals(Invoice.Status.PENDING, status(notDue.id()));
+    }
+
+    @Test
+    void testFailedChunk_RollsBackAndTheRunResumesFromItsCheckpoint() {
+        LocalDate cutoff = LocalDate.of(1999, 6, 1);
+        List<InvoiceResponse> invoices = List.of(create(1_000L, cutoff.minusDays(9)), create(2_000L, cutoff.minusDays(8)),
+                create(3_000L, cutoff.minusDays(7)), create(4_000L, cutoff.minusDays(6)), create(5_000L, cutoff.minusDays(5)));
+        invoiceService.payInvoice(invoices.get(2).id(), new PaymentRequest(1_000L));
+
+        // The second chunk does all its writes and then fails, so its transaction must roll them back
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            Object result = invocation.callRealMethod();
+            if (calls.incrementAndGet() == 2) {
+                throw new IllegalStateException("Simulated failure");
+            }
+            return result;
+        }).when(spiedChunkWriter()).closeNextChunk(anyLong(), anyLong(), any(), any(), anyInt());
+
+        assertThrows(IllegalStateException.class, () ->
+                overdueInvoiceProcessor.process(LateFeePolicy.flat(100L), 30, cutoff, OverdueProgressListener.NONE));
+
+        OverdueRun failed = latestRun(cutoff);
+        assertEquals(OverdueRun.Status.FAILED, failed.getStatus());
+        assertEquals(invoices.get(1).id(), failed.getLastProcessedId());
+        assertEquals(2, failed.getRowsScanned());
+        assertEquals(Invoice.Status.PENDING, status(invoices.get(2).id()));
+        assertEquals(0, followUpsOf(invoices.get(2).id()).size());
+
+        doCallRealMethod().when(spiedChunkWriter()).closeNextChunk(anyLong(), anyLong(), any(), any(), anyInt());
+        overdueInvoiceProcessor.process(LateFeePolicy.flat(100L), 30, cutoff, OverdueProgressListener.NONE);
+
+        OverdueRun resumed = latestRun(cutoff);
+        assertEquals(failed.getId(), resumed.getId());
+        assertEquals(OverdueRun.Status.COMPLETED, resumed.getStatus());
+        assertEquals(5, resumed.getRowsScanned());
+        assertEquals(1, resumed.getRowsPaid());
+        assertEquals(4, resumed.getRowsVoided());
+        assertEquals(5, resumed.getFollowUpsCreated());
+        invoices.forEach(invoice -> assertEquals(1, followUpsOf(invoice.id()).size()));
+    }
+
+    @Test
+    void testRowCommittedIntoAClosedChunk_IsPickedUpByTheNextChunk() {
+        LocalDate cutoff = LocalDate.of(1993, 6, 1);
+        List<InvoiceResponse> invoices = List.of(create(1_000L, cutoff.minusDays(9)), create(2_000L, cutoff.minusDays(8)),
+                create(3_000L, cutoff.minusDays(7)), create(4_000L, cutoff.minusDays(6)));
+        // The second invoice only becomes overdue once the first chunk has read the first and third
+        InvoiceResponse straggler = invoices.get(1);
+        jdbcTemplate.update("update invoices set due_date = ? where id = ?", cutoff, straggler.id());
+        AtomicBoolean committed = new AtomicBoolean();
+        TransactionTemplate elsewhere = new TransactionTemplate(transactionManager);
+        elsewhere.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        doAnswer(invocation -> {
+            if (committed.compareAndSet(false, true)) {
+                elsewhere.executeWithoutResult(tx -> jdbcTemplate.update("update invoices set due_date = ? where id = ?",
+                        cutoff.minusDays(8), straggler.id()));
+            }
+            return invocation.callRealMethod();
+        }).when(spiedRecorder()).record(anyList());
+
+        try {
+            overdueInvoiceProcessor.process(LateFeePolicy.flat(100L), 30, cutoff, OverdueProgressListener.NONE);
+        } finally {
+            doCallRealMethod().when(spiedRecorder()).record(anyList());
+        }
+
+        OverdueRun run = latestRun(cutoff);
+        assertEquals(OverdueRun.Status.COMPLETED, run.getStatus());
+        assertEquals(4, run.getRowsScanned());
+        invoices.forEach(invoice -> assertClosedWithOneFollowUp(invoice, Invoice.Status.VOID, invoice.amount() + 100L));
+    }
+
+    @Test
+    void testRunningRun_IsOnlyResumedOnceItsLeaseHasExpired() {
+        LocalDate cutoff = LocalDate.of(1992, 6, 1);
+        List<InvoiceResponse> invoices = List.of(create(1_000L, cutoff.minusDays(3)), create(2_000L, cutoff.minusDays(2)),
+                create(3_000L, cutoff.minusDays(1)));
+        // Another node started this run and has just committed a chunk
+        OverdueRun running = overdueRunRepository.save(new OverdueRun(cutoff, LateFeePolicy.flat(100L), 30));
+
+        assertThrows(ServiceUnavailableException.class, () ->
+                overdueInvoiceProcessor.process(LateFeePolicy.flat(100L), 30, cutoff, OverdueProgressListener.NONE));
+        assertEquals(OverdueRun.Status.RUNNING, latestRun(cutoff).getStatus());
+        invoices.forEach(invoice -> assertEquals(Invoice.Status.PENDING, status(invoice.id())));
+
+        // That node has not renewed its lease for longer than invoice.overdue.lease-duration
+        jdbcTemplate.update("update overdue_runs set updated_at = ? where id = ?",
+                LocalDateTime.now().minusMinutes(3), running.getId());
+        overdueInvoiceProcessor.process(LateFeePolicy.flat(100L), 30, cutoff, OverdueProgressListener.NONE);
+
+        OverdueRun resumed = latestRun(cutoff);
+        assertEquals(running.getId(), resumed.getId());
+        assertEquals(OverdueRun.Status.COMPLETED, resumed.getStatus());
+        invoices.forEach(invoice -> assertClosedWithOneFollowUp(invoice, Invoice.Status.VOID, invoice.amount() + 100L));
+    }
+
+    // Stubbed behind the transactional proxy, whose MANDATORY propagation would reject the stubbing call
+    private OverdueChunkWriter spiedChunkWriter() {
+        return AopTestUtils.getUltimateTargetObject(chunkWriter);
+    }
+
+    private InvoiceEventRecorder spiedRecorder() {
+        return AopTestUtils.getUltimateTargetObject(invoiceEventRecorder);
+    }
+
+    private void assertClosedWithOneFollowUp(InvoiceResponse invoice, Invoice.Status closedAs, long followUpAmount) {
+        assertEquals(closedAs, status(invoice.id()));
+        List<Long> followUps = followUpsOf(invoice.id());
+        assertEquals(1, followUps.size());
+        Invoice followUp = invoiceRepository.findById(followUps.get(0)).orElseThrow();
+        assertEquals(followUpAmount, followUp.getAmount());
+        assertEquals(Invoice.Status.PENDING, followUp.getStatus());
+    }
+
+    private List<Long> followUpsOf(Long invoiceId) {
+        return jdbcTemplate.queryForList("""
+                select invoice_id from invoice_events where type = 'CREATED' and related_invoice_id = ?""",
+                Long.class, invoiceId);
+    }
+
+    private OverdueRun latestRun(LocalDate cutoff) {
+        return overdueRunRepository.findAll().stream()
+                .filter(run -> run.getCutoffDate().equals(cutoff))
+                .reduce((first, second) -> second.getId() > first.getId() ? second : first)
+                .orElseThrow();
+    }
+
+    private InvoiceResponse create(long amount, LocalDate dueDate) {
+        return invoiceService.createInvoice(new InvoiceRequest(amount, "USD", dueDate));
+    }
+
+    private Invoice.Status status(Long id) {
+        return invoiceRepository.findById(id).orElseThrow().getStatus();
+    }
+}
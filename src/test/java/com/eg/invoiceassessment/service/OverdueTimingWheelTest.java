@@ -0,0 +1,100 @@
+package com.eg.invoiceassessment.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OverdueTimingWheelTest {
+
+    private final OverdueTimingWheel wheel = new OverdueTimingWheel(null, new OverduePolicy(0, 0, 0, 0, 30), true);
+    private final LocalDate today = wheel.getCurrentDay();
+
+    @Test
+    void testAdvance_HandsOutOnlyTheDaysPassed() {
+        add(1, today.minusDays(3));
+        add(2, today);
+        add(3, today.plusDays(1));
+        add(4, today.plusDays(2));
+
+        assertArrayEquals(new long[]{1, 2}, advance(today.plusDays(1)));
+        assertArrayEquals(new long[]{3}, advance(today.plusDays(2)));
+        assertArrayEquals(new long[0], advance(today.plusDays(2)));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void testRemove_SettledInvoicesAreNotHandedOut() {
+        add(1, today);
+        add(2, today);
+        add(3, today.minusDays(1));
+        wheel.remove(2, today.toEpochDay());
+        wheel.remove(3, today.minusDays(1).toEpochDay());
+        wheel.remove(99, today.toEpochDay());
+
+        assertArrayEquals(new long[]{1}, advance(today.plusDays(1)));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testRemove_OverdueBacklogClosedInIdOrder() {
+        for (long id = 1; id <= 100_000; id++) {
+            add(id, today.minusDays(1 + id % 30));
+        }
+        // As the full scan's chunks do, lowest IDs first; each one used to scan the whole backlog
+        for (long id = 1; id <= 99_998; id++) {
+            wheel.remove(id, today.minusDays(1 + id % 30).toEpochDay());
+        }
+        wheel.requeue(new long[]{100_000});
+
+        assertEquals(2, wheel.size());
+        assertArrayEquals(new long[]{99_999, 100_000}, advance(today.plusDays(1)));
+    }
+
+    @Test
+    void testOverflow_MovesIntoTheWheelAsItTurns() {
+        LocalDate farAway = today.plusDays(OverdueTimingWheel.WHEEL_DAYS + 10);
+        add(1, farAway);
+        add(2, today.plusDays(OverdueTimingWheel.WHEEL_DAYS - 1));
+
+        assertArrayEquals(new long[0], advance(today.plusDays(20)));
+        // The slot day 2 sits in is reused by day 1 after the turn, and both must come out on their own day
+        assertArrayEquals(new long[]{2}, advance(today.plusDays(OverdueTimingWheel.WHEEL_DAYS)));
+        wheel.remove(1, farAway.toEpochDay());
+        add(1, farAway);
+        assertArrayEquals(new long[]{1}, advance(farAway.plusDays(1)));
+    }
+
+    @Test
+    void testAdvance_AfterALongPauseHandsOutEverythingDue() {
+        add(1, today.plusDays(5));
+        add(2, today.plusDays(OverdueTimingWheel.WHEEL_DAYS * 2L));
+        add(3, today.plusDays(OverdueTimingWheel.WHEEL_DAYS * 3L));
+
+        assertArrayEquals(new long[]{1, 2}, advance(today.plusDays(OverdueTimingWheel.WHEEL_DAYS * 3L)));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void testRequeue_IsHandedOutOnTheNextAdvance() {
+        add(1, today);
+        long[] due = advance(today.plusDays(1));
+        wheel.requeue(due);
+
+        assertEquals(1, wheel.size());
+        assertArrayEquals(new long[]{1}, advance(today.plusDays(2)));
+    }
+
+    private void add(long id, LocalDate dueDate) {
+        wheel.add(id, dueDate.toEpochDay());
+    }
+
+    private long[] advance(LocalDate day) {
+        long[] ids = wheel.advanceTo(day);
+        Arrays.sort(ids);
+        return ids;
+    }
+}
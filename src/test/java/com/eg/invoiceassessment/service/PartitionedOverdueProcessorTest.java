@@ -0,0 +1,225 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.dto.InvoiceRequest;
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.entity.LateFeePolicy;
+import com.eg.invoiceassessment.entity.OverduePartitionLease;
+import com.eg.invoiceassessment.repository.InvoiceRepository;
+import com.eg.invoiceassessment.repository.OverduePartitionLeaseRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * As in OverdueInvoiceProcessorTest, each test works on invoices due in a year of its own and runs with a cutoff
+ * in that year. The processors are built here rather than injected, so each test picks its own node IDs, partition
+ * count and lease duration.
+ */
+@SpringBootTest(properties = "invoice.overdue.chunk-size=2")
+public class PartitionedOverdueProcessorTest {
+
+    private static final LateFeePolicy LATE_FEE = LateFeePolicy.flat(100L);
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private OverduePartitionLeaseRepository leaseRepository;
+
+    @Autowired
+    private OverdueChunkWriter chunkWriter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testClaim_OnlyTakesLeasesThatAreFreeOrExpired() {
+        LocalDate cutoff = LocalDate.of(1994, 6, 1);
+        OverduePartitionLease lease = leaseRepository.saveAndFlush(
+                new OverduePartitionLease(cutoff, 0, 0, 0L, 10L, LATE_FEE, 30));
+        LocalDateTime now = LocalDateTime.now();
+
+        assertEquals(1, claim(lease.getId(), "node-a#0", now.plusMinutes(2), now));
+        assertEquals(0, claim(lease.getId(), "node-b#0", now.plusMinutes(2), now));
+        assertTrue(lockOwned(lease.getId(), "node-a#0"));
+        assertFalse(lockOwned(lease.getId(), "node-b#0"));
+
+        // Once node-a's lease has run out, node-b takes it over and node-a no longer owns it
+        LocalDateTime later = now.plusMinutes(3);
+        assertEquals(1, claim(lease.getId(), "node-b#0", later.plusMinutes(2), later));
+        assertFalse(lockOwned(lease.getId(), "node-a#0"));
+        assertTrue(lockOwned(lease.getId(), "node-b#0"));
+
+        jdbcTemplate.update("update overdue_partition_leases set status = 'DONE' where id = ?", lease.getId());
+        LocalDateTime muchLater = now.plusHours(1);
+        assertEquals(0, claim(lease.getId(), "node-a#0", muchLater.plusMinutes(2), muchLater));
+    }
+
+    @Test
+    void testRun_ClaimsEveryPartitionAndClosesEachInvoiceOnce() {
+        LocalDate cutoff = LocalDate.of(1995, 6, 1);
+        List<InvoiceResponse> invoices = createOverdue(cutoff, 10);
+
+        processor("node-a", 4, Duration.ofMinutes(2)).process(LATE_FEE, 30, cutoff, 2, OverdueProgressListener.NONE);
+
+        List<OverduePartitionLease> leases = leaseRepository.findByCutoffDateAndGenerationOrderByPartitionNo(cutoff, 0);
+        assertEquals(4, leases.size());
+        for (OverduePartitionLease lease : leases) {
+            assertEquals(OverduePartitionLease.Status.DONE, lease.getStatus());
+            assertTrue(lease.getOwner().startsWith("node-a#"), lease.getOwner());
+            assertEquals(lease.getHighId(), lease.getLastProcessedId());
+        }
+        assertEquals(10, leases.stream().mapToLong(OverduePartitionLease::getRowsUpdated).sum());
+        invoices.forEach(this::assertClosedWithOneFollowUp);
+    }
+
+    @Test
+    void testExpiredLease_IsTakenOverAndResumedFromItsCheckpoint() {
+        LocalDate cutoff = LocalDate.of(1996, 6, 1);
+        List<InvoiceResponse> invoices = createOverdue(cutoff, 5);
+
+        // A node claimed the only partition, committed its first chunk and died
+        long low = invoices.get(0).id() - 1;
+        long high = invoices.get(invoices.size() - 1).id();
+        OverduePartitionLease lease = new OverduePartitionLease(cutoff, 0, 0, low, high, LATE_FEE, 30);
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+            OverdueChunkWriter.ChunkResult chunk = chunkWriter.closeNextChunk(low, high, cutoff, LATE_FEE, 30);
+            lease.setLastProcessedId(chunk.lastId());
+            lease.setRowsScanned(chunk.scanned());
+            lease.setRowsUpdated(chunk.updated());
+            lease.setOwner("dead-node#0");
+            lease.setLeaseExpiresAt(LocalDateTime.now().minusSeconds(1));
+            lease.setStatus(OverduePartitionLease.Status.CLAIMED);
+            leaseRepository.save(lease);
+        });
+
+        AtomicLong scanned = new AtomicLong();
+        processor("node-a", 1, Duration.ofMinutes(2)).process(LATE_FEE, 30, cutoff, 1,
+                (rowsScanned, rowsUpdated) -> scanned.addAndGet(rowsScanned));
+
+        OverduePartitionLease resumed = leaseRepository.findById(lease.getId()).orElseThrow();
+        assertEquals(OverduePartitionLease.Status.DONE, resumed.getStatus());
+        assertEquals("node-a#0", resumed.getOwner());
+        assertEquals(5, resumed.getRowsScanned());
+        // Only the rows after the dead node's checkpoint were read again
+        assertEquals(3, scanned.get());
+        invoices.forEach(this::assertClosedWithOneFollowUp);
+    }
+
+    @Test
+    void testLostLease_StopsTheWorkerUntilItCanClaimThePartitionAgain() {
+        LocalDate cutoff = LocalDate.of(1997, 6, 1);
+        List<InvoiceResponse> invoices = createOverdue(cutoff, 6);
+
+        // Right after the first chunk commits, another node takes the lease over for a second
+        AtomicBoolean stolen = new AtomicBoolean();
+        AtomicLong scanned = new AtomicLong();
+        OverdueProgressListener stealAfterFirstChunk = (rowsScanned, rowsUpdated) -> {
+            scanned.addAndGet(rowsScanned);
+            if (stolen.compareAndSet(false, true)) {
+                jdbcTemplate.update("update overdue_partition_leases set owner = ?, lease_expires_at = ? where cutoff_date = ?",
+                        "other-node#0", LocalDateTime.now().plusSeconds(1), cutoff);
+            }
+        };
+
+        processor("node-a", 1, Duration.ofMinutes(2)).process(LATE_FEE, 30, cutoff, 1, stealAfterFirstChunk);
+
+        OverduePartitionLease lease = leaseRepository.findByCutoffDateAndGenerationOrderByPartitionNo(cutoff, 0).get(0);
+        assertEquals(OverduePartitionLease.Status.DONE, lease.getStatus());
+        assertEquals("node-a#0", lease.getOwner());
+        assertEquals(6, lease.getRowsScanned());
+        // No chunk was written while the lease was held elsewhere, and none twice
+        assertEquals(6, scanned.get());
+        invoices.forEach(this::assertClosedWithOneFollowUp);
+    }
+
+    @Test
+    void testTwoProcessorsOnOneRun_ApplyEachLateFeeOnce() throws Exception {
+        LocalDate cutoff = LocalDate.of(1998, 6, 1);
+        List<InvoiceResponse> invoices = createOverdue(cutoff, 20);
+        List<PartitionedOverdueProcessor> processors = List.of(processor("node-a", 4, Duration.ofMinutes(2)),
+                processor("node-b", 4, Duration.ofMinutes(2)));
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> runs = new ArrayList<>();
+        try (ExecutorService nodes = Executors.newFixedThreadPool(processors.size())) {
+            for (PartitionedOverdueProcessor processor : processors) {
+                runs.add(nodes.submit(() -> {
+                    start.await();
+                    processor.process(LATE_FEE, 30, cutoff, 2, OverdueProgressListener.NONE);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> run : runs) {
+                run.get(60, TimeUnit.SECONDS);
+            }
+        }
+
+        // Both joined the same plan rather than each creating one
+        assertEquals(0, leaseRepository.findLatestGeneration(cutoff));
+        List<OverduePartitionLease> leases = leaseRepository.findByCutoffDateAndGenerationOrderByPartitionNo(cutoff, 0);
+        assertEquals(4, leases.size());
+        assertTrue(leases.stream().allMatch(lease -> lease.getStatus() == OverduePartitionLease.Status.DONE));
+        assertEquals(20, leases.stream().mapToLong(OverduePartitionLease::getRowsScanned).sum());
+        invoices.forEach(this::assertClosedWithOneFollowUp);
+    }
+
+    private PartitionedOverdueProcessor processor(String nodeId, int partitions, Duration leaseDuration) {
+        return new PartitionedOverdueProcessor(invoiceRepository, leaseRepository, chunkWriter, transactionManager,
+                partitions, leaseDuration, nodeId);
+    }
+
+    private int claim(Long id, String owner, LocalDateTime expiresAt, LocalDateTime now) {
+        return new TransactionTemplate(transactionManager).execute(tx -> leaseRepository.claim(id, owner, expiresAt, now,
+                OverduePartitionLease.Status.CLAIMED, OverduePartitionLease.Status.DONE));
+    }
+
+    private boolean lockOwned(Long id, String owner) {
+        return new TransactionTemplate(transactionManager).execute(tx -> leaseRepository.lockOwned(id, owner).isPresent());
+    }
+
+    private List<InvoiceResponse> createOverdue(LocalDate cutoff, int count) {
+        List<InvoiceResponse> invoices = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            invoices.add(invoiceService.createInvoice(new InvoiceRequest(1_000L * i, "USD", cutoff.minusDays(i))));
+        }
+        return invoices;
+    }
+
+    private void assertClosedWithOneFollowUp(InvoiceResponse invoice) {
+        assertEquals(Invoice.Status.VOID, invoiceRepository.findById(invoice.id()).orElseThrow().getStatus());
+        List<Long> followUps = jdbcTemplate.queryForList("""
+                select invoice_id from invoice_events where type = 'CREATED' and related_invoice_id = ?""",
+                Long.class, invoice.id());
+        assertEquals(1, followUps.size(), "follow-ups of invoice " + invoice.id());
+        assertEquals(invoice.amount() + 100L, invoiceRepository.findById(followUps.get(0)).orElseThrow().getAmount());
+    }
+}
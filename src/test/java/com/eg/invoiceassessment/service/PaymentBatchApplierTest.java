@@ -0,0 +1,113 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.dto.InvoiceRequest;
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.dto.PaymentBatchItemResult;
+import com.eg.invoiceassessment.dto.PaymentBatchItemResult.Outcome;
+import com.eg.invoiceassessment.dto.PaymentBatchResult;
+import com.eg.invoiceassessment.dto.PaymentRequest;
+import com.eg.invoiceassessment.dto.PaymentResponse;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.exception.InvalidRequestPayloadException;
+import com.eg.invoiceassessment.repository.InvoiceRepository;
+import com.eg.invoiceassessment.repository.PaymentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// A chunk size of 2 spreads the three invoices below over two transactions
+@SpringBootTest(properties = "invoice.payments.batch.chunk-size=2")
+public class PaymentBatchApplierTest {
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Test
+    void testApplyPayments_GroupsByInvoiceAndKeepsRequestOrder() {
+        LocalDate dueDate = LocalDate.now().plusDays(30);
+        InvoiceResponse settled = invoiceService.createInvoice(new InvoiceRequest(10_000L, "USD", dueDate));
+        InvoiceResponse partlyPaid = invoiceService.createInvoice(new InvoiceRequest(5_000L, "USD", dueDate));
+        InvoiceResponse untouched = invoiceService.createInvoice(new InvoiceRequest(2_000L, "USD", dueDate));
+
+        PaymentBatchResult result = invoiceService.applyPayments(body("""
+                [{"invoiceId": %1$d, "amount": 3000},
+                 {"invoiceId": %2$d, "amount": 1000},
+                 {"invoiceId": %1$d, "amount": 7000},
+                 {"invoiceId": %1$d, "amount": 1},
+                 {"invoiceId": %3$d, "amount": 2001},
+                 {"invoiceId": 999999999, "amount": 100},
+                 {"invoiceId": %2$d, "amount": 0}]
+                """.formatted(settled.id(), partlyPaid.id(), untouched.id())));
+
+        assertEquals(3, result.applied());
+        assertEquals(4, result.rejected());
+        assertEquals(PaymentBatchItemResult.applied(0, settled.id(), "PENDING", 3_000L), result.items().get(0));
+        assertEquals(PaymentBatchItemResult.applied(1, partlyPaid.id(), "PENDING", 1_000L), result.items().get(1));
+        assertEquals(PaymentBatchItemResult.applied(2, settled.id(), "PAID", 10_000L), result.items().get(2));
+        assertEquals(Outcome.EXCEEDS_BALANCE, result.items().get(3).outcome());
+        assertEquals(Outcome.EXCEEDS_BALANCE, result.items().get(4).outcome());
+        assertEquals(Outcome.NOT_FOUND, result.items().get(5).outcome());
+        assertEquals(Outcome.INVALID, result.items().get(6).outcome());
+
+        Invoice paid = invoiceRepository.findById(settled.id()).orElseThrow();
+        assertEquals(Invoice.Status.PAID, paid.getStatus());
+        assertEquals(10_000L, paymentRepository.sumByInvoiceId(settled.id()));
+        assertEquals(1_000L, invoiceRepository.findById(partlyPaid.id()).orElseThrow().getPaidAmount());
+        assertEquals(0L, invoiceRepository.findById(untouched.id()).orElseThrow().getPaidAmount());
+        // Read through the cache, which the batch invalidated
+        assertEquals("PAID", invoiceService.getInvoiceById(settled.id()).status());
+    }
+
+    @Test
+    void testApplyPayments_MalformedBodyAppliesNothing() {
+        InvoiceResponse invoice = invoiceService.createInvoice(new InvoiceRequest(10_000L, "USD", LocalDate.now().plusDays(30)));
+
+        assertThrows(InvalidRequestPayloadException.class, () -> invoiceService.applyPayments(body("""
+                {"invoiceId": %d, "amount": 3000}
+                {"invoiceId": oops}
+                """.formatted(invoice.id()))));
+
+        assertEquals(0L, invoiceRepository.findById(invoice.id()).orElseThrow().getPaidAmount());
+    }
+
+    @Test
+    void testApplyPayments_IdsNeverCollideWithPaymentsSavedThroughJpa() {
+        InvoiceResponse invoice = invoiceService.createInvoice(new InvoiceRequest(100_000L, "USD", LocalDate.now().plusDays(30)));
+
+        // Alternate so that both ID sources keep drawing blocks from payments_seq
+        for (int round = 0; round < 3; round++) {
+            invoiceService.payInvoice(invoice.id(), new PaymentRequest(100L));
+            StringBuilder json = new StringBuilder();
+            for (int i = 0; i < 150; i++) {
+                json.append("{\"invoiceId\": %d, \"amount\": 1}\n".formatted(invoice.id()));
+            }
+            assertEquals(150, invoiceService.applyPayments(body(json.toString())).applied());
+        }
+
+        List<PaymentResponse> payments = paymentRepository.findPage(invoice.id(), 0L, Limit.of(1_000));
+        assertEquals(453, payments.size());
+        assertEquals(453, payments.stream().map(PaymentResponse::id).distinct().count());
+        assertEquals(750L, paymentRepository.sumByInvoiceId(invoice.id()));
+        assertEquals(750L, invoiceRepository.findById(invoice.id()).orElseThrow().getPaidAmount());
+    }
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
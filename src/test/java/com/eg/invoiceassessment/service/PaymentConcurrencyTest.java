@@ -0,0 +1,70 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.dto.InvoiceRequest;
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.dto.PaymentRequest;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.exception.InvalidRequestPayloadException;
+import com.eg.invoiceassessment.repository.PaymentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+public class PaymentConcurrencyTest {
+
+    private static final int THREADS = 300;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Test
+    void testConcurrentPayments_NoLostUpdatesOrOverpayment() throws Exception {
+        // 300 payments of 5.00 against 1000.00: exactly 200 fit, the rest must be rejected
+        InvoiceResponse invoice = invoiceService.createInvoice(new InvoiceRequest(100_000L, "USD", LocalDate.now().plusDays(30)));
+
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(THREADS);
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        invoiceService.payInvoice(invoice.id(), new PaymentRequest(500L));
+                        accepted.incrementAndGet();
+                    } catch (InvalidRequestPayloadException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        InvoiceResponse paid = invoiceService.getInvoiceById(invoice.id());
+        assertEquals(200, accepted.get());
+        assertEquals(100, rejected.get());
+        assertEquals(100_000L, paid.paidAmount());
+        assertEquals(Invoice.Status.PAID.name(), paid.status());
+        assertEquals(100_000L, paymentRepository.sumByInvoiceId(invoice.id()));
+    }
+}
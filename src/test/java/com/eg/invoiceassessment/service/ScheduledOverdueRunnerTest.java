@@ -0,0 +1,102 @@
+package com.eg.invoiceassessment.service;
+
+import com.eg.invoiceassessment.dto.InvoiceRequest;
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.dto.PaymentRequest;
+import com.eg.invoiceassessment.entity.Invoice;
+import com.eg.invoiceassessment.repository.InvoiceRepository;
+import com.eg.invoiceassessment.repository.SchedulerLockRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "invoice.overdue.policy.late-fee=100",
+        "invoice.overdue.policy.late-fee-basis-points=1000",
+        "invoice.overdue.policy.late-fee-cap=500",
+        "invoice.overdue.policy.grace-days=3",
+        "invoice.overdue.policy.follow-up-days=10",
+        "invoice.overdue.schedule.max-rows-per-second=100000"
+})
+public class ScheduledOverdueRunnerTest {
+
+    @Autowired
+    private ScheduledOverdueRunner runner;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private SchedulerLockRepository schedulerLockRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void testRun_AppliesLateFeePolicyAfterGraceDays() {
+        LocalDate today = LocalDate.now();
+        InvoiceResponse unpaid = invoiceService.createInvoice(new InvoiceRequest(10_000L, "USD", today.minusDays(10)));
+        InvoiceResponse partlyPaid = invoiceService.createInvoice(new InvoiceRequest(2_000L, "USD", today.minusDays(4)));
+        InvoiceResponse inGrace = invoiceService.createInvoice(new InvoiceRequest(3_000L, "USD", today.minusDays(3)));
+        invoiceService.payInvoice(partlyPaid.id(), new PaymentRequest(1_000L));
+
+        assertTrue(runner.run(today));
+
+        assertEquals(Invoice.Status.VOID, status(unpaid.id()));
+        assertEquals(Invoice.Status.PAID, status(partlyPaid.id()));
+        assertEquals(Invoice.Status.PENDING, status(inGrace.id()));
+
+        List<Long> followUpAmounts = invoiceRepository.findAll().stream()
+                .filter(invoice -> invoice.getId() > inGrace.id() && invoice.getDueDate().equals(today.plusDays(10)))
+                .map(Invoice::getAmount)
+                .toList();
+        // 10000 outstanding: 100 + 10% = 1100, capped at 500; 1000 outstanding: 100 + 10% = 200
+        assertTrue(followUpAmounts.contains(10_500L), followUpAmounts::toString);
+        assertTrue(followUpAmounts.contains(1_200L), followUpAmounts::toString);
+    }
+
+    @Test
+    void testRun_SkipsWhileAnotherInstanceHoldsTheLock() {
+        InvoiceResponse overdue = invoiceService.createInvoice(new InvoiceRequest(1_000L, "USD", LocalDate.now().minusDays(30)));
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(tx ->
+                schedulerLockRepository.acquire(ScheduledOverdueRunner.LOCK, "other-node", now, now.plusHours(1)));
+        try {
+            assertFalse(runner.run(LocalDate.now()));
+            assertEquals(Invoice.Status.PENDING, status(overdue.id()));
+        } finally {
+            transactionTemplate.executeWithoutResult(tx ->
+                    schedulerLockRepository.release(ScheduledOverdueRunner.LOCK, "other-node", LocalDateTime.now()));
+        }
+
+        assertTrue(runner.run(LocalDate.now()));
+        assertEquals(Invoice.Status.VOID, status(overdue.id()));
+    }
+
+    @Test
+    void testThrottle_PausesToStayUnderTheRate() {
+        OverdueThrottle throttle = new OverdueThrottle(1_000);
+        long started = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            throttle.chunkCommitted(100, 100);
+        }
+
+        assertTrue(System.nanoTime() - started >= 280_000_000L);
+    }
+
+    private Invoice.Status status(Long id) {
+        return invoiceRepository.findById(id).orElseThrow().getStatus();
+    }
+}
@@ -0,0 +1,125 @@
+package com.eg.invoiceassessment.summary;
+
+import com.eg.invoiceassessment.dto.InvoiceRequest;
+import com.eg.invoiceassessment.dto.InvoiceResponse;
+import com.eg.invoiceassessment.dto.PaymentBatchItemResult;
+import com.eg.invoiceassessment.dto.PaymentBatchResult;
+import com.eg.invoiceassessment.dto.PaymentRequest;
+import com.eg.invoiceassessment.dto.ProcessOverdueInvoiceRequest;
+import com.eg.invoiceassessment.dto.ReceivablesSummary.CurrencySummary;
+import com.eg.invoiceassessment.dto.ReceivablesSummary.DueDateBucket;
+import com.eg.invoiceassessment.dto.ReceivablesSummary.StatusTotals;
+import com.eg.invoiceassessment.exception.InvalidRequestPayloadException;
+import com.eg.invoiceassessment.service.InvoiceService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class ReceivablesAggregatesTest {
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private ReceivablesAggregates aggregates;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testSummary_FollowsCreatesPaymentsAndOverdueRuns() {
+        LocalDate today = LocalDate.now();
+        invoiceService.createInvoice(new InvoiceRequest(10_000L, "CHF", today.minusDays(40)));
+        InvoiceResponse partlyPaid = invoiceService.createInvoice(new InvoiceRequest(4_000L, "CHF", today.plusDays(10)));
+        InvoiceResponse settled = invoiceService.createInvoice(new InvoiceRequest(2_500L, "CHF", today.plusDays(45)));
+        invoiceService.payInvoice(partlyPaid.id(), new PaymentRequest(1_000L));
+        invoiceService.payInvoice(settled.id(), new PaymentRequest(2_500L));
+
+        CurrencySummary chf = summary("CHF");
+        assertEquals(13_000L, chf.outstanding());
+        assertEquals(10_000L, chf.overdue());
+        assertEquals(3_500L, chf.paid());
+        assertEquals(new StatusTotals(2, 14_000L, 1_000L), chf.byStatus().get("PENDING"));
+        assertEquals(new StatusTotals(1, 2_500L, 2_500L), chf.byStatus().get("PAID"));
+        assertEquals(new DueDateBucket("overdue_31_60", 1, 10_000L), bucket(chf, "overdue_31_60"));
+        assertEquals(new DueDateBucket("due_0_30", 1, 3_000L), bucket(chf, "due_0_30"));
+        assertEquals(new DueDateBucket("due_31_60", 0, 0L), bucket(chf, "due_31_60"));
+
+        invoiceService.processOverdueInvoices(new ProcessOverdueInvoiceRequest(500L, 20));
+
+        chf = summary("CHF");
+        assertEquals(13_500L, chf.outstanding());
+        assertEquals(0L, chf.overdue());
+        assertEquals(new StatusTotals(2, 14_500L, 1_000L), chf.byStatus().get("PENDING"));
+        assertEquals(new StatusTotals(1, 10_000L, 0L), chf.byStatus().get("VOID"));
+        assertEquals(new DueDateBucket("due_0_30", 2, 13_500L), bucket(chf, "due_0_30"));
+
+        // The database agrees with what the writes applied
+        aggregates.reconcile();
+        assertEquals(chf, summary("CHF"));
+    }
+
+    @Test
+    void testSummary_ClosedInvoicesTakeNoMorePayments() {
+        LocalDate today = LocalDate.now();
+        InvoiceResponse partlyPaid = invoiceService.createInvoice(new InvoiceRequest(4_000L, "PLN", today.minusDays(5)));
+        InvoiceResponse unpaid = invoiceService.createInvoice(new InvoiceRequest(3_000L, "PLN", today.minusDays(5)));
+        invoiceService.payInvoice(partlyPaid.id(), new PaymentRequest(1_000L));
+        invoiceService.processOverdueInvoices(new ProcessOverdueInvoiceRequest(500L, 20));
+        CurrencySummary closed = summary("PLN");
+        assertEquals(new StatusTotals(1, 4_000L, 1_000L), closed.byStatus().get("PAID"));
+        assertEquals(new StatusTotals(1, 3_000L, 0L), closed.byStatus().get("VOID"));
+
+        // Neither may move out of PENDING a second time; what is left is owed on their follow-ups
+        assertThrows(InvalidRequestPayloadException.class,
+                () -> invoiceService.payInvoice(partlyPaid.id(), new PaymentRequest(500L)));
+        assertThrows(InvalidRequestPayloadException.class,
+                () -> invoiceService.payInvoice(unpaid.id(), new PaymentRequest(3_000L)));
+        PaymentBatchResult batch = invoiceService.applyPayments(new ByteArrayInputStream("""
+                [{"invoiceId": %d, "amount": 500}, {"invoiceId": %d, "amount": 3000}]
+                """.formatted(partlyPaid.id(), unpaid.id()).getBytes(StandardCharsets.UTF_8)));
+        assertEquals(List.of(PaymentBatchItemResult.Outcome.CLOSED, PaymentBatchItemResult.Outcome.CLOSED),
+                batch.items().stream().map(PaymentBatchItemResult::outcome).toList());
+
+        assertEquals(closed, summary("PLN"));
+        aggregates.reconcile();
+        assertEquals(closed, summary("PLN"));
+    }
+
+    @Test
+    void testReconcile_CorrectsWritesMadeElsewhere() {
+        LocalDate dueDate = LocalDate.now().plusDays(70);
+        jdbcTemplate.update("""
+                insert into invoices (id, amount, paid_amount, currency, due_date, status, created_at, updated_at, version)
+                values (next value for invoices_seq, 7000, 2000, 'SEK', ?, 'PENDING', now(), now(), 0)""", dueDate);
+        assertNull(summary("SEK"));
+
+        aggregates.reconcile();
+
+        CurrencySummary sek = summary("SEK");
+        assertEquals(5_000L, sek.outstanding());
+        assertEquals(2_000L, sek.paid());
+        assertEquals(new DueDateBucket("due_61_90", 1, 5_000L), bucket(sek, "due_61_90"));
+    }
+
+    private CurrencySummary summary(String currency) {
+        return invoiceService.getSummary().currencies().stream()
+                .filter(summary -> summary.currency().equals(currency))
+                .findFirst().orElse(null);
+    }
+
+    private static DueDateBucket bucket(CurrencySummary summary, String name) {
+        return summary.byDueDate().stream().filter(bucket -> bucket.bucket().equals(name)).findFirst().orElseThrow();
+    }
+}